@@ -0,0 +1,27 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.configuration.pmode.reader;
+
+import eu.ecodex.configuration.pmode.Configuration;
+import java.util.List;
+
+/**
+ * The parties of a p-mode set together with the name of the party which owns the p-mode set.
+ *
+ * @param selfParty the value of the party attribute of the p-mode configuration
+ * @param parties   the parties listed under businessProcesses/parties
+ */
+public record PModeParties(
+    String selfParty, List<Configuration.BusinessProcesses.Parties.Party> parties) {
+    public PModeParties {
+        parties = List.copyOf(parties);
+    }
+}
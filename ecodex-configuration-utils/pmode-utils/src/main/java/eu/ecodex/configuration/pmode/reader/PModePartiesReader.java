@@ -0,0 +1,133 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.configuration.pmode.reader;
+
+import eu.ecodex.configuration.pmode.Configuration.BusinessProcesses.Parties.Party;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads the parties of a p-mode set with a streaming StAX parser.
+ *
+ * <p>Only the party attribute of the configuration element and the
+ * businessProcesses/parties/party elements including their identifiers are read, no JAXB or DOM
+ * tree of the whole p-mode set is built. Reading stops as soon as the parties element has been
+ * read, so the legs, processes and security sections which usually follow are not parsed at all.
+ */
+public final class PModePartiesReader {
+    private static final String CONFIGURATION = "configuration";
+    private static final String BUSINESS_PROCESSES = "businessProcesses";
+    private static final String PARTIES = "parties";
+    private static final String PARTY = "party";
+    private static final String IDENTIFIER = "identifier";
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+    private PModePartiesReader() {
+    }
+
+    /**
+     * Reads the parties from the p-mode set, the stream is not closed.
+     *
+     * @param pmode the p-mode XML
+     * @return the self party and the parties of the p-mode set
+     * @throws XMLStreamException if the p-mode set is not well-formed or contains no configuration
+     *                            element
+     */
+    public static PModeParties read(InputStream pmode) throws XMLStreamException {
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(pmode);
+        try {
+            return read(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static PModeParties read(XMLStreamReader reader) throws XMLStreamException {
+        Deque<String> path = new ArrayDeque<>();
+        boolean configurationFound = false;
+        String selfParty = null;
+        List<Party> parties = new ArrayList<>();
+        Party currentParty = null;
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String name = reader.getLocalName();
+                if (path.isEmpty()) {
+                    if (!CONFIGURATION.equals(name)) {
+                        throw new XMLStreamException(
+                            "Expected p-mode configuration but found [" + name + "]",
+                            reader.getLocation()
+                        );
+                    }
+                    configurationFound = true;
+                    selfParty = reader.getAttributeValue(null, PARTY);
+                } else if (PARTY.equals(name) && isPartiesPath(path)) {
+                    currentParty = readParty(reader);
+                } else if (IDENTIFIER.equals(name) && currentParty != null
+                    && path.size() == 4) {
+                    var identifier = new Party.Identifier();
+                    identifier.setPartyId(reader.getAttributeValue(null, "partyId"));
+                    identifier.setPartyIdType(reader.getAttributeValue(null, "partyIdType"));
+                    currentParty.getIdentifier().add(identifier);
+                }
+                path.push(name);
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                String name = path.pop();
+                if (PARTY.equals(name) && currentParty != null && path.size() == 3) {
+                    parties.add(currentParty);
+                    currentParty = null;
+                } else if (PARTIES.equals(name) && path.size() == 2) {
+                    break;
+                }
+            }
+        }
+        if (!configurationFound) {
+            throw new XMLStreamException("No p-mode configuration found");
+        }
+        return new PModeParties(selfParty, parties);
+    }
+
+    private static Party readParty(XMLStreamReader reader) {
+        var party = new Party();
+        party.setName(reader.getAttributeValue(null, "name"));
+        party.setEndpoint(reader.getAttributeValue(null, "endpoint"));
+        party.setUserName(reader.getAttributeValue(null, "userName"));
+        party.setPassword(reader.getAttributeValue(null, "password"));
+        party.setAllowChunking(reader.getAttributeValue(null, "allowChunking"));
+        return party;
+    }
+
+    // path is a stack, so the innermost element comes first
+    private static boolean isPartiesPath(Deque<String> path) {
+        if (path.size() != 3) {
+            return false;
+        }
+        var it = path.iterator();
+        return PARTIES.equals(it.next()) && BUSINESS_PROCESSES.equals(it.next())
+            && CONFIGURATION.equals(it.next());
+    }
+
+    private static XMLInputFactory createXmlInputFactory() {
+        var factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        return factory;
+    }
+}
@@ -0,0 +1,38 @@
+package eu.ecodex.configuration.pmode.reader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import eu.ecodex.configuration.pmode.Configuration.BusinessProcesses.Parties.Party;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import javax.xml.stream.XMLStreamException;
+import org.junit.jupiter.api.Test;
+
+class PModePartiesReaderTest {
+    @Test
+    void read_returnsSelfPartyAndParties() throws IOException, XMLStreamException {
+        PModeParties pmodeParties;
+        try (var pmode = getClass().getResourceAsStream("/pmode.xml")) {
+            pmodeParties = PModePartiesReader.read(pmode);
+        }
+
+        assertThat(pmodeParties.selfParty()).isEqualTo("at");
+        assertThat(pmodeParties.parties()).extracting(Party::getName)
+                                          .containsExactly("at", "de");
+        var de = pmodeParties.parties().get(1);
+        assertThat(de.getEndpoint()).isEqualTo("https://de.example.com/domibus/services/msh");
+        assertThat(de.getIdentifier()).extracting(Party.Identifier::getPartyId)
+                                      .containsExactly("de", "de-2");
+        assertThat(pmodeParties.parties().getFirst().getAllowChunking()).isEqualTo("false");
+    }
+
+    @Test
+    void read_otherDocument_throwsException() {
+        var xml = new ByteArrayInputStream("<other/>".getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> PModePartiesReader.read(xml))
+            .isInstanceOf(XMLStreamException.class);
+    }
+}
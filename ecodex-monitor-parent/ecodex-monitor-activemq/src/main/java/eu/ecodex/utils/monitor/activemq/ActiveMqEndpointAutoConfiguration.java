@@ -16,14 +16,14 @@ import eu.ecodex.utils.monitor.activemq.config.ActiveMqMetricConfigurationProper
 import eu.ecodex.utils.monitor.activemq.service.ActiveMqHealthService;
 import eu.ecodex.utils.monitor.activemq.service.ActiveMqMetricService;
 import eu.ecodex.utils.monitor.activemq.service.ActiveMqQueuesMonitorEndpoint;
-import eu.ecodex.utils.monitor.activemq.service.BrokerFacadeFactory;
+import eu.ecodex.utils.monitor.activemq.service.BrokerJmxConnection;
+import eu.ecodex.utils.monitor.activemq.service.DestinationRates;
+import eu.ecodex.utils.monitor.activemq.service.DestinationRegistry;
 import eu.ecodex.utils.monitor.activemq.service.DestinationService;
+import eu.ecodex.utils.monitor.activemq.service.DestinationStatisticsCollector;
 import io.micrometer.core.instrument.util.StringUtils;
 import java.util.Optional;
-import org.apache.activemq.web.BrokerFacade;
-import org.apache.activemq.web.SingletonBrokerFacade;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.context.properties.bind.BindResult;
@@ -57,7 +57,7 @@ public class ActiveMqEndpointAutoConfiguration {
      *
      * <p>This class is conditionally loaded when the property specified by
      * ActiveMqMetricConfigurationProperties.PREFIX is enabled. It initializes and provides an
-     * ActiveMqMetricService as a Spring bean.
+     * ActiveMqMetricService and the DestinationRates it reports as Spring beans.
      */
     @Configuration
     @ConditionalOnProperty(
@@ -71,6 +71,11 @@ public class ActiveMqEndpointAutoConfiguration {
         ActiveMqMetricService activeMqMetricService() {
             return new ActiveMqMetricService();
         }
+
+        @Bean
+        DestinationRates destinationRates() {
+            return new DestinationRates();
+        }
     }
 
     /**
@@ -107,19 +112,23 @@ public class ActiveMqEndpointAutoConfiguration {
     }
 
     @Bean
-    DestinationService destinationService() {
-        return new DestinationService();
+    BrokerJmxConnection brokerJmxConnection() {
+        return new BrokerJmxConnection();
     }
 
     @Bean
-    BrokerFacadeFactory brokerFacadeFactory() {
-        return new BrokerFacadeFactory();
+    DestinationRegistry destinationRegistry() {
+        return new DestinationRegistry();
     }
 
     @Bean
-    @ConditionalOnMissingBean
-    BrokerFacade localBrokerFacade() {
-        return new SingletonBrokerFacade();
+    DestinationStatisticsCollector destinationStatisticsCollector() {
+        return new DestinationStatisticsCollector();
+    }
+
+    @Bean
+    DestinationService destinationService() {
+        return new DestinationService();
     }
 
     /**
@@ -10,6 +10,7 @@
 
 package eu.ecodex.utils.monitor.activemq.config;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import javax.management.remote.JMXServiceURL;
@@ -33,4 +34,25 @@ public class ActiveMqEndpointConfigurationProperties {
     private String brokerName;
     private String jmxUser;
     private String jmxPassword;
+    /**
+     * Interval in which the destinations of the broker are looked up again, so destinations
+     * created or deleted after the start are picked up.
+     */
+    private Duration destinationRefreshInterval = Duration.ofSeconds(30);
+    /**
+     * Maximum number of destinations whose statistics are read in parallel over a remote JMX
+     * connection.
+     */
+    private int jmxParallelism = 4;
+    /**
+     * Interval in which the statistics of all destinations are read from the broker. Health,
+     * metrics and the endpoint all report the latest statistics.
+     */
+    private Duration statisticsRefreshInterval = Duration.ofSeconds(10);
+    /**
+     * Age after which the latest statistics are outdated, eg. because the broker cannot be
+     * reached. Outdated statistics are reported as DOWN by the health and without value by the
+     * gauges. Defaults to three times the statistics refresh interval.
+     */
+    private Duration maxStatisticsAge;
 }
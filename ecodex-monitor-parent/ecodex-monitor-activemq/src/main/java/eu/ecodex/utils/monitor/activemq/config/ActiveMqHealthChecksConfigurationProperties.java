@@ -10,7 +10,10 @@
 
 package eu.ecodex.utils.monitor.activemq.config;
 
+import java.util.ArrayList;
+import java.util.List;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -18,7 +21,8 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  *
  * <p>This class holds the configuration settings for monitoring the health of ActiveMQ queues. It
  * provides options to enable or disable the health check feature and to configure the thresholds
- * for warning and error states based on queue size usage.
+ * for warning and error states based on the memory, store and temp usage of the destinations and
+ * of the broker. The thresholds are fractions of the limits, eg. 0.8 for 80%.
  */
 @Data
 @ConfigurationProperties(prefix = ActiveMqHealthChecksConfigurationProperties.PREFIX)
@@ -26,6 +30,47 @@ public class ActiveMqHealthChecksConfigurationProperties {
     public static final String PREFIX =
         ActiveMqEndpointConfigurationProperties.ACTIVEMQ_MONITOR_PREFIX + ".health";
     private boolean enabled = true;
+    /**
+     * Usage above which a destination not matching any of the destination patterns is reported
+     * as WARN.
+     */
     private float queueSizeWarnThreshold = 0.6f;
+    /**
+     * Usage above which a destination not matching any of the destination patterns is reported
+     * as DOWN.
+     */
     private float queueSizeErrorThreshold = 0.8f;
+    /**
+     * Thresholds of the memory, store and temp usage of the broker.
+     */
+    private Thresholds broker = new Thresholds();
+    /**
+     * Thresholds of the destinations by ActiveMQ wildcard pattern eg. {@code orders.>}, the first
+     * matching pattern is used. A pattern prefixed with {@code queue://} or {@code topic://} only
+     * matches queues or topics.
+     */
+    private List<DestinationThresholds> destinations = new ArrayList<>();
+    /**
+     * How far the usage has to fall below a threshold before the state is lowered again, so the
+     * state does not flap while the usage is close to a threshold.
+     */
+    private float hysteresis = 0.05f;
+
+    /**
+     * Usage thresholds for the warning and error states.
+     */
+    @Data
+    public static class Thresholds {
+        private float warn = 0.6f;
+        private float error = 0.8f;
+    }
+
+    /**
+     * Usage thresholds for the destinations matching a pattern.
+     */
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    public static class DestinationThresholds extends Thresholds {
+        private String pattern;
+    }
 }
@@ -10,6 +10,9 @@
 
 package eu.ecodex.utils.monitor.activemq.config;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
@@ -26,4 +29,10 @@ public class ActiveMqMetricConfigurationProperties {
     public static final String PREFIX =
         ActiveMqEndpointConfigurationProperties.ACTIVEMQ_MONITOR_PREFIX + ".metrics";
     boolean enabled = true;
+    /**
+     * Sliding windows over which the enqueue, dequeue and dispatch rates of the destinations are
+     * calculated, the rates of each window are reported with a window tag eg. {@code 1m}.
+     */
+    List<Duration> rateWindows =
+        new ArrayList<>(List.of(Duration.ofMinutes(1), Duration.ofMinutes(5)));
 }
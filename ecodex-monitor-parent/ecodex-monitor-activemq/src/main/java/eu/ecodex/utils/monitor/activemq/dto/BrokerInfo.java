@@ -0,0 +1,25 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.dto;
+
+import lombok.Data;
+
+/**
+ * Represents the usage of the memory, store and temp limits of a broker.
+ */
+@Data
+public class BrokerInfo {
+    private String name;
+    private int memoryPercentUsage;
+    private int storePercentUsage;
+    private int tempPercentUsage;
+    private long storeLimit;
+}
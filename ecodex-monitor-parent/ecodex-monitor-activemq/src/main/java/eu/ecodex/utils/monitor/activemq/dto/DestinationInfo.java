@@ -28,6 +28,8 @@ public class DestinationInfo {
     private long maxEnqueueTime;
     private long tempUsageLimit;
     private long maxPageSize;
+    private int memoryPercentUsage;
+    private int tempUsagePercentUsage;
 
     /**
      * Enum representing the type of the destination in a messaging system. This can be a QUEUE, a
@@ -11,61 +11,188 @@
 package eu.ecodex.utils.monitor.activemq.service;
 
 import eu.ecodex.utils.monitor.activemq.config.ActiveMqHealthChecksConfigurationProperties;
-import org.apache.activemq.broker.jmx.DestinationViewMBean;
+import eu.ecodex.utils.monitor.activemq.dto.BrokerInfo;
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
+import jakarta.annotation.PostConstruct;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.activemq.command.ActiveMQDestination;
+import org.apache.activemq.filter.DestinationFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.health.AbstractHealthIndicator;
 import org.springframework.boot.actuate.health.Health;
 
 /**
  * Service that extends the AbstractHealthIndicator to check the health status of ActiveMQ
- * destinations (queues and topics). It uses DestinationService to retrieve the list of destinations
- * and performs health checks on them, updating the health status accordingly.
+ * destinations (queues and topics) and of the broker. It uses the latest statistics snapshot of
+ * the DestinationService and performs health checks on them, updating the health status
+ * accordingly.
+ *
+ * <p>The usage of a destination is the highest of its memory, store and temp usage, the store
+ * usage of a destination is its share of the store limit of the broker. The thresholds of a
+ * destination are taken from the first matching destination pattern, a pattern prefixed with
+ * {@code queue://} or {@code topic://} only matches queues or topics. A state is raised as soon
+ * as the usage reaches a threshold, but only lowered again once the usage has fallen below the
+ * threshold by the configured hysteresis. The details and states of a destination are keyed by
+ * its type and name, eg. {@code queue://orders_usage_state}. Outdated statistics, eg. because the
+ * broker cannot be reached, are reported as DOWN.
  */
 public class ActiveMqHealthService extends AbstractHealthIndicator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ActiveMqHealthService.class);
     public static final String STATE_SUFFIX = "_state";
     @Autowired
     DestinationService destinationService;
     @Autowired
     ActiveMqHealthChecksConfigurationProperties config;
+    private final Map<ActiveMQDestination, DestinationFilter> filters = new ConcurrentHashMap<>();
+    private Map<String, State> states = new HashMap<>();
 
-    @Override
-    protected void doHealthCheck(Health.Builder builder) {
-        builder.up();
+    enum State {
+        OK,
+        WARN,
+        DOWN
+    }
 
-        destinationService
-            .getDestinations()
-            .forEach(dst -> this.checkDestinationHealth(builder, dst));
+    /**
+     * Warns about the destination thresholds without a pattern, they are ignored.
+     */
+    @PostConstruct
+    public void init() {
+        for (int i = 0; i < config.getDestinations().size(); i++) {
+            if (isBlank(config.getDestinations().get(i).getPattern())) {
+                LOGGER.warn(
+                    "{}.destinations[{}] has no pattern and is ignored",
+                    ActiveMqHealthChecksConfigurationProperties.PREFIX, i
+                );
+            }
+        }
     }
 
-    private void checkDestinationHealth(Health.Builder builder, DestinationViewMBean dst) {
-        String checkName = dst.getName() + "_usage";
+    @Override
+    protected synchronized void doHealthCheck(Health.Builder builder) {
+        var snapshot = destinationService.getSnapshot();
+        if (snapshot.timestamp() == null) {
+            builder.unknown();
+            builder.withDetail("reason", "No statistics have been read from the broker yet");
+            return;
+        }
+        builder.withDetail("statisticsTimestamp", snapshot.timestamp().toString());
+        if (destinationService.isOutdated(snapshot.timestamp())) {
+            builder.down();
+            builder.withDetail(
+                "reason", "The statistics have not been refreshed for more than "
+                    + destinationService.getMaxStatisticsAge()
+            );
+            return;
+        }
 
-        long queueSize = dst.getQueueSize();
-        long maxPageSize = dst.getMaxPageSize();
+        Map<String, State> checkedStates = new HashMap<>();
+        var worst = State.OK;
+        var broker = snapshot.broker();
+        if (broker != null) {
+            var state = checkUsage(
+                builder, checkedStates, "broker_" + broker.getName(), config.getBroker(),
+                broker.getMemoryPercentUsage(), broker.getStorePercentUsage(),
+                broker.getTempPercentUsage()
+            );
+            worst = worst.compareTo(state) < 0 ? state : worst;
+        }
+        for (DestinationInfo dst : snapshot.getDestinationInfos()) {
+            var destination = destinationOf(dst);
+            // keyed by type and name, a queue and a topic may have the same name
+            var state = checkUsage(
+                builder, checkedStates, destination.getQualifiedName(), thresholdsOf(destination),
+                dst.getMemoryPercentUsage(), storePercentUsageOf(dst, broker),
+                dst.getTempUsagePercentUsage()
+            );
+            worst = worst.compareTo(state) < 0 ? state : worst;
+        }
+        states = checkedStates;
 
-        long usage = 0;
-        if (queueSize > 0) {
-            usage = maxPageSize / queueSize;
+        if (worst == State.DOWN) {
+            builder.down();
+        } else {
+            builder.up();
         }
+    }
 
-        builder.withDetail(checkName + "_percentage", usage);
-        builder.withDetail(checkName + "_size", queueSize);
-        builder.withDetail(checkName + "_maxSize", maxPageSize);
-        builder.withDetail(checkName + "_warn", config.getQueueSizeWarnThreshold());
-        builder.withDetail(checkName + "_error", config.getQueueSizeErrorThreshold());
+    private State checkUsage(
+        Health.Builder builder, Map<String, State> checkedStates, String name,
+        ActiveMqHealthChecksConfigurationProperties.Thresholds thresholds, int memoryPercentUsage,
+        int storePercentUsage, int tempPercentUsage) {
+        String checkName = name + "_usage";
+        float usage =
+            Math.max(memoryPercentUsage, Math.max(storePercentUsage, tempPercentUsage)) / 100f;
+        var state = stateOf(usage, thresholds, states.getOrDefault(checkName, State.OK));
+        checkedStates.put(checkName, state);
 
-        if (usage < config.getQueueSizeWarnThreshold()
-            && usage < config.getQueueSizeErrorThreshold()) {
-            builder.withDetail(checkName + STATE_SUFFIX, "OK");
-            return;
+        builder.withDetail(checkName + "_memory", memoryPercentUsage);
+        builder.withDetail(checkName + "_store", storePercentUsage);
+        builder.withDetail(checkName + "_temp", tempPercentUsage);
+        builder.withDetail(checkName + "_warn", thresholds.getWarn());
+        builder.withDetail(checkName + "_error", thresholds.getError());
+        builder.withDetail(checkName + STATE_SUFFIX, state.name());
+        return state;
+    }
+
+    private State stateOf(
+        float usage, ActiveMqHealthChecksConfigurationProperties.Thresholds thresholds,
+        State previous) {
+        if (usage >= thresholds.getError()) {
+            return State.DOWN;
+        }
+        if (previous == State.DOWN && usage > thresholds.getError() - config.getHysteresis()) {
+            return State.DOWN;
+        }
+        if (usage >= thresholds.getWarn()) {
+            return State.WARN;
         }
+        if (previous != State.OK && usage > thresholds.getWarn() - config.getHysteresis()) {
+            return State.WARN;
+        }
+        return State.OK;
+    }
 
-        if (usage < config.getQueueSizeErrorThreshold()) {
-            builder.withDetail(checkName + STATE_SUFFIX, "WARN");
-            return;
+    private static ActiveMQDestination destinationOf(DestinationInfo dst) {
+        byte type = dst.getType() == DestinationInfo.DestinationType.TOPIC
+            ? ActiveMQDestination.TOPIC_TYPE
+            : ActiveMQDestination.QUEUE_TYPE;
+        return ActiveMQDestination.createDestination(dst.getName(), type);
+    }
+
+    private ActiveMqHealthChecksConfigurationProperties.Thresholds thresholdsOf(
+        ActiveMQDestination destination) {
+        for (var thresholds : config.getDestinations()) {
+            if (isBlank(thresholds.getPattern())) {
+                continue;
+            }
+            // a pattern without queue:// or topic:// prefix gets the type of the destination
+            var filter = filters.computeIfAbsent(
+                ActiveMQDestination.createDestination(
+                    thresholds.getPattern(), destination.getDestinationType()),
+                DestinationFilter::parseFilter
+            );
+            if (filter.matches(destination)) {
+                return thresholds;
+            }
         }
+        var thresholds = new ActiveMqHealthChecksConfigurationProperties.Thresholds();
+        thresholds.setWarn(config.getQueueSizeWarnThreshold());
+        thresholds.setError(config.getQueueSizeErrorThreshold());
+        return thresholds;
+    }
 
-        builder.down();
-        builder.withDetail(checkName + STATE_SUFFIX, "DOWN");
+    private static boolean isBlank(String pattern) {
+        return pattern == null || pattern.isBlank();
+    }
+
+    private static int storePercentUsageOf(DestinationInfo dst, BrokerInfo broker) {
+        if (broker == null || broker.getStoreLimit() <= 0) {
+            return 0;
+        }
+        return (int) Math.min(100, dst.getStoreMessageSize() * 100 / broker.getStoreLimit());
     }
 }
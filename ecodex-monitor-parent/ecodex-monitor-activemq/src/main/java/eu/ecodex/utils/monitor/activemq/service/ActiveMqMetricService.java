@@ -10,57 +10,209 @@
 
 package eu.ecodex.utils.monitor.activemq.service;
 
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
+import io.micrometer.core.instrument.FunctionCounter;
 import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.TimeGauge;
 import jakarta.annotation.PostConstruct;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+import javax.management.ObjectName;
 import org.apache.activemq.broker.jmx.DestinationViewMBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
 
 /**
  * Service for monitoring ActiveMQ metrics.
  *
- * <p>This service retrieves ActiveMQ destinations from the {@link DestinationService} and
+ * <p>This service retrieves ActiveMQ destinations from the {@link DestinationRegistry} and
  * registers various metrics associated with these destinations using a {@link MeterRegistry}.
- * Metrics include queue size and maximum page size for each destination.
+ * Metrics include queue size and maximum page size for each destination, read from the latest
+ * statistics snapshot of the {@link DestinationService}, the enqueue, dequeue and dispatch counts
+ * as function counters and the rates, consumer lag and time to drain of each window of the
+ * {@link DestinationRates}, tagged with the window eg. {@code window=5m}. All metrics are
+ * tagged with the destination type eg. {@code destinationType=queue}, as a queue and a topic may
+ * have the same name. Outdated statistics are reported as not a number. The metrics of
+ * destinations created or deleted later are registered and removed on the
+ * {@link DestinationsChangedEvent}.
  */
 public class ActiveMqMetricService {
+    public static final String WINDOW_TAG = "window";
+    public static final String DESTINATION_TYPE_TAG = "destinationType";
+    @Autowired
+    DestinationRegistry destinationRegistry;
     @Autowired
     DestinationService destinationService;
     @Autowired
+    DestinationRates destinationRates;
+    @Autowired
     MeterRegistry meterRegistry;
-    List<DestinationViewMBean> destinations = new ArrayList<>();
+    private final Map<ObjectName, List<Meter>> meters = new ConcurrentHashMap<>();
 
     /**
      * Initializes the ActiveMqMetricService by retrieving a list of ActiveMQ destinations from the
-     * DestinationService and registering various metrics for each destination using the
+     * DestinationRegistry and registering various metrics for each destination using the
      * MeterRegistry.
      */
     @PostConstruct
     public void init() {
-        destinationService
+        destinationRegistry
             .getDestinations()
             .forEach(this::addMetric);
     }
 
-    private void addMetric(DestinationViewMBean dst) {
-        Gauge.Builder<DestinationViewMBean> builder =
-            Gauge.builder("activemq.destinations." + dst.getName() + ".queueSize", dst,
-                          DestinationViewMBean::getQueueSize
+    /**
+     * Registers the metrics of the new destinations and removes the ones of the deleted
+     * destinations.
+     *
+     * @param event the changed destinations
+     */
+    @EventListener
+    public void onDestinationsChanged(DestinationsChangedEvent event) {
+        event.getRemoved().keySet().forEach(this::removeMetric);
+        event.getAdded().forEach(this::addMetric);
+    }
+
+    private void removeMetric(ObjectName name) {
+        var removed = meters.remove(name);
+        if (removed != null) {
+            removed.forEach(meterRegistry::remove);
+        }
+    }
+
+    private void addMetric(ObjectName name, DestinationViewMBean dst) {
+        if (meters.containsKey(name)) {
+            return;
+        }
+        // a queue and a topic may have the same name
+        var typeTag = Tag.of(DESTINATION_TYPE_TAG, destinationTypeTagOf(name));
+        Gauge.Builder<DestinationService> builder =
+            Gauge.builder("activemq.destinations." + dst.getName() + ".queueSize",
+                          destinationService,
+                          service -> valueOf(service, name, DestinationInfo::getQueueSize)
             );
         builder.description(
             "Number of messages on this destination, including any that have been dispatched but "
                 + "not acknowledged"
         );
         builder.baseUnit("message");
-        builder.register(meterRegistry);
+        builder.tags(List.of(typeTag));
+        var queueSize = builder.register(meterRegistry);
 
-        Gauge.Builder<DestinationViewMBean> builder1 =
-            Gauge.builder("activemq.destinations." + dst.getName() + ".maxPageSize", dst,
-                          DestinationViewMBean::getMaxPageSize
+        Gauge.Builder<DestinationService> builder1 =
+            Gauge.builder("activemq.destinations." + dst.getName() + ".maxPageSize",
+                          destinationService,
+                          service -> valueOf(service, name, DestinationInfo::getMaxPageSize)
             );
         builder1.description("Maximum number of messages to be paged in");
-        builder1.register(meterRegistry);
+        builder1.tags(List.of(typeTag));
+        var maxPageSize = builder1.register(meterRegistry);
+
+        var prefix = "activemq.destinations." + dst.getName() + ".";
+        List<Meter> destinationMeters = new ArrayList<>(List.of(
+            queueSize,
+            maxPageSize,
+            counter(typeTag, prefix + "enqueueCount", name, DestinationInfo::getEnqueueCount,
+                    "Number of messages sent to this destination"
+            ),
+            counter(typeTag, prefix + "dequeueCount", name, DestinationInfo::getDequeueCount,
+                    "Number of messages acknowledged by the consumers of this destination"
+            ),
+            counter(typeTag, prefix + "dispatchCount", name, DestinationInfo::getDispatchCount,
+                    "Number of messages dispatched to the consumers of this destination"
+            )
+        ));
+        for (Duration window : destinationRates.getWindows()) {
+            TimeGauge.Builder<DestinationRates> timeToDrain =
+                TimeGauge.builder(
+                    prefix + "timeToDrain", destinationRates, TimeUnit.SECONDS,
+                    rates -> rateOf(rates, name, window, DestinationRates.Rate::timeToDrain)
+                );
+            timeToDrain.description(
+                "Estimated time until this destination is empty at the current rates");
+            timeToDrain.tags(List.of(typeTag, Tag.of(WINDOW_TAG, windowTagOf(window))));
+
+            destinationMeters.addAll(List.of(
+                rate(typeTag, prefix + "enqueueRate", name, window,
+                     DestinationRates.Rate::enqueueRate,
+                     "Messages per second sent to this destination"
+                ),
+                rate(typeTag, prefix + "dequeueRate", name, window,
+                     DestinationRates.Rate::dequeueRate,
+                     "Messages per second acknowledged by the consumers of this destination"
+                ),
+                rate(typeTag, prefix + "dispatchRate", name, window,
+                     DestinationRates.Rate::dispatchRate,
+                     "Messages per second dispatched to the consumers of this destination"
+                ),
+                rate(typeTag, prefix + "consumerLag", name, window,
+                     DestinationRates.Rate::consumerLag,
+                     "Messages per second sent to this destination more than acknowledged, "
+                         + "positive if the consumers fall behind"
+                ),
+                timeToDrain.register(meterRegistry)
+            ));
+        }
+        meters.put(name, List.copyOf(destinationMeters));
+    }
+
+    private Meter counter(
+        Tag typeTag, String meterName, ObjectName name, ToLongFunction<DestinationInfo> value,
+        String description) {
+        return FunctionCounter.builder(meterName, destinationService,
+                                       service -> valueOf(service, name, value)
+                              )
+                              .description(description)
+                              .baseUnit("message")
+                              .tags(List.of(typeTag))
+                              .register(meterRegistry);
+    }
+
+    private Meter rate(
+        Tag typeTag, String meterName, ObjectName name, Duration window,
+        ToDoubleFunction<DestinationRates.Rate> value, String description) {
+        return Gauge.builder(meterName, destinationRates,
+                             rates -> rateOf(rates, name, window, value)
+                    )
+                    .description(description)
+                    .tags(List.of(typeTag, Tag.of(WINDOW_TAG, windowTagOf(window))))
+                    .register(meterRegistry);
+    }
+
+    private double rateOf(
+        DestinationRates rates, ObjectName name, Duration window,
+        ToDoubleFunction<DestinationRates.Rate> value) {
+        if (destinationService.isOutdated(rates.getTimestamp())) {
+            return Double.NaN;
+        }
+        return value.applyAsDouble(rates.get(name, window));
+    }
+
+    static String destinationTypeTagOf(ObjectName name) {
+        var type = DestinationRegistry.destinationTypeOf(name);
+        return type == null ? "unknown" : type.toLowerCase(Locale.ROOT);
+    }
+
+    static String windowTagOf(Duration window) {
+        if (window.toSeconds() % 60 == 0) {
+            return window.toMinutes() + "m";
+        }
+        return window.toSeconds() + "s";
+    }
+
+    private static double valueOf(
+        DestinationService service, ObjectName name, ToLongFunction<DestinationInfo> value) {
+        var info = service.getCurrentSnapshot().get(name);
+        return info == null ? Double.NaN : value.applyAsLong(info);
     }
 }
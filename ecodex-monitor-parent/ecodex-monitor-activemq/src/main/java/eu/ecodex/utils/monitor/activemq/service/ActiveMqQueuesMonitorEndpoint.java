@@ -11,12 +11,7 @@
 package eu.ecodex.utils.monitor.activemq.service;
 
 import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
-import java.util.ArrayList;
 import java.util.List;
-import org.apache.activemq.broker.jmx.DestinationViewMBean;
-import org.apache.activemq.broker.jmx.QueueViewMBean;
-import org.apache.activemq.broker.jmx.TopicViewMBean;
-import org.apache.activemq.web.BrokerFacade;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
 import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
@@ -29,49 +24,17 @@ import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
 public class ActiveMqQueuesMonitorEndpoint {
     public static final String ENDPOINT_ID = "activemqdestinations";
     @Autowired
-    BrokerFacade activeMqBrokerFacade;
+    DestinationService destinationService;
 
     /**
-     * Retrieves and maps the information about ActiveMQ destinations (queues and topics).
+     * Retrieves the information about ActiveMQ destinations (queues and topics) from the latest
+     * statistics snapshot.
      *
-     * @return a list of {@link DestinationInfo} objects containing the details of each destination.
-     * @throws Exception if an error occurs while fetching the destination information.
+     * @return a list of {@link DestinationInfo} objects containing the details of each destination,
+     *      empty if the statistics are outdated.
      */
     @ReadOperation
-    public List<DestinationInfo> getDestinationInfos() throws Exception {
-        List<DestinationViewMBean> destinations = new ArrayList<>();
-
-        destinations.addAll(activeMqBrokerFacade.getQueues());
-        destinations.addAll(activeMqBrokerFacade.getTopics());
-
-        return destinations.stream()
-                           .map(this::mapToQueueInfo)
-                           .toList();
-    }
-
-    private DestinationInfo mapToQueueInfo(DestinationViewMBean dst) {
-        var info = new DestinationInfo();
-        info.setName(dst.getName());
-
-        info.setQueueSize(dst.getQueueSize());
-
-        if (dst instanceof TopicViewMBean) {
-            info.setType(DestinationInfo.DestinationType.TOPIC);
-        } else if (dst instanceof QueueViewMBean) {
-            info.setType(DestinationInfo.DestinationType.QUEUE);
-        } else {
-            info.setType(DestinationInfo.DestinationType.NOT_KNOWN);
-        }
-
-        info.setDequeueCount(dst.getDequeueCount());
-        info.setDispatchCount(dst.getDispatchCount());
-        info.setEnqueueCount(dst.getEnqueueCount());
-        info.setMaxEnqueueTime(dst.getMaxEnqueueTime());
-        info.setStoreMessageSize(dst.getStoreMessageSize());
-        info.setMemoryLimit(dst.getMemoryLimit());
-        info.setTempUsageLimit(dst.getTempUsageLimit());
-        info.setMaxPageSize(dst.getMaxPageSize());
-
-        return info;
+    public List<DestinationInfo> getDestinationInfos() {
+        return destinationService.getDestinationInfos();
     }
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.service;
+
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqEndpointConfigurationProperties;
+import io.micrometer.core.instrument.util.StringUtils;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import javax.management.MBeanServerConnection;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import org.apache.activemq.broker.BrokerRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Provides the JMX connection to the monitored broker.
+ *
+ * <p>The connection is chosen in this order: a remote connection to the first reachable JMX url,
+ * the platform MBean server if local JMX is activated, or the MBean server of the broker running in
+ * this JVM. A remote connection is
+ * kept open until {@link #reset()} is called after a failure.
+ */
+public class BrokerJmxConnection {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BrokerJmxConnection.class);
+    @Autowired
+    ActiveMqEndpointConfigurationProperties configurationProperties;
+    private JMXConnector connector;
+
+    /**
+     * Returns the connection to the MBean server of the broker.
+     *
+     * @return the connection
+     * @throws IOException if no connection can be established
+     */
+    public synchronized MBeanServerConnection getConnection() throws IOException {
+        if (!configurationProperties.getJmxUrl().isEmpty()) {
+            if (connector == null) {
+                connector = connect();
+            }
+            return connector.getMBeanServerConnection();
+        }
+        if (configurationProperties.isLocalJmx()) {
+            return ManagementFactory.getPlatformMBeanServer();
+        }
+        var broker = BrokerRegistry.getInstance().findFirst();
+        if (broker == null) {
+            throw new IOException("No broker is running in this JVM");
+        }
+        return broker.getManagementContext().getMBeanServer();
+    }
+
+    /**
+     * Closes the remote connection, the next call of {@link #getConnection()} connects again.
+     */
+    @PreDestroy
+    public synchronized void reset() {
+        if (connector == null) {
+            return;
+        }
+        try {
+            connector.close();
+        } catch (IOException e) {
+            LOGGER.debug("Error while closing the JMX connection", e);
+        }
+        connector = null;
+    }
+
+    private JMXConnector connect() throws IOException {
+        Map<String, Object> environment = new HashMap<>();
+        if (StringUtils.isNotEmpty(configurationProperties.getJmxUser())) {
+            environment.put(JMXConnector.CREDENTIALS, new String[] {
+                configurationProperties.getJmxUser(), configurationProperties.getJmxPassword()});
+        }
+        IOException failure = null;
+        for (JMXServiceURL url : configurationProperties.getJmxUrl()) {
+            try {
+                var jmxConnector = JMXConnectorFactory.connect(url, environment);
+                LOGGER.info("Connected to the JMX server [{}]", url);
+                return jmxConnector;
+            } catch (IOException e) {
+                LOGGER.warn("Cannot connect to the JMX server [{}]", url, e);
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+}
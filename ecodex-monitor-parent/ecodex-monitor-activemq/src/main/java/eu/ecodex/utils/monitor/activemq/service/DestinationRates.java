@@ -0,0 +1,202 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.service;
+
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqMetricConfigurationProperties;
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+import javax.management.ObjectName;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+
+/**
+ * Derives the throughput of the destinations from the statistics snapshots.
+ *
+ * <p>The snapshots of the longest configured rate window are kept. The rate of a window is the
+ * difference of a counter between the newest snapshot and the last snapshot at or before the start
+ * of the window containing the destination, divided by the time between them. If the window is
+ * not filled yet, the oldest snapshot containing the destination is used. A rate is not a number
+ * until two snapshots are available or if a counter has been reset, eg. by a restart of the
+ * broker.
+ */
+public class DestinationRates {
+    @Autowired
+    ActiveMqMetricConfigurationProperties config;
+    @Autowired
+    DestinationService destinationService;
+    private final Deque<DestinationStatisticsSnapshot> snapshots = new ArrayDeque<>();
+    private volatile Map<Duration, Map<ObjectName, Rate>> rates = Map.of();
+    private volatile Instant timestamp;
+
+    /**
+     * The throughput of a destination.
+     *
+     * @param enqueueRate  messages sent to the destination per second
+     * @param dequeueRate  messages acknowledged by the consumers per second
+     * @param dispatchRate messages dispatched to the consumers per second
+     * @param queueSize    the number of messages on the destination in the newest snapshot
+     */
+    public record Rate(double enqueueRate, double dequeueRate, double dispatchRate,
+                       long queueSize) {
+        static final Rate UNKNOWN = new Rate(Double.NaN, Double.NaN, Double.NaN, 0);
+
+        /**
+         * Returns how many more messages per second are sent to the destination than consumed. A
+         * positive lag means the consumers fall behind.
+         *
+         * @return the lag in messages per second
+         */
+        public double consumerLag() {
+            return enqueueRate - dequeueRate;
+        }
+
+        /**
+         * Estimates the time until the destination is empty at the current rates.
+         *
+         * @return the time in seconds, positive infinity if the destination is not drained
+         */
+        public double timeToDrain() {
+            if (queueSize == 0) {
+                return 0;
+            }
+            var drainRate = -consumerLag();
+            if (Double.isNaN(drainRate)) {
+                return Double.NaN;
+            }
+            return drainRate > 0 ? queueSize / drainRate : Double.POSITIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Starts the window with the current snapshot of the {@link DestinationService}.
+     */
+    @PostConstruct
+    public void init() {
+        add(destinationService.getSnapshot());
+    }
+
+    /**
+     * Adds the new snapshot to the window and calculates the rates.
+     *
+     * @param event the new snapshot
+     */
+    @EventListener
+    public void onStatisticsRefreshed(DestinationStatisticsRefreshedEvent event) {
+        add(event.getSnapshot());
+    }
+
+    /**
+     * Returns the throughput of a destination over a rate window.
+     *
+     * @param name   the object name of the destination
+     * @param window one of the configured rate windows
+     * @return the rates, not a number if they are not known
+     */
+    public Rate get(ObjectName name, Duration window) {
+        return rates.getOrDefault(window, Map.of()).getOrDefault(name, Rate.UNKNOWN);
+    }
+
+    public List<Duration> getWindows() {
+        return List.copyOf(config.getRateWindows());
+    }
+
+    /**
+     * Returns the time the newest snapshot of the rates has been read.
+     *
+     * @return the timestamp or null if no snapshot has been added yet
+     */
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    synchronized void add(DestinationStatisticsSnapshot snapshot) {
+        if (snapshot.timestamp() == null) {
+            return;
+        }
+        var newest = snapshots.peekLast();
+        if (newest != null && !snapshot.timestamp().isAfter(newest.timestamp())) {
+            return;
+        }
+        snapshots.addLast(snapshot);
+        var longestWindow = config.getRateWindows().stream()
+                                  .max(Comparator.naturalOrder())
+                                  .orElse(Duration.ZERO);
+        var oldestStart = snapshot.timestamp().minus(longestWindow);
+        // keep the last snapshot before the longest window as base of its rates
+        while (snapshots.size() > 2) {
+            var iterator = snapshots.iterator();
+            iterator.next();
+            if (iterator.next().timestamp().isAfter(oldestStart)) {
+                break;
+            }
+            snapshots.removeFirst();
+        }
+
+        Map<Duration, Map<ObjectName, Rate>> calculated = new HashMap<>();
+        for (Duration window : config.getRateWindows()) {
+            var windowStart = snapshot.timestamp().minus(window);
+            Map<ObjectName, Rate> windowRates = new HashMap<>();
+            snapshot.destinations().forEach((name, current) -> {
+                var base = baseOf(name, windowStart);
+                windowRates.put(name, base == null ? Rate.UNKNOWN : rateOf(
+                    base.get(name), current,
+                    Duration.between(base.timestamp(), snapshot.timestamp())
+                ));
+            });
+            calculated.put(window, windowRates);
+        }
+        rates = calculated;
+        timestamp = snapshot.timestamp();
+    }
+
+    private DestinationStatisticsSnapshot baseOf(ObjectName name, Instant windowStart) {
+        DestinationStatisticsSnapshot base = null;
+        for (DestinationStatisticsSnapshot snapshot : snapshots) {
+            if (snapshot == snapshots.peekLast()) {
+                break;
+            }
+            if (snapshot.get(name) == null) {
+                continue;
+            }
+            if (base != null && snapshot.timestamp().isAfter(windowStart)) {
+                break;
+            }
+            base = snapshot;
+        }
+        return base;
+    }
+
+    private static Rate rateOf(DestinationInfo base, DestinationInfo current, Duration elapsed) {
+        double seconds = elapsed.toNanos() / 1e9;
+        return new Rate(
+            rateOf(base, current, seconds, DestinationInfo::getEnqueueCount),
+            rateOf(base, current, seconds, DestinationInfo::getDequeueCount),
+            rateOf(base, current, seconds, DestinationInfo::getDispatchCount),
+            current.getQueueSize()
+        );
+    }
+
+    private static double rateOf(
+        DestinationInfo base, DestinationInfo current, double seconds,
+        ToLongFunction<DestinationInfo> counter) {
+        long delta = counter.applyAsLong(current) - counter.applyAsLong(base);
+        return delta < 0 ? Double.NaN : delta / seconds;
+    }
+}
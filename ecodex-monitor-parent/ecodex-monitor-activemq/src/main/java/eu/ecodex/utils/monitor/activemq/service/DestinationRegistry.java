@@ -0,0 +1,181 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.service;
+
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqEndpointConfigurationProperties;
+import io.micrometer.core.instrument.util.StringUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.Attribute;
+import javax.management.JMException;
+import javax.management.MBeanServerConnection;
+import javax.management.MBeanServerInvocationHandler;
+import javax.management.ObjectName;
+import org.apache.activemq.broker.jmx.DestinationViewMBean;
+import org.apache.activemq.broker.jmx.QueueViewMBean;
+import org.apache.activemq.broker.jmx.TopicViewMBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * Keeps the queues and topics of the broker up to date.
+ *
+ * <p>The destinations are looked up periodically from the broker MBean and compared with the
+ * known ones. A proxy is only created for a new destination, the proxies of deleted destinations
+ * are dropped. Each change is published as {@link DestinationsChangedEvent}. If the connection to
+ * the broker has been replaced, all proxies are created again and reported as changed.
+ */
+public class DestinationRegistry {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DestinationRegistry.class);
+    private static final String[] DESTINATION_ATTRIBUTES = {"Queues", "Topics"};
+    @Autowired
+    ActiveMqEndpointConfigurationProperties configurationProperties;
+    @Autowired
+    BrokerJmxConnection brokerJmxConnection;
+    @Autowired(required = false)
+    ApplicationEventPublisher eventPublisher;
+    private volatile Map<ObjectName, DestinationViewMBean> destinations = Map.of();
+    private volatile ObjectName broker;
+    private MBeanServerConnection proxiedConnection;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Looks up the destinations and schedules the refresh.
+     */
+    @PostConstruct
+    public void init() {
+        refresh();
+        long interval = configurationProperties.getDestinationRefreshInterval().toMillis();
+        if (interval <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "activemq-destination-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refresh, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the refresh.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the known destinations.
+     *
+     * @return the proxies of the destinations by their object name
+     */
+    public Map<ObjectName, DestinationViewMBean> getDestinations() {
+        return destinations;
+    }
+
+    /**
+     * Returns the broker of the destinations.
+     *
+     * @return the object name of the broker MBean, null if the broker has not been found yet
+     */
+    public ObjectName getBroker() {
+        return broker;
+    }
+
+    /**
+     * Looks up the destinations of the broker and publishes the changes.
+     */
+    public synchronized void refresh() {
+        try {
+            var connection = brokerJmxConnection.getConnection();
+            var previous = connection == proxiedConnection
+                ? destinations : Map.<ObjectName, DestinationViewMBean>of();
+            Map<ObjectName, DestinationViewMBean> current = new LinkedHashMap<>();
+            Map<ObjectName, DestinationViewMBean> added = new LinkedHashMap<>();
+            for (ObjectName name : lookupDestinations(connection)) {
+                var proxy = previous.get(name);
+                if (proxy == null) {
+                    proxy = newProxy(connection, name);
+                    added.put(name, proxy);
+                }
+                current.put(name, proxy);
+            }
+            Map<ObjectName, DestinationViewMBean> removed = new LinkedHashMap<>(destinations);
+            if (previous == destinations) {
+                removed.keySet().removeAll(current.keySet());
+            }
+
+            destinations = Collections.unmodifiableMap(current);
+            proxiedConnection = connection;
+            if (!added.isEmpty() || !removed.isEmpty()) {
+                LOGGER.info("Destinations of the broker changed, added {}, removed {}",
+                            added.keySet(), removed.keySet()
+                );
+                if (eventPublisher != null) {
+                    eventPublisher.publishEvent(new DestinationsChangedEvent(this, added, removed));
+                }
+            }
+        } catch (IOException | JMException | RuntimeException e) {
+            LOGGER.warn("Cannot look up the destinations of the broker", e);
+            brokerJmxConnection.reset();
+        }
+    }
+
+    private List<ObjectName> lookupDestinations(MBeanServerConnection connection)
+        throws IOException, JMException {
+        var brokerName = StringUtils.isNotEmpty(configurationProperties.getBrokerName())
+            ? configurationProperties.getBrokerName() : "*";
+        var brokers = connection.queryNames(
+            new ObjectName("org.apache.activemq:type=Broker,brokerName=" + brokerName), null);
+        if (brokers.isEmpty()) {
+            throw new IOException("No broker could be found in the JMX.");
+        }
+        broker = brokers.iterator().next();
+        List<ObjectName> names = new ArrayList<>();
+        for (Attribute attribute : connection.getAttributes(
+            broker, DESTINATION_ATTRIBUTES).asList()) {
+            names.addAll(Arrays.asList((ObjectName[]) attribute.getValue()));
+        }
+        return names;
+    }
+
+    private static DestinationViewMBean newProxy(
+        MBeanServerConnection connection, ObjectName name) {
+        Class<? extends DestinationViewMBean> type = "Topic".equals(destinationTypeOf(name))
+            ? TopicViewMBean.class : QueueViewMBean.class;
+        return MBeanServerInvocationHandler.newProxyInstance(connection, name, type, true);
+    }
+
+    /**
+     * Returns the destination type of the object name of a destination.
+     *
+     * @param name the object name
+     * @return the destination type eg. Queue or Topic
+     */
+    static String destinationTypeOf(ObjectName name) {
+        return name.getKeyProperty("destinationType");
+    }
+}
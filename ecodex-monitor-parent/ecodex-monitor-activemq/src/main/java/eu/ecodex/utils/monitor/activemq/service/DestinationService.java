@@ -10,85 +10,174 @@
 
 package eu.ecodex.utils.monitor.activemq.service;
 
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqEndpointConfigurationProperties;
 import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
 import jakarta.annotation.PostConstruct;
-import java.util.ArrayList;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
-import lombok.Data;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.apache.activemq.broker.jmx.DestinationViewMBean;
-import org.apache.activemq.broker.jmx.QueueViewMBean;
-import org.apache.activemq.broker.jmx.TopicViewMBean;
-import org.apache.activemq.web.BrokerFacade;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 
 /**
- * Service for managing and monitoring ActiveMQ destinations (queues and topics) through a
- * BrokerFacade.
+ * Service for managing and monitoring ActiveMQ destinations (queues and topics) known by the
+ * {@link DestinationRegistry}.
+ *
+ * <p>The statistics of the destinations are read periodically into a
+ * {@link DestinationStatisticsSnapshot}. The health indicator, the metrics and the endpoint all
+ * report the latest snapshot, so the load on the broker does not depend on how often they are
+ * called. If the broker cannot be reached, the previous snapshot is kept until it is older than
+ * {@code monitor.activemq.max-statistics-age}, then it is outdated.
  */
-@Data
 public class DestinationService {
     private static final Logger LOGGER = LoggerFactory.getLogger(DestinationService.class);
     @Autowired
-    BrokerFacade activeMqBrokerFacade;
-    List<DestinationViewMBean> destinations = new ArrayList<>();
+    ActiveMqEndpointConfigurationProperties configurationProperties;
+    @Autowired
+    DestinationRegistry destinationRegistry;
+    @Autowired
+    DestinationStatisticsCollector destinationStatisticsCollector;
+    @Autowired
+    BrokerJmxConnection brokerJmxConnection;
+    @Autowired(required = false)
+    ApplicationEventPublisher eventPublisher;
+    Clock clock = Clock.systemUTC();
+    private volatile DestinationStatisticsSnapshot snapshot = DestinationStatisticsSnapshot.EMPTY;
+    private ScheduledExecutorService scheduler;
 
     /**
-     * Initializes the DestinationService by retrieving and storing ActiveMQ destinations (queues
-     * and topics) from the activeMqBrokerFacade. If an exception occurs during the retrieval
-     * process, an error is logged and ActiveMQ Broker Monitoring will be disabled.
+     * Takes the first snapshot and schedules the refresh.
      */
     @PostConstruct
     public void init() {
-        try {
-            destinations.addAll(activeMqBrokerFacade.getQueues());
-            destinations.addAll(activeMqBrokerFacade.getTopics());
-        } catch (Exception e) {
-            LOGGER.error(
-                "Error while getting destinations from brokerFacade. ActiveMQ Broker Monitoring "
-                    + "will not work!",
-                e
-            );
+        refresh();
+        long interval = configurationProperties.getStatisticsRefreshInterval().toMillis();
+        if (interval <= 0) {
+            return;
         }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "activemq-statistics-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refresh, interval, interval, TimeUnit.MILLISECONDS);
     }
 
     /**
-     * Retrieves detailed information about each destination (queues and topics) managed by the
-     * ActiveMQ Broker.
+     * Stops the refresh.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the destinations (queues and topics) currently known by the
+     * {@link DestinationRegistry}.
      *
-     * @return a list of {@code DestinationInfo} objects containing detailed information about each
-     *      destination.
+     * @return the proxies of the destinations
      */
-    public List<DestinationInfo> getDestinationInfos() {
-        return destinations.stream()
-                           .map(this::mapToQueueInfo)
-                           .toList();
+    public List<DestinationViewMBean> getDestinations() {
+        return List.copyOf(destinationRegistry.getDestinations().values());
     }
 
-    private DestinationInfo mapToQueueInfo(DestinationViewMBean dst) {
-        var info = new DestinationInfo();
-        info.setName(dst.getName());
+    public DestinationStatisticsSnapshot getSnapshot() {
+        return snapshot;
+    }
 
-        info.setQueueSize(dst.getQueueSize());
+    /**
+     * Returns the latest snapshot if it is not outdated.
+     *
+     * @return the latest snapshot or an empty snapshot if it is outdated
+     */
+    public DestinationStatisticsSnapshot getCurrentSnapshot() {
+        var current = getSnapshot();
+        return isOutdated(current.timestamp()) ? DestinationStatisticsSnapshot.EMPTY : current;
+    }
+
+    /**
+     * Checks if statistics read at the given time are older than the maximum statistics age.
+     *
+     * @param timestamp the time the statistics have been read, may be null
+     * @return true if the statistics are outdated or have never been read
+     */
+    public boolean isOutdated(Instant timestamp) {
+        if (timestamp == null) {
+            return true;
+        }
+        var maxAge = getMaxStatisticsAge();
+        return maxAge != null && timestamp.plus(maxAge).isBefore(clock.instant());
+    }
 
-        if (dst instanceof TopicViewMBean) {
-            info.setType(DestinationInfo.DestinationType.TOPIC);
-        } else if (dst instanceof QueueViewMBean) {
-            info.setType(DestinationInfo.DestinationType.QUEUE);
-        } else {
-            info.setType(DestinationInfo.DestinationType.NOT_KNOWN);
+    /**
+     * Returns the maximum statistics age.
+     *
+     * @return the maximum age, null if the statistics are not refreshed periodically and no
+     *      maximum age is configured
+     */
+    public Duration getMaxStatisticsAge() {
+        if (configurationProperties.getMaxStatisticsAge() != null) {
+            return configurationProperties.getMaxStatisticsAge();
         }
+        var interval = configurationProperties.getStatisticsRefreshInterval();
+        return interval.isPositive() ? interval.multipliedBy(3) : null;
+    }
 
-        info.setDequeueCount(dst.getDequeueCount());
-        info.setDispatchCount(dst.getDispatchCount());
-        info.setEnqueueCount(dst.getEnqueueCount());
-        info.setMaxEnqueueTime(dst.getMaxEnqueueTime());
-        info.setStoreMessageSize(dst.getStoreMessageSize());
-        info.setMemoryLimit(dst.getMemoryLimit());
-        info.setTempUsageLimit(dst.getTempUsageLimit());
-        info.setMaxPageSize(dst.getMaxPageSize());
+    /**
+     * Retrieves detailed information about each destination (queues and topics) managed by the
+     * ActiveMQ Broker from the latest snapshot. Like the health and the metrics nothing is reported
+     * once the snapshot is outdated.
+     *
+     * @return a list of {@code DestinationInfo} objects containing detailed information about each
+     *      destination, empty if the snapshot is outdated.
+     */
+    public List<DestinationInfo> getDestinationInfos() {
+        return getCurrentSnapshot().getDestinationInfos();
+    }
+
+    /**
+     * Takes a new snapshot, so new destinations are reported without waiting for the next refresh.
+     *
+     * @param event the changed destinations
+     */
+    @EventListener
+    public void onDestinationsChanged(DestinationsChangedEvent event) {
+        refresh();
+    }
 
-        return info;
+    /**
+     * Reads the statistics of all destinations into a new snapshot. The statistics of a
+     * destination are read with a single JMX call by the {@link DestinationStatisticsCollector}.
+     */
+    public synchronized void refresh() {
+        try {
+            var now = clock.instant();
+            var broker = destinationRegistry.getBroker();
+            snapshot = new DestinationStatisticsSnapshot(
+                now,
+                broker == null ? null : destinationStatisticsCollector.collectBroker(broker),
+                destinationStatisticsCollector.collect(
+                    destinationRegistry.getDestinations().keySet())
+            );
+            if (eventPublisher != null) {
+                eventPublisher.publishEvent(
+                    new DestinationStatisticsRefreshedEvent(this, snapshot));
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Cannot read the statistics of the destinations", e);
+            brokerJmxConnection.reset();
+        }
     }
 }
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.service;
+
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqEndpointConfigurationProperties;
+import eu.ecodex.utils.monitor.activemq.dto.BrokerInfo;
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.Attribute;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Reads the statistics of destinations with a single JMX call per destination.
+ *
+ * <p>All attributes of a {@link DestinationInfo} are fetched with
+ * {@link MBeanServerConnection#getAttributes(ObjectName, String[])} instead of one call per
+ * getter of the MBean proxy, the usage of the broker limits with a single call as well. Over a
+ * remote connection the destinations are read in parallel by up to
+ * {@code monitor.activemq.jmx-parallelism} threads. A destination which has been deleted in the
+ * meantime is skipped.
+ */
+public class DestinationStatisticsCollector {
+    private static final Logger LOGGER =
+        LoggerFactory.getLogger(DestinationStatisticsCollector.class);
+    static final String[] ATTRIBUTES = {
+        "Name", "QueueSize", "EnqueueCount", "DispatchCount", "DequeueCount", "StoreMessageSize",
+        "MemoryLimit", "MaxEnqueueTime", "TempUsageLimit", "MaxPageSize", "MemoryPercentUsage",
+        "TempUsagePercentUsage"
+    };
+    static final String[] BROKER_ATTRIBUTES = {
+        "BrokerName", "MemoryPercentUsage", "StorePercentUsage", "TempPercentUsage", "StoreLimit"
+    };
+    @Autowired
+    ActiveMqEndpointConfigurationProperties configurationProperties;
+    @Autowired
+    BrokerJmxConnection brokerJmxConnection;
+    private ExecutorService executor;
+
+    /**
+     * Starts the threads reading from a remote connection.
+     */
+    @PostConstruct
+    public void init() {
+        if (configurationProperties.getJmxParallelism() <= 1) {
+            return;
+        }
+        var threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(configurationProperties.getJmxParallelism(), r -> {
+            var thread = new Thread(r, "activemq-statistics-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Stops the threads reading from a remote connection.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the statistics of the destinations.
+     *
+     * @param names the object names of the destinations
+     * @return the statistics by object name in the order of the names, without the destinations
+     *      which no longer exist
+     * @throws IOException if the connection to the broker failed
+     */
+    public Map<ObjectName, DestinationInfo> collect(Collection<ObjectName> names)
+        throws IOException {
+        var connection = brokerJmxConnection.getConnection();
+        Map<ObjectName, DestinationInfo> infos = new LinkedHashMap<>();
+        if (executor == null || connection instanceof MBeanServer) {
+            for (ObjectName name : names) {
+                var info = collect(connection, name);
+                if (info != null) {
+                    infos.put(name, info);
+                }
+            }
+            return infos;
+        }
+
+        Map<ObjectName, CompletableFuture<DestinationInfo>> futures = new LinkedHashMap<>();
+        for (ObjectName name : names) {
+            futures.put(name, CompletableFuture.supplyAsync(
+                () -> collectUnchecked(connection, name), executor));
+        }
+        try {
+            futures.forEach((name, future) -> {
+                var info = future.join();
+                if (info != null) {
+                    infos.put(name, info);
+                }
+            });
+        } catch (CompletionException e) {
+            futures.values().forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof UncheckedIOException ioException) {
+                throw ioException.getCause();
+            }
+            throw e;
+        }
+        return infos;
+    }
+
+    /**
+     * Reads the usage of the broker limits with a single JMX call.
+     *
+     * @param name the object name of the broker
+     * @return the usage or null if the broker no longer exists
+     * @throws IOException if the connection to the broker failed
+     */
+    public BrokerInfo collectBroker(ObjectName name) throws IOException {
+        List<Attribute> attributes;
+        try {
+            attributes = brokerJmxConnection.getConnection()
+                                            .getAttributes(name, BROKER_ATTRIBUTES).asList();
+        } catch (JMException e) {
+            LOGGER.debug("Cannot read broker [{}]", name, e);
+            return null;
+        }
+
+        var info = new BrokerInfo();
+        for (Attribute attribute : attributes) {
+            switch (attribute.getName()) {
+                case "BrokerName" -> info.setName((String) attribute.getValue());
+                case "MemoryPercentUsage" -> info.setMemoryPercentUsage(intValueOf(attribute));
+                case "StorePercentUsage" -> info.setStorePercentUsage(intValueOf(attribute));
+                case "TempPercentUsage" -> info.setTempPercentUsage(intValueOf(attribute));
+                case "StoreLimit" ->
+                    info.setStoreLimit(((Number) attribute.getValue()).longValue());
+                default -> LOGGER.trace("Ignoring attribute [{}]", attribute.getName());
+            }
+        }
+        return info;
+    }
+
+    private static int intValueOf(Attribute attribute) {
+        return ((Number) attribute.getValue()).intValue();
+    }
+
+    private DestinationInfo collectUnchecked(MBeanServerConnection connection, ObjectName name) {
+        try {
+            return collect(connection, name);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private DestinationInfo collect(MBeanServerConnection connection, ObjectName name)
+        throws IOException {
+        List<Attribute> attributes;
+        try {
+            attributes = connection.getAttributes(name, ATTRIBUTES).asList();
+        } catch (JMException e) {
+            LOGGER.debug("Cannot read destination [{}], skipping it", name, e);
+            return null;
+        }
+
+        var info = new DestinationInfo();
+        info.setType(typeOf(name));
+        for (Attribute attribute : attributes) {
+            if ("Name".equals(attribute.getName())) {
+                info.setName((String) attribute.getValue());
+                continue;
+            }
+            long value = ((Number) attribute.getValue()).longValue();
+            switch (attribute.getName()) {
+                case "QueueSize" -> info.setQueueSize(value);
+                case "EnqueueCount" -> info.setEnqueueCount(value);
+                case "DispatchCount" -> info.setDispatchCount(value);
+                case "DequeueCount" -> info.setDequeueCount(value);
+                case "StoreMessageSize" -> info.setStoreMessageSize(value);
+                case "MemoryLimit" -> info.setMemoryLimit(value);
+                case "MaxEnqueueTime" -> info.setMaxEnqueueTime(value);
+                case "TempUsageLimit" -> info.setTempUsageLimit(value);
+                case "MaxPageSize" -> info.setMaxPageSize(value);
+                case "MemoryPercentUsage" -> info.setMemoryPercentUsage((int) value);
+                case "TempUsagePercentUsage" -> info.setTempUsagePercentUsage((int) value);
+                default -> LOGGER.trace("Ignoring attribute [{}]", attribute.getName());
+            }
+        }
+        return info;
+    }
+
+    private static DestinationInfo.DestinationType typeOf(ObjectName name) {
+        return switch (DestinationRegistry.destinationTypeOf(name)) {
+            case "Queue" -> DestinationInfo.DestinationType.QUEUE;
+            case "Topic" -> DestinationInfo.DestinationType.TOPIC;
+            case null, default -> DestinationInfo.DestinationType.NOT_KNOWN;
+        };
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.service;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published by the {@link DestinationService} after a new statistics snapshot has been taken.
+ */
+public class DestinationStatisticsRefreshedEvent extends ApplicationEvent {
+    private final transient DestinationStatisticsSnapshot snapshot;
+
+    public DestinationStatisticsRefreshedEvent(
+        Object source, DestinationStatisticsSnapshot snapshot) {
+        super(source);
+        this.snapshot = snapshot;
+    }
+
+    public DestinationStatisticsSnapshot getSnapshot() {
+        return snapshot;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.service;
+
+import eu.ecodex.utils.monitor.activemq.dto.BrokerInfo;
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.management.ObjectName;
+
+/**
+ * The statistics of all destinations read at the same time.
+ *
+ * <p>A snapshot is never changed after it has been taken, the {@link DestinationInfo} instances
+ * must not be modified by the readers.
+ *
+ * @param timestamp    the time the statistics have been read, null if no statistics have been
+ *                     read yet
+ * @param broker       the usage of the broker limits, null if not known
+ * @param destinations the statistics of the destinations by object name
+ */
+public record DestinationStatisticsSnapshot(
+    Instant timestamp, BrokerInfo broker, Map<ObjectName, DestinationInfo> destinations) {
+    static final DestinationStatisticsSnapshot EMPTY =
+        new DestinationStatisticsSnapshot(null, null, Map.of());
+
+    /**
+     * Creates the snapshot.
+     *
+     * @param timestamp    the time the statistics have been read
+     * @param broker       the usage of the broker limits, null if not known
+     * @param destinations the statistics of the destinations by object name
+     */
+    public DestinationStatisticsSnapshot {
+        destinations = Collections.unmodifiableMap(new LinkedHashMap<>(destinations));
+    }
+
+    /**
+     * Returns the statistics of a destination.
+     *
+     * @param name the object name of the destination
+     * @return the statistics or null if the destination is not part of the snapshot
+     */
+    public DestinationInfo get(ObjectName name) {
+        return destinations.get(name);
+    }
+
+    public List<DestinationInfo> getDestinationInfos() {
+        return List.copyOf(destinations.values());
+    }
+}
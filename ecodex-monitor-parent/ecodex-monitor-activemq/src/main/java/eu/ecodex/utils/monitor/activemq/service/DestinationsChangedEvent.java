@@ -0,0 +1,48 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.service;
+
+import java.util.Map;
+import javax.management.ObjectName;
+import org.apache.activemq.broker.jmx.DestinationViewMBean;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published by the {@link DestinationRegistry} when destinations have been created on or deleted
+ * from the broker.
+ */
+public class DestinationsChangedEvent extends ApplicationEvent {
+    private final transient Map<ObjectName, DestinationViewMBean> added;
+    private final transient Map<ObjectName, DestinationViewMBean> removed;
+
+    /**
+     * Creates the event.
+     *
+     * @param source  the registry which detected the change
+     * @param added   the new destinations
+     * @param removed the destinations which no longer exist, their proxies must not be used anymore
+     */
+    public DestinationsChangedEvent(
+        Object source, Map<ObjectName, DestinationViewMBean> added,
+        Map<ObjectName, DestinationViewMBean> removed) {
+        super(source);
+        this.added = added;
+        this.removed = removed;
+    }
+
+    public Map<ObjectName, DestinationViewMBean> getAdded() {
+        return added;
+    }
+
+    public Map<ObjectName, DestinationViewMBean> getRemoved() {
+        return removed;
+    }
+}
@@ -0,0 +1,207 @@
+package eu.ecodex.utils.monitor.activemq.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqEndpointConfigurationProperties;
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqHealthChecksConfigurationProperties;
+import eu.ecodex.utils.monitor.activemq.dto.BrokerInfo;
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+class ActiveMqHealthServiceTest {
+    ActiveMqHealthChecksConfigurationProperties config;
+    BrokerInfo broker;
+    Map<ObjectName, DestinationInfo> destinations = new LinkedHashMap<>();
+    DestinationStatisticsSnapshot snapshot;
+    ActiveMqHealthService healthService;
+
+    @BeforeEach
+    void beforeEach() {
+        config = new ActiveMqHealthChecksConfigurationProperties();
+        broker = new BrokerInfo();
+        broker.setName("localhost");
+        broker.setStoreLimit(1000);
+
+        healthService = new ActiveMqHealthService();
+        healthService.config = config;
+        healthService.destinationService = new DestinationService() {
+            @Override
+            public DestinationStatisticsSnapshot getSnapshot() {
+                return snapshot;
+            }
+        };
+        healthService.destinationService.configurationProperties =
+            new ActiveMqEndpointConfigurationProperties();
+    }
+
+    @Test
+    void health_noSnapshot_isUnknown() {
+        snapshot = DestinationStatisticsSnapshot.EMPTY;
+
+        assertThat(healthService.health().getStatus()).isEqualTo(Status.UNKNOWN);
+    }
+
+    @Test
+    void health_outdatedSnapshot_isDown() throws Exception {
+        addDestination("ok", 10, 0, 0);
+        snapshot = new DestinationStatisticsSnapshot(
+            Instant.now().minus(Duration.ofMinutes(1)), broker, destinations);
+
+        var health = healthService.health();
+
+        assertThat(health.getStatus()).isEqualTo(Status.DOWN);
+        assertThat(health.getDetails()).containsKey("reason")
+                                       .doesNotContainKey("queue://ok_usage_state");
+    }
+
+    @Test
+    void health_memoryUsage() throws Exception {
+        addDestination("ok", 59, 0, 0);
+        addDestination("warn", 70, 0, 0);
+
+        var health = health();
+
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(health.getDetails())
+            .containsEntry("queue://ok_usage_memory", 59)
+            .containsEntry("queue://ok_usage_state", "OK")
+            .containsEntry("queue://warn_usage_state", "WARN");
+    }
+
+    @Test
+    void health_storeAndTempUsage() throws Exception {
+        addDestination("store", 0, 850, 0);
+        addDestination("temp", 0, 0, 65);
+
+        var health = health();
+
+        assertThat(health.getStatus()).isEqualTo(Status.DOWN);
+        assertThat(health.getDetails())
+            .containsEntry("queue://store_usage_store", 85)
+            .containsEntry("queue://store_usage_state", "DOWN")
+            .containsEntry("queue://temp_usage_state", "WARN");
+    }
+
+    @Test
+    void health_brokerUsage() {
+        broker.setStorePercentUsage(90);
+
+        var health = health();
+
+        assertThat(health.getStatus()).isEqualTo(Status.DOWN);
+        assertThat(health.getDetails()).containsEntry("broker_localhost_usage_state", "DOWN");
+    }
+
+    @Test
+    void health_destinationPattern() throws Exception {
+        var thresholds = new ActiveMqHealthChecksConfigurationProperties.DestinationThresholds();
+        thresholds.setPattern("bulk.>");
+        thresholds.setWarn(0.9f);
+        thresholds.setError(0.95f);
+        config.setDestinations(List.of(thresholds));
+        addDestination("bulk.in", 85, 0, 0);
+        addDestination("orders", 85, 0, 0);
+
+        var health = health();
+
+        assertThat(health.getDetails())
+            .containsEntry("queue://bulk.in_usage_state", "OK")
+            .containsEntry("queue://bulk.in_usage_warn", 0.9f)
+            .containsEntry("queue://orders_usage_state", "DOWN");
+    }
+
+    @Test
+    void health_destinationPatternWithType_onlyMatchesThatType() throws Exception {
+        var missingPattern =
+            new ActiveMqHealthChecksConfigurationProperties.DestinationThresholds();
+        var topics = new ActiveMqHealthChecksConfigurationProperties.DestinationThresholds();
+        topics.setPattern("topic://events.>");
+        topics.setWarn(0.9f);
+        topics.setError(0.95f);
+        config.setDestinations(List.of(missingPattern, topics));
+        healthService.init();
+        addDestination(DestinationInfo.DestinationType.TOPIC, "events.in", 85, 0, 0);
+        addDestination("events.out", 85, 0, 0);
+
+        var health = health();
+
+        assertThat(health.getDetails())
+            .containsEntry("topic://events.in_usage_state", "OK")
+            .containsEntry("queue://events.out_usage_state", "DOWN");
+    }
+
+    @Test
+    void health_hysteresis() throws Exception {
+        var destination = addDestination("orders", 80, 0, 0);
+        assertThat(health().getDetails()).containsEntry("queue://orders_usage_state", "DOWN");
+
+        destination.setMemoryPercentUsage(77);
+        assertThat(health().getDetails()).containsEntry("queue://orders_usage_state", "DOWN");
+
+        destination.setMemoryPercentUsage(74);
+        assertThat(health().getDetails()).containsEntry("queue://orders_usage_state", "WARN");
+
+        destination.setMemoryPercentUsage(56);
+        assertThat(health().getDetails()).containsEntry("queue://orders_usage_state", "WARN");
+
+        destination.setMemoryPercentUsage(54);
+        assertThat(health().getDetails()).containsEntry("queue://orders_usage_state", "OK");
+    }
+
+    @Test
+    void health_queueAndTopicWithSameName_haveTheirOwnState() throws Exception {
+        var topic = addDestination(DestinationInfo.DestinationType.TOPIC, "orders", 85, 0, 0);
+        var queue = addDestination("orders", 10, 0, 0);
+        assertThat(health().getDetails())
+            .containsEntry("topic://orders_usage_state", "DOWN")
+            .containsEntry("topic://orders_usage_memory", 85)
+            .containsEntry("queue://orders_usage_state", "OK")
+            .containsEntry("queue://orders_usage_memory", 10);
+
+        topic.setMemoryPercentUsage(10);
+        // the queue must not be kept in DOWN by the previous state of the topic
+        queue.setMemoryPercentUsage(77);
+
+        assertThat(health().getDetails())
+            .containsEntry("topic://orders_usage_state", "OK")
+            .containsEntry("queue://orders_usage_state", "WARN");
+    }
+
+    private Health health() {
+        snapshot = new DestinationStatisticsSnapshot(Instant.now(), broker, destinations);
+        return healthService.health();
+    }
+
+    private DestinationInfo addDestination(
+        String name, int memoryPercentUsage, long storeMessageSize, int tempPercentUsage)
+        throws Exception {
+        return addDestination(
+            DestinationInfo.DestinationType.QUEUE, name, memoryPercentUsage, storeMessageSize,
+            tempPercentUsage
+        );
+    }
+
+    private DestinationInfo addDestination(
+        DestinationInfo.DestinationType type, String name, int memoryPercentUsage,
+        long storeMessageSize, int tempPercentUsage) throws Exception {
+        var info = new DestinationInfo();
+        info.setName(name);
+        info.setType(type);
+        info.setMemoryPercentUsage(memoryPercentUsage);
+        info.setStoreMessageSize(storeMessageSize);
+        info.setTempUsagePercentUsage(tempPercentUsage);
+        destinations.put(new ObjectName("org.apache.activemq:type=Broker,destinationType="
+                                            + type + ",destinationName="
+                                            + ObjectName.quote(name)), info);
+        return info;
+    }
+}
@@ -0,0 +1,163 @@
+package eu.ecodex.utils.monitor.activemq.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqEndpointConfigurationProperties;
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqMetricConfigurationProperties;
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.management.ObjectName;
+import org.apache.activemq.broker.jmx.DestinationViewMBean;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ActiveMqMetricServiceTest {
+    static final String PREFIX = "activemq.destinations.orders.";
+    ObjectName queue;
+    Map<ObjectName, DestinationViewMBean> destinations = new LinkedHashMap<>();
+    DestinationStatisticsSnapshot snapshot = DestinationStatisticsSnapshot.EMPTY;
+    SimpleMeterRegistry meterRegistry;
+    DestinationRates rates;
+    ActiveMqMetricService metricService;
+
+    @BeforeEach
+    void beforeEach() throws Exception {
+        queue = new ObjectName(
+            "org.apache.activemq:type=Broker,brokerName=localhost,destinationType=Queue,"
+                + "destinationName=orders");
+        var destination = mock(DestinationViewMBean.class);
+        when(destination.getName()).thenReturn("orders");
+        destinations.put(queue, destination);
+
+        var registry = new DestinationRegistry() {
+            @Override
+            public Map<ObjectName, DestinationViewMBean> getDestinations() {
+                return destinations;
+            }
+        };
+        var destinationService = new DestinationService() {
+            @Override
+            public DestinationStatisticsSnapshot getSnapshot() {
+                return snapshot;
+            }
+        };
+        destinationService.configurationProperties = new ActiveMqEndpointConfigurationProperties();
+        var metricConfig = new ActiveMqMetricConfigurationProperties();
+        metricConfig.setRateWindows(List.of(Duration.ofMinutes(1), Duration.ofMinutes(5)));
+        rates = new DestinationRates();
+        rates.config = metricConfig;
+        rates.destinationService = destinationService;
+
+        meterRegistry = new SimpleMeterRegistry();
+        metricService = new ActiveMqMetricService();
+        metricService.destinationRegistry = registry;
+        metricService.destinationService = destinationService;
+        metricService.destinationRates = rates;
+        metricService.meterRegistry = meterRegistry;
+        metricService.init();
+    }
+
+    @Test
+    void init_registersMetersOfTheDestinations() {
+        var now = Instant.now();
+        addSnapshot(now.minusSeconds(60), 100, 80);
+        addSnapshot(now, 160, 110);
+
+        assertThat(meterRegistry.get(PREFIX + "queueSize").gauge().value()).isEqualTo(50.0);
+        assertThat(meterRegistry.get(PREFIX + "enqueueCount").functionCounter().count())
+            .isEqualTo(160.0);
+        assertThat(meterRegistry.get(PREFIX + "enqueueRate").tag("window", "1m").gauge().value())
+            .isEqualTo(1.0);
+        assertThat(meterRegistry.get(PREFIX + "consumerLag").tag("window", "5m").gauge().value())
+            .isEqualTo(0.5);
+        assertThat(meterRegistry.get(PREFIX + "timeToDrain").tag("window", "1m").timeGauge()
+                                .value(TimeUnit.SECONDS)).isInfinite();
+        assertThat(meterRegistry.get(PREFIX + "enqueueRate").gauges()).hasSize(2);
+    }
+
+    @Test
+    void meters_outdatedStatistics_areNotANumber() {
+        var past = Instant.now().minus(Duration.ofMinutes(10));
+        addSnapshot(past.minusSeconds(60), 100, 80);
+        addSnapshot(past, 160, 110);
+
+        assertThat(meterRegistry.get(PREFIX + "queueSize").gauge().value()).isNaN();
+        assertThat(meterRegistry.get(PREFIX + "enqueueRate").tag("window", "1m").gauge().value())
+            .isNaN();
+    }
+
+    @Test
+    void onDestinationsChanged_removesMetersOfDeletedDestinations() {
+        var removed = Map.copyOf(destinations);
+        assertThat(meterRegistry.find(PREFIX + "queueSize").gauge()).isNotNull();
+
+        metricService.onDestinationsChanged(
+            new DestinationsChangedEvent(this, Map.of(), removed));
+
+        assertThat(meterRegistry.getMeters()).isEmpty();
+
+        metricService.onDestinationsChanged(
+            new DestinationsChangedEvent(this, removed, Map.of()));
+
+        assertThat(meterRegistry.find(PREFIX + "queueSize").gauge()).isNotNull();
+        assertThat(meterRegistry.find(PREFIX + "dequeueCount").functionCounter()).isNotNull();
+        assertThat(meterRegistry.find(PREFIX + "timeToDrain").timeGauges()).hasSize(2);
+    }
+
+    @Test
+    void meters_queueAndTopicWithSameName_areTaggedWithTheDestinationType() throws Exception {
+        var topic = new ObjectName(
+            "org.apache.activemq:type=Broker,brokerName=localhost,destinationType=Topic,"
+                + "destinationName=orders");
+        var topicDestination = mock(DestinationViewMBean.class);
+        when(topicDestination.getName()).thenReturn("orders");
+        metricService.onDestinationsChanged(
+            new DestinationsChangedEvent(this, Map.of(topic, topicDestination), Map.of()));
+
+        var topicInfo = new DestinationInfo();
+        topicInfo.setName("orders");
+        topicInfo.setType(DestinationInfo.DestinationType.TOPIC);
+        topicInfo.setQueueSize(7);
+        addSnapshot(Instant.now(), 160, 110);
+        var infos = new LinkedHashMap<>(snapshot.destinations());
+        infos.put(topic, topicInfo);
+        snapshot = new DestinationStatisticsSnapshot(Instant.now(), null, infos);
+
+        assertThat(meterRegistry.get(PREFIX + "queueSize").gauges()).hasSize(2);
+        assertThat(meterRegistry.get(PREFIX + "queueSize").tag("destinationType", "queue")
+                                .gauge().value()).isEqualTo(50.0);
+        assertThat(meterRegistry.get(PREFIX + "queueSize").tag("destinationType", "topic")
+                                .gauge().value()).isEqualTo(7.0);
+        assertThat(meterRegistry.get(PREFIX + "enqueueRate").tag("destinationType", "topic")
+                                .gauges()).hasSize(2);
+
+        metricService.onDestinationsChanged(
+            new DestinationsChangedEvent(this, Map.of(), Map.of(topic, topicDestination)));
+
+        assertThat(meterRegistry.find(PREFIX + "queueSize").tag("destinationType", "topic")
+                                .gauge()).isNull();
+        assertThat(meterRegistry.get(PREFIX + "queueSize").tag("destinationType", "queue")
+                                .gauge().value()).isEqualTo(50.0);
+        assertThat(meterRegistry.find(PREFIX + "dequeueCount").functionCounters()).hasSize(1);
+    }
+
+    private void addSnapshot(Instant timestamp, long enqueueCount, long dequeueCount) {
+        var info = new DestinationInfo();
+        info.setName("orders");
+        info.setType(DestinationInfo.DestinationType.QUEUE);
+        info.setEnqueueCount(enqueueCount);
+        info.setDequeueCount(dequeueCount);
+        info.setDispatchCount(dequeueCount);
+        info.setQueueSize(enqueueCount - dequeueCount);
+        snapshot = new DestinationStatisticsSnapshot(timestamp, null, Map.of(queue, info));
+        rates.add(snapshot);
+    }
+}
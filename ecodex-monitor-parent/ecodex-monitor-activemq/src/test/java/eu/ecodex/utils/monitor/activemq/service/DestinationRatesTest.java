@@ -0,0 +1,110 @@
+package eu.ecodex.utils.monitor.activemq.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqMetricConfigurationProperties;
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DestinationRatesTest {
+    static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+    static final Duration MINUTE = Duration.ofMinutes(1);
+    static final Duration FIVE_MINUTES = Duration.ofMinutes(5);
+    ObjectName queue;
+    DestinationRates rates;
+
+    @BeforeEach
+    void beforeEach() throws Exception {
+        queue = new ObjectName(
+            "org.apache.activemq:type=Broker,brokerName=localhost,destinationType=Queue,"
+                + "destinationName=rates");
+        var config = new ActiveMqMetricConfigurationProperties();
+        config.setRateWindows(List.of(MINUTE, FIVE_MINUTES));
+        rates = new DestinationRates();
+        rates.config = config;
+    }
+
+    @Test
+    void get_singleSnapshot_isUnknown() {
+        rates.add(snapshot(0, 100, 100, 0));
+
+        assertThat(rates.get(queue, MINUTE).enqueueRate()).isNaN();
+        assertThat(rates.get(queue, MINUTE).timeToDrain()).isZero();
+    }
+
+    @Test
+    void get_ratesOverTheWindow() {
+        rates.add(snapshot(0, 100, 100, 0));
+        rates.add(snapshot(10, 200, 150, 50));
+
+        var rate = rates.get(queue, MINUTE);
+
+        assertThat(rate.enqueueRate()).isEqualTo(10.0);
+        assertThat(rate.dequeueRate()).isEqualTo(5.0);
+        assertThat(rate.dispatchRate()).isEqualTo(5.0);
+        assertThat(rate.consumerLag()).isEqualTo(5.0);
+        assertThat(rate.timeToDrain()).isInfinite();
+    }
+
+    @Test
+    void get_olderSnapshotsLeaveTheWindow() {
+        rates.add(snapshot(0, 0, 0, 0));
+        rates.add(snapshot(30, 3000, 3000, 0));
+        rates.add(snapshot(60, 3000, 3000, 0));
+        rates.add(snapshot(90, 3300, 3600, 100));
+
+        var rate = rates.get(queue, MINUTE);
+
+        assertThat(rate.enqueueRate()).isEqualTo(5.0);
+        assertThat(rate.dequeueRate()).isEqualTo(10.0);
+        assertThat(rate.timeToDrain()).isCloseTo(20.0, within(0.001));
+    }
+
+    @Test
+    void get_eachWindowHasItsOwnBase() {
+        rates.add(snapshot(0, 0, 0, 0));
+        rates.add(snapshot(240, 2400, 2400, 0));
+        rates.add(snapshot(300, 6000, 3000, 0));
+
+        assertThat(rates.get(queue, MINUTE).enqueueRate()).isEqualTo(60.0);
+        assertThat(rates.get(queue, FIVE_MINUTES).enqueueRate()).isEqualTo(20.0);
+        assertThat(rates.get(queue, FIVE_MINUTES).dequeueRate()).isEqualTo(10.0);
+    }
+
+    @Test
+    void get_counterReset_isUnknown() {
+        rates.add(snapshot(0, 1000, 1000, 0));
+        rates.add(snapshot(10, 5, 5, 0));
+
+        assertThat(rates.get(queue, MINUTE).enqueueRate()).isNaN();
+        assertThat(rates.get(queue, MINUTE).timeToDrain()).isZero();
+    }
+
+    @Test
+    void get_unknownDestination_isUnknown() throws Exception {
+        rates.add(snapshot(0, 0, 0, 0));
+        rates.add(snapshot(10, 10, 10, 0));
+
+        var broker = new ObjectName("org.apache.activemq:type=Broker");
+        assertThat(rates.get(broker, MINUTE).dequeueRate()).isNaN();
+    }
+
+    private DestinationStatisticsSnapshot snapshot(
+        long second, long enqueueCount, long dequeueCount, long queueSize) {
+        var info = new DestinationInfo();
+        info.setName("rates");
+        info.setEnqueueCount(enqueueCount);
+        info.setDequeueCount(dequeueCount);
+        info.setDispatchCount(dequeueCount);
+        info.setQueueSize(queueSize);
+        return new DestinationStatisticsSnapshot(
+            START.plusSeconds(second), null, Map.of(queue, info));
+    }
+}
@@ -0,0 +1,104 @@
+package eu.ecodex.utils.monitor.activemq.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqEndpointConfigurationProperties;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.management.ObjectName;
+import org.apache.activemq.broker.BrokerService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DestinationRegistryTest {
+    static BrokerService broker;
+
+    List<DestinationsChangedEvent> events = new ArrayList<>();
+    DestinationRegistry registry;
+
+    @BeforeAll
+    static void startBroker() throws Exception {
+        broker = new BrokerService();
+        broker.setBrokerName("registry-test");
+        broker.setPersistent(false);
+        broker.setAdvisorySupport(false);
+        broker.getManagementContext().setCreateConnector(false);
+        broker.start();
+        broker.waitUntilStarted();
+    }
+
+    @AfterAll
+    static void stopBroker() throws Exception {
+        broker.stop();
+    }
+
+    @BeforeEach
+    void beforeEach() {
+        var config = new ActiveMqEndpointConfigurationProperties();
+        config.setBrokerName("registry-test");
+        config.setDestinationRefreshInterval(Duration.ZERO);
+        var connection = new BrokerJmxConnection();
+        connection.configurationProperties = config;
+
+        registry = new DestinationRegistry();
+        registry.configurationProperties = config;
+        registry.brokerJmxConnection = connection;
+        registry.eventPublisher = event -> events.add((DestinationsChangedEvent) event);
+    }
+
+    @Test
+    void refresh_createdQueue_isAdded() throws Exception {
+        registry.init();
+        events.clear();
+
+        broker.getAdminView().addQueue("registry.added");
+        registry.refresh();
+
+        assertThat(namesOf(registry.getDestinations().keySet())).contains("registry.added");
+        assertThat(events).hasSize(1);
+        assertThat(namesOf(events.get(0).getAdded().keySet())).containsExactly("registry.added");
+        assertThat(events.get(0).getAdded().values().iterator().next().getQueueSize()).isZero();
+    }
+
+    @Test
+    void refresh_deletedQueue_isRemoved() throws Exception {
+        broker.getAdminView().addQueue("registry.removed");
+        registry.init();
+        events.clear();
+
+        broker.getAdminView().removeQueue("registry.removed");
+        registry.refresh();
+
+        assertThat(namesOf(registry.getDestinations().keySet()))
+            .doesNotContain("registry.removed");
+        assertThat(events).hasSize(1);
+        assertThat(namesOf(events.get(0).getRemoved().keySet()))
+            .containsExactly("registry.removed");
+    }
+
+    @Test
+    void refresh_unchanged_keepsProxies() throws Exception {
+        broker.getAdminView().addQueue("registry.unchanged");
+        registry.init();
+        var before = registry.getDestinations();
+        events.clear();
+
+        registry.refresh();
+
+        assertThat(registry.getDestinations()).containsExactlyInAnyOrderEntriesOf(before);
+        assertThat(registry.getDestinations().values())
+            .allSatisfy(proxy -> assertThat(before).containsValue(proxy));
+        assertThat(events).isEmpty();
+    }
+
+    private static Set<String> namesOf(Set<ObjectName> names) {
+        return names.stream()
+                    .map(name -> name.getKeyProperty("destinationName"))
+                    .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,146 @@
+package eu.ecodex.utils.monitor.activemq.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqEndpointConfigurationProperties;
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import javax.management.MBeanServerConnection;
+import org.apache.activemq.broker.BrokerService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DestinationServiceTest {
+    static BrokerService broker;
+
+    boolean brokerReachable = true;
+    DestinationStatisticsCollector collector;
+    DestinationService destinationService;
+
+    @BeforeAll
+    static void startBroker() throws Exception {
+        broker = new BrokerService();
+        broker.setBrokerName("snapshot-test");
+        broker.setPersistent(false);
+        broker.setAdvisorySupport(false);
+        broker.getManagementContext().setCreateConnector(false);
+        broker.start();
+        broker.waitUntilStarted();
+        broker.getAdminView().addQueue("snapshot.queue");
+    }
+
+    @AfterAll
+    static void stopBroker() throws Exception {
+        broker.stop();
+    }
+
+    @BeforeEach
+    void beforeEach() {
+        var config = new ActiveMqEndpointConfigurationProperties();
+        config.setBrokerName("snapshot-test");
+        config.setDestinationRefreshInterval(Duration.ZERO);
+        config.setStatisticsRefreshInterval(Duration.ZERO);
+        var connection = new BrokerJmxConnection() {
+            @Override
+            public synchronized MBeanServerConnection getConnection() throws IOException {
+                if (!brokerReachable) {
+                    throw new IOException("Broker is not reachable");
+                }
+                return super.getConnection();
+            }
+        };
+        connection.configurationProperties = config;
+
+        var registry = new DestinationRegistry();
+        registry.configurationProperties = config;
+        registry.brokerJmxConnection = connection;
+        registry.init();
+
+        collector = new DestinationStatisticsCollector();
+        collector.configurationProperties = config;
+        collector.brokerJmxConnection = connection;
+        collector.init();
+
+        destinationService = new DestinationService();
+        destinationService.configurationProperties = config;
+        destinationService.destinationRegistry = registry;
+        destinationService.destinationStatisticsCollector = collector;
+        destinationService.brokerJmxConnection = connection;
+        destinationService.init();
+    }
+
+    @AfterEach
+    void afterEach() {
+        destinationService.shutdown();
+        collector.shutdown();
+    }
+
+    @Test
+    void getDestinationInfos_readsSnapshotUntilRefresh() throws Exception {
+        var snapshot = destinationService.getSnapshot();
+        destinationService.getDestinations().get(0).sendTextMessage("test");
+
+        assertThat(destinationService.getSnapshot()).isSameAs(snapshot);
+        assertThat(destinationService.getDestinationInfos())
+            .extracting(DestinationInfo::getQueueSize).containsExactly(0L);
+
+        destinationService.refresh();
+
+        assertThat(destinationService.getSnapshot().timestamp())
+            .isAfterOrEqualTo(snapshot.timestamp());
+        assertThat(destinationService.getDestinationInfos())
+            .extracting(DestinationInfo::getQueueSize).containsExactly(1L);
+    }
+
+    @Test
+    void getSnapshot_containsBrokerUsage() {
+        var broker = destinationService.getSnapshot().broker();
+
+        assertThat(broker.getName()).isEqualTo("snapshot-test");
+        assertThat(broker.getStoreLimit()).isPositive();
+        assertThat(broker.getMemoryPercentUsage()).isBetween(0, 100);
+    }
+
+    @Test
+    void refresh_brokerNotReachable_keepsSnapshot() {
+        var snapshot = destinationService.getSnapshot();
+        brokerReachable = false;
+
+        destinationService.refresh();
+
+        assertThat(destinationService.getSnapshot()).isSameAs(snapshot);
+        assertThat(snapshot.getDestinationInfos()).extracting(DestinationInfo::getName)
+                                                  .containsExactly("snapshot.queue");
+    }
+
+    @Test
+    void getCurrentSnapshot_olderThanMaxStatisticsAge_isEmpty() {
+        var snapshot = destinationService.getSnapshot();
+        destinationService.configurationProperties.setMaxStatisticsAge(Duration.ofSeconds(30));
+        assertThat(destinationService.getCurrentSnapshot()).isSameAs(snapshot);
+
+        brokerReachable = false;
+        destinationService.clock = Clock.offset(Clock.systemUTC(), Duration.ofMinutes(1));
+        destinationService.refresh();
+
+        assertThat(destinationService.isOutdated(snapshot.timestamp())).isTrue();
+        assertThat(destinationService.getCurrentSnapshot().getDestinationInfos()).isEmpty();
+    }
+
+    @Test
+    void getDestinationInfos_outdatedSnapshot_isEmpty() {
+        destinationService.configurationProperties.setMaxStatisticsAge(Duration.ofSeconds(30));
+        assertThat(destinationService.getDestinationInfos()).isNotEmpty();
+
+        brokerReachable = false;
+        destinationService.clock = Clock.offset(Clock.systemUTC(), Duration.ofMinutes(1));
+        destinationService.refresh();
+
+        assertThat(destinationService.getDestinationInfos()).isEmpty();
+    }
+}
@@ -0,0 +1,142 @@
+package eu.ecodex.utils.monitor.activemq.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqEndpointConfigurationProperties;
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import org.apache.activemq.broker.BrokerService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DestinationStatisticsCollectorTest {
+    static BrokerService broker;
+
+    ActiveMqEndpointConfigurationProperties config;
+    DestinationRegistry registry;
+    DestinationStatisticsCollector collector;
+    AtomicInteger remoteCalls = new AtomicInteger();
+
+    @BeforeAll
+    static void startBroker() throws Exception {
+        broker = new BrokerService();
+        broker.setBrokerName("collector-test");
+        broker.setPersistent(false);
+        broker.setAdvisorySupport(false);
+        broker.getManagementContext().setCreateConnector(false);
+        broker.start();
+        broker.waitUntilStarted();
+        broker.getAdminView().addQueue("collector.queue");
+        broker.getAdminView().addTopic("collector.topic");
+    }
+
+    @AfterAll
+    static void stopBroker() throws Exception {
+        broker.stop();
+    }
+
+    @BeforeEach
+    void beforeEach() {
+        config = new ActiveMqEndpointConfigurationProperties();
+        config.setBrokerName("collector-test");
+        config.setDestinationRefreshInterval(Duration.ZERO);
+        var connection = new BrokerJmxConnection();
+        connection.configurationProperties = config;
+
+        registry = new DestinationRegistry();
+        registry.configurationProperties = config;
+        registry.brokerJmxConnection = connection;
+        registry.init();
+    }
+
+    @AfterEach
+    void afterEach() {
+        collector.shutdown();
+    }
+
+    @Test
+    void collect_localConnection() throws Exception {
+        sendTextMessages("collector.queue", 2);
+        collector = createCollector(registry.brokerJmxConnection);
+
+        var infos = collector.collect(registry.getDestinations().keySet()).values();
+
+        assertThat(infos).extracting(DestinationInfo::getName, DestinationInfo::getType)
+                         .containsExactlyInAnyOrder(
+                             tuple("collector.queue", DestinationInfo.DestinationType.QUEUE),
+                             tuple("collector.topic", DestinationInfo.DestinationType.TOPIC)
+                         );
+        var queue = infos.stream().filter(info -> "collector.queue".equals(info.getName()))
+                         .findFirst().orElseThrow();
+        assertThat(queue.getQueueSize()).isGreaterThanOrEqualTo(2);
+        assertThat(queue.getEnqueueCount()).isGreaterThanOrEqualTo(2);
+        assertThat(queue.getMaxPageSize()).isPositive();
+        assertThat(queue.getMemoryLimit()).isPositive();
+    }
+
+    @Test
+    void collect_remoteConnection_oneCallPerDestination() throws Exception {
+        collector = createCollector(new BrokerJmxConnection() {
+            @Override
+            public synchronized MBeanServerConnection getConnection() {
+                return countingConnection();
+            }
+        });
+        var names = new ArrayList<>(registry.getDestinations().keySet());
+        names.add(new ObjectName(
+            "org.apache.activemq:type=Broker,brokerName=collector-test,destinationType=Queue,"
+                + "destinationName=collector.deleted"));
+
+        var infos = collector.collect(names);
+
+        assertThat(infos.keySet())
+            .containsExactlyElementsOf(registry.getDestinations().keySet());
+        infos.forEach((name, info) -> assertThat(info.getName())
+            .isEqualTo(name.getKeyProperty("destinationName")));
+        assertThat(remoteCalls).hasValue(names.size());
+    }
+
+    private DestinationStatisticsCollector createCollector(BrokerJmxConnection connection) {
+        var statisticsCollector = new DestinationStatisticsCollector();
+        statisticsCollector.configurationProperties = config;
+        statisticsCollector.brokerJmxConnection = connection;
+        statisticsCollector.init();
+        return statisticsCollector;
+    }
+
+    private MBeanServerConnection countingConnection() {
+        var server = ManagementFactory.getPlatformMBeanServer();
+        return (MBeanServerConnection) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class<?>[] {MBeanServerConnection.class},
+            (proxy, method, args) -> {
+                remoteCalls.incrementAndGet();
+                try {
+                    return method.invoke(server, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        );
+    }
+
+    private void sendTextMessages(String queue, int count) throws Exception {
+        var destination = registry.getDestinations().entrySet().stream()
+                                  .filter(entry -> queue.equals(
+                                      entry.getKey().getKeyProperty("destinationName")))
+                                  .findFirst().orElseThrow().getValue();
+        for (int i = 0; i < count; i++) {
+            destination.sendTextMessage("test");
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.cert.CertIOException;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+/**
+ * Generates the keys, certificates and key stores used by the benchmarks, so no key material has
+ * to be checked in. EC keys are used because they are generated fast enough to fill trust stores
+ * with thousands of certificates.
+ */
+final class BenchmarkPki {
+    static final String PASSWORD = "benchmark";
+    static final String STORE_TYPE = "PKCS12";
+    private static final AtomicLong SERIAL = new AtomicLong(System.currentTimeMillis());
+
+    private BenchmarkPki() {
+    }
+
+    static KeyPair generateKeyPair() throws GeneralSecurityException {
+        var generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        return generator.generateKeyPair();
+    }
+
+    /**
+     * Creates a certificate valid for one day.
+     *
+     * @param issuer    the subject of the issuer, the subject itself for a self signed certificate
+     * @param issuerKey the key signing the certificate
+     * @param subject   the subject of the new certificate
+     * @param publicKey the public key of the new certificate
+     * @param ca        whether the certificate may issue other certificates
+     * @param dnsNames  the subject alternative names
+     * @return the new certificate
+     */
+    static X509Certificate createCertificate(
+        String issuer, PrivateKey issuerKey, String subject, PublicKey publicKey, boolean ca,
+        String... dnsNames) throws GeneralSecurityException {
+        var now = Instant.now();
+        var builder = new JcaX509v3CertificateBuilder(
+            new X500Name(issuer), BigInteger.valueOf(SERIAL.incrementAndGet()),
+            Date.from(now.minus(Duration.ofHours(1))), Date.from(now.plus(Duration.ofDays(1))),
+            new X500Name(subject), publicKey
+        );
+        try {
+            builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(ca));
+            if (dnsNames.length > 0) {
+                var names = new GeneralName[dnsNames.length];
+                for (int i = 0; i < dnsNames.length; i++) {
+                    names[i] = new GeneralName(GeneralName.dNSName, dnsNames[i]);
+                }
+                builder.addExtension(
+                    Extension.subjectAlternativeName, false, new GeneralNames(names));
+            }
+            var signer = new JcaContentSignerBuilder("SHA256withECDSA").build(issuerKey);
+            return new JcaX509CertificateConverter().getCertificate(builder.build(signer));
+        } catch (CertIOException | OperatorCreationException e) {
+            throw new GeneralSecurityException("Cannot create certificate " + subject, e);
+        }
+    }
+
+    static KeyStore newStore() throws GeneralSecurityException, IOException {
+        var store = KeyStore.getInstance(STORE_TYPE);
+        store.load(null, null);
+        return store;
+    }
+
+    static KeyStore keyStore(String alias, PrivateKey key, Certificate... chain)
+        throws GeneralSecurityException, IOException {
+        var store = newStore();
+        store.setKeyEntry(alias, key, PASSWORD.toCharArray(), chain);
+        return store;
+    }
+
+    static Path write(KeyStore store, Path file) throws GeneralSecurityException, IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            store.store(out, PASSWORD.toCharArray());
+        }
+        return file;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.benchmark;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the JMH command line options and always adds the {@link GCProfiler},
+ * so the allocation rate is reported next to the throughput of every benchmark.
+ *
+ * <p>Usage: {@code java -jar benchmarks.jar [JMH options] [benchmark regex]}, eg.
+ * {@code java -jar benchmarks.jar TrustStrategyBenchmark -p trustStoreSize=1000}.
+ */
+public final class BenchmarkRunner {
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * Runs the selected benchmarks.
+     *
+     * @param args the JMH command line options
+     * @throws Exception if the options are invalid or a benchmark fails
+     */
+    public static void main(String... args) throws Exception {
+        var commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList()
+            || commandLine.shouldListWithParams() || commandLine.shouldListProfilers()
+            || commandLine.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+        var options = new OptionsBuilder().parent(commandLine)
+                                          .addProfiler(GCProfiler.class)
+                                          .build();
+        new Runner(options).run();
+    }
+}
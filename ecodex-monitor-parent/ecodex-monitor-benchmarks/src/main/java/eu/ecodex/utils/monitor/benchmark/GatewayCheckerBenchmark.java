@@ -0,0 +1,198 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.benchmark;
+
+import com.sun.net.httpserver.HttpsServer;
+import eu.ecodex.utils.monitor.gw.GatewayMonitorAutoConfiguration;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import eu.ecodex.utils.monitor.gw.service.GatewaysCheckerService;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Measures a full probe of a gateway with {@link GatewaysCheckerService#refreshGatewayStatus},
+ * including the TLS handshake with client authentication and the trust store validation of the
+ * server certificate.
+ *
+ * <p>The gateway is a local HTTPS stand-in server, like the test ServerStarter of the
+ * gw-reachable module, with certificates generated at setup. The checker is configured by the
+ * {@link GatewayMonitorAutoConfiguration} just like in the monitor application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class GatewayCheckerBenchmark {
+    private static final byte[] RESPONSE = "<html><body>msh</body></html>"
+        .getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * The probe mode, see eu.ecodex.utils.monitor.gw.config.ProbeProperties.ProbeMode.
+     */
+    @Param({"GET", "HEAD", "TLS_HANDSHAKE"})
+    String mode;
+
+    Path tempDir;
+    HttpsServer server;
+    ConfigurableApplicationContext context;
+    GatewaysCheckerService checker;
+    AccessPoint accessPoint;
+
+    /**
+     * Generates the PKI, starts the stand-in gateway and the gateway monitor.
+     *
+     * @throws Exception if the setup fails
+     */
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        tempDir = Files.createTempDirectory("gw-checker-benchmark");
+
+        var caKeys = BenchmarkPki.generateKeyPair();
+        var ca = BenchmarkPki.createCertificate(
+            "CN=Benchmark CA", caKeys.getPrivate(), "CN=Benchmark CA", caKeys.getPublic(), true);
+        var serverKeys = BenchmarkPki.generateKeyPair();
+        var serverCert = BenchmarkPki.createCertificate(
+            "CN=Benchmark CA", caKeys.getPrivate(), "CN=localhost", serverKeys.getPublic(), false,
+            "localhost"
+        );
+        var clientKeys = BenchmarkPki.generateKeyPair();
+        var clientCert = BenchmarkPki.createCertificate(
+            "CN=Benchmark CA", caKeys.getPrivate(), "CN=monitor", clientKeys.getPublic(), false);
+        var trustStore = BenchmarkPki.newStore();
+        trustStore.setCertificateEntry("ca", ca);
+
+        server = startServer(
+            BenchmarkPki.keyStore("server", serverKeys.getPrivate(), serverCert, ca), trustStore);
+
+        var clientKeyStore = BenchmarkPki.write(
+            BenchmarkPki.keyStore("client", clientKeys.getPrivate(), clientCert, ca),
+            tempDir.resolve("keystore.p12")
+        );
+        var clientTrustStore = BenchmarkPki.write(trustStore, tempDir.resolve("truststore.p12"));
+        context = new SpringApplicationBuilder(GatewayMonitorAutoConfiguration.class)
+            .web(WebApplicationType.NONE)
+            .bannerMode(Banner.Mode.OFF)
+            .logStartupInfo(false)
+            .properties(
+                "logging.level.root=WARN",
+                "monitor.gw.enabled=true",
+                "monitor.gw.rest.load-pmodes=false",
+                "monitor.gw.rest.url=",
+                "monitor.gw.rest.username=admin",
+                "monitor.gw.rest.password=admin",
+                "monitor.gw.access-points.self.name=self",
+                "monitor.gw.access-points.self.endpoint=https://localhost/domibus/services/msh",
+                "monitor.gw.probe.background-refresh=false",
+                "monitor.gw.probe.mode=" + mode,
+                "monitor.gw.history.enabled=false",
+                "monitor.gw.circuit-breaker.enabled=false",
+                "monitor.gw.tls.min-tls=TLSv1.2",
+                "monitor.gw.tls.trust-store.path=" + clientTrustStore.toUri(),
+                "monitor.gw.tls.trust-store.password=" + BenchmarkPki.PASSWORD,
+                "monitor.gw.tls.trust-store.type=" + BenchmarkPki.STORE_TYPE,
+                "monitor.gw.tls.key-store.path=" + clientKeyStore.toUri(),
+                "monitor.gw.tls.key-store.password=" + BenchmarkPki.PASSWORD,
+                "monitor.gw.tls.key-store.type=" + BenchmarkPki.STORE_TYPE,
+                "monitor.gw.tls.private-key.alias=client",
+                "monitor.gw.tls.private-key.password=" + BenchmarkPki.PASSWORD
+            )
+            .run();
+        checker = context.getBean(GatewaysCheckerService.class);
+
+        accessPoint = new AccessPoint();
+        accessPoint.setName("benchmark");
+        accessPoint.setEndpoint(
+            "https://localhost:" + server.getAddress().getPort() + "/domibus/services/msh");
+        var status = checker.refreshGatewayStatus(accessPoint);
+        if (!status.getFailures().isEmpty()) {
+            throw new IllegalStateException("Stand-in gateway is not reachable: " + status);
+        }
+    }
+
+    /**
+     * Stops the gateway monitor and the stand-in gateway.
+     *
+     * @throws IOException if the generated files cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (context != null) {
+            context.close();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public AccessPointStatusDTO probe() {
+        return checker.refreshGatewayStatus(accessPoint);
+    }
+
+    private static HttpsServer startServer(KeyStore keyStore, KeyStore trustStore)
+        throws Exception {
+        var keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(keyStore, BenchmarkPki.PASSWORD.toCharArray());
+        var trustManagers =
+            TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(trustStore);
+        var sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(keyManagers.getKeyManagers(), trustManagers.getTrustManagers(), null);
+
+        var httpsServer = StandInServers.createHttpsServer(sslContext, true);
+        httpsServer.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+            } else {
+                exchange.sendResponseHeaders(200, RESPONSE.length);
+                exchange.getResponseBody().write(RESPONSE);
+            }
+            exchange.close();
+        });
+        httpsServer.start();
+        return httpsServer;
+    }
+}
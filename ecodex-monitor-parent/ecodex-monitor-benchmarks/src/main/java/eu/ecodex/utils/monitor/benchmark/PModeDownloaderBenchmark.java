@@ -0,0 +1,143 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+import eu.ecodex.configuration.pmode.Configuration;
+import eu.ecodex.configuration.pmode.reader.PModeParties;
+import eu.ecodex.configuration.pmode.reader.PModePartiesReader;
+import eu.ecodex.utils.monitor.gw.config.GatewayRestInterfaceConfiguration;
+import eu.ecodex.utils.monitor.gw.domain.AccessPointsConfiguration;
+import eu.ecodex.utils.monitor.gw.service.PModeDownloader;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.xml.stream.XMLStreamException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures loading p-mode sets with a growing number of parties.
+ *
+ * <p>A local stand-in of the gateway REST interface announces a new p-mode set id on every request,
+ * so every call downloads and reads the p-mode set again. {@link #downloadPModes()} unmarshals the
+ * complete set with JAXB, {@link #getAccessPointsConfig()} streams only the parties and
+ * {@link #readParties()} measures the streaming reader without the HTTP round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PModeDownloaderBenchmark {
+    private static final String CONTEXT_PATH = "/domibus";
+
+    @Param({"10", "100", "1000"})
+    int parties;
+
+    byte[] pmode;
+    HttpServer server;
+    PModeDownloader downloader;
+    private final AtomicInteger pmodeId = new AtomicInteger();
+
+    /**
+     * Generates the p-mode set and starts the stand-in REST interface.
+     *
+     * @throws Exception if the server cannot be started
+     */
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        pmode = createPMode(parties).getBytes(StandardCharsets.UTF_8);
+
+        server = StandInServers.createHttpServer();
+        server.createContext(CONTEXT_PATH + "/ext/pmode/", exchange -> {
+            byte[] body;
+            if (exchange.getRequestURI().getPath().endsWith("/current")) {
+                body = ("{\"id\":" + pmodeId.incrementAndGet() + "}")
+                    .getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+            } else {
+                body = pmode;
+                exchange.getResponseHeaders().add("Content-Type", "application/xml");
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+
+        var config = new GatewayRestInterfaceConfiguration();
+        config.setUrl("http://localhost:" + server.getAddress().getPort() + CONTEXT_PATH);
+        config.setUsername("admin");
+        config.setPassword("admin");
+        config.setPmodeCheckInterval(Duration.ZERO);
+        downloader = new PModeDownloader(config);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Benchmark
+    public Configuration downloadPModes() {
+        return downloader.downloadPModes();
+    }
+
+    @Benchmark
+    public AccessPointsConfiguration getAccessPointsConfig() {
+        return downloader.getAccessPointsConfig();
+    }
+
+    @Benchmark
+    public PModeParties readParties() throws XMLStreamException {
+        return PModePartiesReader.read(new ByteArrayInputStream(pmode));
+    }
+
+    static String createPMode(int parties) {
+        var xml = new StringBuilder(256 + parties * 256);
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+           .append("<db:configuration xmlns:db=\"http://domibus.eu/configuration\"")
+           .append(" party=\"gw0\">\n")
+           .append("    <businessProcesses name=\"Processes\">\n")
+           .append("        <parties>\n")
+           .append("            <partyIdTypes>\n")
+           .append("                <partyIdType name=\"partyTypeUrn\"")
+           .append(" value=\"urn:oasis:names:tc:ebcore:partyid-type:unregistered\"/>\n")
+           .append("            </partyIdTypes>\n");
+        for (int i = 0; i < parties; i++) {
+            xml.append("            <party name=\"gw").append(i)
+               .append("\" endpoint=\"https://gw").append(i)
+               .append(".example.com/domibus/services/msh\">\n")
+               .append("                <identifier partyId=\"gw").append(i)
+               .append("\" partyIdType=\"partyTypeUrn\"/>\n")
+               .append("            </party>\n");
+        }
+        xml.append("        </parties>\n")
+           .append("    </businessProcesses>\n")
+           .append("</db:configuration>\n");
+        return xml.toString();
+    }
+}
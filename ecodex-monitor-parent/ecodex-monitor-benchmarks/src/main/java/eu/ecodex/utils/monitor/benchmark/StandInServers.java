@@ -0,0 +1,57 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsParameters;
+import com.sun.net.httpserver.HttpsServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+import javax.net.ssl.SSLContext;
+
+/**
+ * Creates the local servers standing in for the gateways and their REST interface.
+ *
+ * <p>The servers listen on a random port of localhost and handle every exchange on a virtual
+ * thread. TCP_NODELAY is enabled, otherwise the delayed acknowledgement of the separately written
+ * response headers and body would dominate the measured times.
+ */
+final class StandInServers {
+    private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    private StandInServers() {
+    }
+
+    static HttpServer createHttpServer() throws IOException {
+        System.setProperty(NO_DELAY_PROPERTY, "true");
+        var server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        return server;
+    }
+
+    static HttpsServer createHttpsServer(SSLContext sslContext, boolean needClientAuth)
+        throws IOException {
+        System.setProperty(NO_DELAY_PROPERTY, "true");
+        var server = HttpsServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setHttpsConfigurator(new HttpsConfigurator(sslContext) {
+            @Override
+            public void configure(HttpsParameters params) {
+                var sslParameters = getSSLContext().getDefaultSSLParameters();
+                sslParameters.setNeedClientAuth(needClientAuth);
+                params.setSSLParameters(sslParameters);
+            }
+        });
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        return server;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.benchmark;
+
+import eu.domibus.connector.lib.spring.configuration.StoreConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.service.TrustStoreCompleteChainTrustStrategy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.io.FileSystemResource;
+
+/**
+ * Measures the chain validation of {@link TrustStoreCompleteChainTrustStrategy} with trust stores
+ * of growing size.
+ *
+ * <p>The trust store contains the root and the intermediate CA of the validated certificate and is
+ * filled up with unrelated CA certificates. {@link #validateKeyChain()} validates against the key
+ * store on every call, {@link #validateCertificate()} is the cached path used by the probes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TrustStrategyBenchmark {
+    @Param({"10", "100", "1000"})
+    int trustStoreSize;
+
+    Path trustStoreFile;
+    KeyStore trustStore;
+    X509Certificate certificate;
+    AnnotationConfigApplicationContext context;
+    TrustStoreCompleteChainTrustStrategy trustStrategy;
+
+    /**
+     * Generates the trust store and the certificate to validate.
+     *
+     * @throws Exception if the setup fails
+     */
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        var rootKeys = BenchmarkPki.generateKeyPair();
+        var root = BenchmarkPki.createCertificate(
+            "CN=Root CA", rootKeys.getPrivate(), "CN=Root CA", rootKeys.getPublic(), true);
+        var intermediateKeys = BenchmarkPki.generateKeyPair();
+        var intermediate = BenchmarkPki.createCertificate(
+            "CN=Root CA", rootKeys.getPrivate(), "CN=Intermediate CA",
+            intermediateKeys.getPublic(), true
+        );
+        certificate = BenchmarkPki.createCertificate(
+            "CN=Intermediate CA", intermediateKeys.getPrivate(), "CN=gateway",
+            BenchmarkPki.generateKeyPair().getPublic(), false, "gateway.example.com"
+        );
+
+        trustStore = BenchmarkPki.newStore();
+        trustStore.setCertificateEntry("root", root);
+        trustStore.setCertificateEntry("intermediate", intermediate);
+        for (int i = 2; i < trustStoreSize; i++) {
+            var keys = BenchmarkPki.generateKeyPair();
+            var subject = "CN=Unrelated CA " + i;
+            trustStore.setCertificateEntry("unrelated-" + i, BenchmarkPki.createCertificate(
+                subject, keys.getPrivate(), subject, keys.getPublic(), true));
+        }
+        trustStoreFile = BenchmarkPki.write(
+            trustStore, Files.createTempFile("trust-strategy-benchmark", ".p12"));
+
+        var trustStoreConfig = new StoreConfigurationProperties(
+            new FileSystemResource(trustStoreFile), BenchmarkPki.PASSWORD);
+        trustStoreConfig.setType(BenchmarkPki.STORE_TYPE);
+        var config = new GatewayMonitorConfigurationProperties();
+        config.getTls().setTrustStore(trustStoreConfig);
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(GatewayMonitorConfigurationProperties.class, () -> config);
+        context.registerBean(TrustStoreCompleteChainTrustStrategy.class);
+        context.refresh();
+        trustStrategy = context.getBean(TrustStoreCompleteChainTrustStrategy.class);
+
+        if (!trustStrategy.validateKeyChain(certificate, trustStore)) {
+            throw new IllegalStateException("Certificate chain is not valid");
+        }
+    }
+
+    /**
+     * Closes the context and deletes the trust store.
+     *
+     * @throws IOException if the trust store cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        Files.deleteIfExists(trustStoreFile);
+    }
+
+    @Benchmark
+    public boolean validateKeyChain() throws Exception {
+        return trustStrategy.validateKeyChain(certificate, trustStore);
+    }
+
+    @Benchmark
+    public boolean validateCertificate() throws Exception {
+        return trustStrategy.validateCertificate(certificate);
+    }
+}
@@ -11,10 +11,15 @@
 package eu.ecodex.utils.monitor.gw;
 
 import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.service.CertificateRegistry;
+import eu.ecodex.utils.monitor.gw.service.CertificatesEndpoint;
 import eu.ecodex.utils.monitor.gw.service.ConfiguredGatewaysService;
 import eu.ecodex.utils.monitor.gw.service.GatewayHealthIndicator;
 import eu.ecodex.utils.monitor.gw.service.GatewayReachableEndpoint;
+import eu.ecodex.utils.monitor.gw.service.MonitoringDomains;
+import eu.ecodex.utils.monitor.gw.service.MonitoringDomainsEndpoint;
 import eu.ecodex.utils.monitor.gw.service.PModeDownloader;
+import eu.ecodex.utils.monitor.gw.service.ProbeCapacity;
 import eu.ecodex.utils.monitor.gw.service.ServiceConfiguration;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -27,7 +32,8 @@ import org.springframework.context.annotation.Import;
  * GatewayMonitorAutoConfiguration provides the configuration for the Gateway Monitor module in a
  * Spring Boot application. This class sets up the necessary beans and dependencies based on the
  * application's external configuration properties. It is activated only if the property
- * 'monitor.gw.enabled' is set to true in the configuration.
+ * 'monitor.gw.enabled' is set to true in the configuration. The named monitoring domains configured
+ * under 'monitor.gw.domains' are started by the {@link MonitoringDomains}.
  */
 @Configuration
 @ConditionalOnProperty(
@@ -60,4 +66,36 @@ public class GatewayMonitorAutoConfiguration {
     public GatewayReachableEndpoint gatewayReachableEndpoint() {
         return new GatewayReachableEndpoint();
     }
+
+    @Bean
+    public ProbeCapacity probeCapacity() {
+        return new ProbeCapacity(
+            gatewayRestInterfaceConfiguration.getProbe().getTotalMaxConcurrentProbes());
+    }
+
+    @Bean
+    public ProbeCapacity.Share defaultDomainProbeCapacity(ProbeCapacity probeCapacity) {
+        return probeCapacity.share(MonitoringDomains.DEFAULT_DOMAIN);
+    }
+
+    @Bean
+    public CertificateRegistry certificateRegistry() {
+        return new CertificateRegistry(
+            gatewayRestInterfaceConfiguration.getCertificateRetention());
+    }
+
+    @Bean
+    public CertificatesEndpoint certificatesEndpoint() {
+        return new CertificatesEndpoint();
+    }
+
+    @Bean
+    public MonitoringDomains monitoringDomains() {
+        return new MonitoringDomains();
+    }
+
+    @Bean
+    public MonitoringDomainsEndpoint monitoringDomainsEndpoint() {
+        return new MonitoringDomainsEndpoint();
+    }
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.config;
+
+import java.time.Duration;
+import lombok.Data;
+
+/**
+ * Properties for configuring the circuit breaker of the gateway probes.
+ *
+ * <p>After failure-threshold failed probes in a row a gateway is not probed anymore until the
+ * backoff has passed, then a single trial probe decides if the gateway is probed normally again or
+ * if the backoff is multiplied.
+ */
+@Data
+public class CircuitBreakerProperties {
+    /**
+     * Should gateways which fail repeatedly be probed less often?.
+     */
+    private boolean enabled = true;
+    /**
+     * Number of failed probes in a row which open the circuit.
+     */
+    private int failureThreshold = 3;
+    /**
+     * How long a gateway is not probed after the circuit has been opened.
+     */
+    private Duration initialBackoff = Duration.ofMinutes(1);
+    /**
+     * Factor the backoff is multiplied with every time the trial probe fails.
+     */
+    private double backoffMultiplier = 2;
+    /**
+     * Maximum time a gateway is not probed.
+     */
+    private Duration maxBackoff = Duration.ofHours(1);
+}
@@ -13,6 +13,8 @@ package eu.ecodex.utils.monitor.gw.config;
 import eu.domibus.connector.lib.spring.configuration.TLSConnectionProperties;
 import eu.ecodex.utils.monitor.gw.domain.AccessPointsConfiguration;
 import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
@@ -37,8 +39,43 @@ public class GatewayMonitorConfigurationProperties {
      */
     private TLSConnectionProperties tls = new TLSConnectionProperties();
     private HealthCheckProperties healthCheck = new HealthCheckProperties();
+    /**
+     * Configures the parallel probing of the gateways.
+     */
+    private ProbeProperties probe = new ProbeProperties();
+    /**
+     * Configures the revocation check of the gateway certificates.
+     */
+    private RevocationProperties revocation = new RevocationProperties();
+    /**
+     * Configures the backoff for gateways which fail repeatedly.
+     */
+    private CircuitBreakerProperties circuitBreaker = new CircuitBreakerProperties();
+    /**
+     * Configures the history of the probe results.
+     */
+    private HistoryProperties history = new HistoryProperties();
     /**
      * How long should the last check result be cached?.
      */
     private Duration checkCacheTimeout = Duration.ofMinutes(5);
+    /**
+     * How many check results should be cached at most?.
+     */
+    private int checkCacheMaxSize = 1000;
+    /**
+     * How long should the result of the certificate chain validation of a gateway certificate be
+     * cached?.
+     */
+    private Duration chainValidationCacheTimeout = Duration.ofMinutes(10);
+    /**
+     * How long a certificate which has not been seen in a probe is kept in the certificate
+     * registry.
+     */
+    private Duration certificateRetention = Duration.ofDays(7);
+    /**
+     * Further named monitoring domains, each with its own TLS material, p-mode source, cache and
+     * probe pool. The gateways configured directly under monitor.gw form the default domain.
+     */
+    private Map<String, MonitoringDomainProperties> domains = new LinkedHashMap<>();
 }
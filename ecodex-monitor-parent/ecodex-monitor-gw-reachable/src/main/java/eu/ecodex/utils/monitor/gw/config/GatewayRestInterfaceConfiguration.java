@@ -10,6 +10,7 @@
 
 package eu.ecodex.utils.monitor.gw.config;
 
+import java.time.Duration;
 import lombok.Data;
 
 /**
@@ -30,4 +31,9 @@ public class GatewayRestInterfaceConfiguration {
      * The password for the gateway user.
      */
     private String password;
+    /**
+     * How often the gateway is asked for the id of the current p-mode set, the p-mode set is only
+     * downloaded if the id has changed.
+     */
+    private Duration pmodeCheckInterval = Duration.ofMinutes(1);
 }
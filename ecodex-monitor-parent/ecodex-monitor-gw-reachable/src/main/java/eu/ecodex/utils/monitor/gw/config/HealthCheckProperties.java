@@ -10,6 +10,7 @@
 
 package eu.ecodex.utils.monitor.gw.config;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import lombok.Data;
@@ -18,7 +19,8 @@ import lombok.Data;
  * Properties for configuring health checks.
  *
  * <p>This class allows configuring whether the health check should include the current instance
- * and specifying a list of remote gateways to be checked.
+ * and specifying a list of remote gateways to be checked. The selected gateways are evaluated as
+ * one batch within the configured timeout.
  */
 @Data
 public class HealthCheckProperties {
@@ -30,4 +32,9 @@ public class HealthCheckProperties {
      * which remote gateways should be checked by health check? a * means all.
      */
     List<String> checkNames = new ArrayList<>();
+    /**
+     * How long a health check may take, gateways without a result after this time are reported
+     * with status UNKNOWN.
+     */
+    Duration timeout = Duration.ofSeconds(5);
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import lombok.Data;
+
+/**
+ * Properties for configuring the history of the gateway probe results.
+ *
+ * <p>Every probe result is kept for raw-retention, older results are rolled up into buckets of
+ * rollup-interval which are kept for rollup-retention. If a directory is configured the history is
+ * stored there and survives a restart.
+ */
+@Data
+public class HistoryProperties {
+    /**
+     * Should the probe results be recorded?.
+     */
+    private boolean enabled = true;
+    /**
+     * Directory where the history is stored, if not set the history is only kept in memory.
+     */
+    private Path directory;
+    /**
+     * How long every single probe result is kept.
+     */
+    private Duration rawRetention = Duration.ofDays(7);
+    /**
+     * Length of the buckets older probe results are rolled up into.
+     */
+    private Duration rollupInterval = Duration.ofHours(1);
+    /**
+     * How long the rolled up buckets are kept.
+     */
+    private Duration rollupRetention = Duration.ofDays(90);
+    /**
+     * How often old probe results are rolled up and expired buckets are removed.
+     */
+    private Duration compactionInterval = Duration.ofHours(1);
+}
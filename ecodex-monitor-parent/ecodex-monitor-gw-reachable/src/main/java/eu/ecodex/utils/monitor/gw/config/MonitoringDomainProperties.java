@@ -0,0 +1,48 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.config;
+
+import eu.domibus.connector.lib.spring.configuration.TLSConnectionProperties;
+import eu.ecodex.utils.monitor.gw.domain.AccessPointsConfiguration;
+import java.time.Duration;
+import lombok.Data;
+
+/**
+ * Properties of a named monitoring domain, eg. one Domibus domain.
+ *
+ * <p>A monitoring domain has its own TLS material, p-mode source, probe result cache and probe
+ * pool. All other settings (probe mode, revocation, circuit breaker, history, ...) are taken from
+ * the top level monitor.gw properties.
+ */
+@Data
+public class MonitoringDomainProperties {
+    /**
+     * Configure how the gateway of the domain can be reached and accessed.
+     */
+    private GatewayRestInterfaceConfiguration rest;
+    /**
+     * The access points of the domain, used if the p-modes are not loaded from the gateway.
+     */
+    private AccessPointsConfiguration accessPoints;
+    /**
+     * The TLS client authentication and the trusted TLS servers of the domain.
+     */
+    private TLSConnectionProperties tls = new TLSConnectionProperties();
+    /**
+     * How many gateways of the domain may be probed at the same time, defaults to
+     * probe.max-concurrent-probes.
+     */
+    private Integer maxConcurrentProbes;
+    /**
+     * How long the probe results of the domain are cached, defaults to check-cache-timeout.
+     */
+    private Duration checkCacheTimeout;
+}
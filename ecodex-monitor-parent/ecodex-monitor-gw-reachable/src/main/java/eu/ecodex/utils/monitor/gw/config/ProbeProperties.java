@@ -0,0 +1,133 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.config;
+
+import java.time.Duration;
+import lombok.Data;
+
+/**
+ * Properties for configuring how the configured gateways are probed.
+ *
+ * <p>Gateways are probed in parallel, these properties limit how many probes may run at the same
+ * time and how long a single probe and a complete round of probes may take. The gateways can also
+ * be probed periodically in the background before their cached result expires.
+ */
+@Data
+public class ProbeProperties {
+    /**
+     * How many gateways may be probed at the same time.
+     */
+    private int maxConcurrentProbes = 16;
+    /**
+     * How many gateways of all monitoring domains may be probed at the same time. A free probe
+     * slot is handed to the waiting domain with the fewest running probes, so a large domain
+     * cannot starve the others.
+     */
+    private int totalMaxConcurrentProbes = 32;
+    /**
+     * How a gateway is probed.
+     */
+    private ProbeMode mode = ProbeMode.GET;
+    /**
+     * Number of bytes of the response body which are requested (as range) and read in the GET
+     * mode, the rest of the body is never read.
+     */
+    private int maxBodyBytes = 1024;
+    /**
+     * How long to wait in the TLS handshake mode for the gateway to reject the client certificate
+     * after a TLS 1.3 handshake, with TLS 1.3 the gateway verifies the client certificate after
+     * the client has finished the handshake.
+     */
+    private Duration handshakeConfirmTimeout = Duration.ofSeconds(1);
+    /**
+     * How long a single probe (connect, TLS handshake and response) may take.
+     */
+    private Duration probeTimeout = Duration.ofSeconds(20);
+    /**
+     * How long probing all configured gateways may take, gateways which have not answered within
+     * this time are reported as timed out.
+     */
+    private Duration overallTimeout = Duration.ofSeconds(30);
+    /**
+     * Should the configured gateways be probed in the background? If enabled the endpoint and the
+     * health indicator answer from the latest probe results instead of probing the gateways
+     * themselves.
+     */
+    private boolean backgroundRefresh = true;
+    /**
+     * How often the background refresher checks which gateways are due for a new probe.
+     */
+    private Duration refreshCheckInterval = Duration.ofSeconds(5);
+    /**
+     * The fraction of the check cache timeout after which a gateway is probed again, so the new
+     * result is available before the old one expires.
+     */
+    private double refreshAheadRatio = 0.75;
+    /**
+     * Maximum random delay which is subtracted from the next probe time of a gateway to spread
+     * the probes over time.
+     */
+    private Duration refreshJitter = Duration.ofSeconds(10);
+    /**
+     * Should the gateways be probed with the non-blocking http client? The probes then share a
+     * few I/O threads instead of blocking one thread each, max-concurrent-probes limits the running
+     * probes and the open connections.
+     */
+    private boolean asyncClient = false;
+    /**
+     * Number of I/O threads of the non-blocking http client.
+     */
+    private int ioThreads = 2;
+    /**
+     * Should the connections to the gateways be kept open between the probes? By default every
+     * probe closes its connection to prove that a new connection can be established. If enabled
+     * the next probe reuses the pooled connection without a new TCP connect and TLS handshake,
+     * which saves CPU on both sides when the gateways are probed every few minutes.
+     */
+    private boolean keepAlive = false;
+    /**
+     * How long an idle kept alive connection stays in the pool, should be longer than the
+     * interval between two probes of a gateway.
+     */
+    private Duration keepAliveTimeout = Duration.ofMinutes(10);
+    /**
+     * Should the TLS sessions of earlier probes be resumed? A resumed session skips the
+     * certificate exchange, if disabled every probe performs a full handshake and the gateway
+     * verifies the client certificate again.
+     */
+    private boolean sessionResumption = true;
+    /**
+     * How many TLS sessions are cached for resumption.
+     */
+    private int sessionCacheSize = 1000;
+    /**
+     * How long a cached TLS session can be resumed.
+     */
+    private Duration sessionTimeout = Duration.ofHours(24);
+
+    /**
+     * The ways a gateway can be probed.
+     */
+    public enum ProbeMode {
+        /**
+         * Only performs the TLS handshake and closes the connection, no HTTP request is sent.
+         */
+        TLS_HANDSHAKE,
+        /**
+         * Sends a HEAD request, the gateway does not send a body.
+         */
+        HEAD,
+        /**
+         * Sends a GET request for the first max-body-bytes of the body.
+         */
+        GET
+    }
+}
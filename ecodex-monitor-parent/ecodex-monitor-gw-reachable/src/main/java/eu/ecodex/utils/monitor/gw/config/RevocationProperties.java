@@ -0,0 +1,68 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+import org.springframework.core.io.Resource;
+
+/**
+ * Properties for configuring the revocation check of the gateway certificates.
+ *
+ * <p>The revocation status of a gateway certificate is checked with OCSP and CRLs. The responses
+ * and CRLs are cached in memory and, if a cache directory is configured, on disk until their next
+ * update, so not every probe fetches them from the network.
+ */
+@Data
+public class RevocationProperties {
+    /**
+     * Should the revocation status of the gateway certificates be checked?.
+     */
+    private boolean enabled = false;
+    /**
+     * Should OCSP be used? The responder is taken from the authority information access extension
+     * of the certificate unless an ocsp-responder-url is configured.
+     */
+    private boolean ocspEnabled = true;
+    /**
+     * OCSP responder used for all certificates instead of the one named in the certificate.
+     */
+    private String ocspResponderUrl;
+    /**
+     * Locally available CRLs eg. file:/etc/monitor/crls/ca.crl, they are used before any CRL is
+     * downloaded.
+     */
+    private List<Resource> crls = new ArrayList<>();
+    /**
+     * Should the CRLs be downloaded from the distribution points of the certificate?.
+     */
+    private boolean crlDistributionPointsEnabled = true;
+    /**
+     * Directory where downloaded CRLs and OCSP responses are stored, if not set they are only
+     * cached in memory.
+     */
+    private Path cacheDirectory;
+    /**
+     * How long a revocation status is cached if the CRL or OCSP response has no next update.
+     */
+    private Duration defaultCacheTimeout = Duration.ofHours(1);
+    /**
+     * How long an unknown revocation status is cached before the check is repeated.
+     */
+    private Duration unknownCacheTimeout = Duration.ofMinutes(5);
+    /**
+     * Connect and read timeout for downloading CRLs and OCSP responses.
+     */
+    private Duration fetchTimeout = Duration.ofSeconds(10);
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * The differences between two snapshots of the configured access points.
+ *
+ * <p>The access points are matched by name: an access point whose name only exists in the new
+ * snapshot has been added, one whose name only exists in the old snapshot has been removed and
+ * one whose endpoint differs has been changed. Access points which are equal in both snapshots are
+ * not part of the diff.
+ */
+@Getter
+@ToString
+public final class AccessPointsDiff {
+    private final List<AccessPoint> added;
+    private final List<AccessPoint> removed;
+    private final List<Change> changed;
+
+    private AccessPointsDiff(List<AccessPoint> added, List<AccessPoint> removed,
+                             List<Change> changed) {
+        this.added = Collections.unmodifiableList(added);
+        this.removed = Collections.unmodifiableList(removed);
+        this.changed = Collections.unmodifiableList(changed);
+    }
+
+    /**
+     * Computes the differences between two snapshots.
+     *
+     * @param previous the old snapshot, null if there was none
+     * @param current  the new snapshot
+     * @return the differences, every access point is added if there was no old snapshot
+     */
+    public static AccessPointsDiff between(
+        AccessPointsSnapshot previous, AccessPointsSnapshot current) {
+        var before = byName(previous);
+        var after = byName(current);
+        List<AccessPoint> added = new ArrayList<>();
+        List<Change> changed = new ArrayList<>();
+        after.forEach((name, ap) -> {
+            var old = before.remove(name);
+            if (old == null) {
+                added.add(ap);
+            } else if (!Objects.equals(old.getEndpoint(), ap.getEndpoint())) {
+                changed.add(new Change(old, ap));
+            }
+        });
+        return new AccessPointsDiff(added, new ArrayList<>(before.values()), changed);
+    }
+
+    /**
+     * Checks if both snapshots contain the same access points.
+     *
+     * @return true if nothing has been added, removed or changed
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    private static Map<String, AccessPoint> byName(AccessPointsSnapshot snapshot) {
+        Map<String, AccessPoint> index = new LinkedHashMap<>();
+        if (snapshot != null) {
+            for (AccessPoint ap : snapshot.getAccessPointsWithSelf()) {
+                if (ap != null && ap.getName() != null) {
+                    index.putIfAbsent(ap.getName(), ap);
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * An access point whose endpoint has changed.
+     *
+     * @param previous the access point of the old snapshot
+     * @param current  the access point of the new snapshot
+     */
+    public record Change(AccessPoint previous, AccessPoint current) {
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.domain;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Immutable, versioned snapshot of the configured access points.
+ *
+ * <p>Every time the configured access points are loaded a new snapshot with a higher version is
+ * created. The access points are additionally indexed by name.
+ */
+@Getter
+@ToString(exclude = "byName")
+public final class AccessPointsSnapshot {
+    /**
+     * Increasing number of the snapshot.
+     */
+    private final long version;
+    /**
+     * Id of the p-mode set the access points are taken from, -1 if they are configured in the
+     * properties.
+     */
+    private final int pmodeId;
+    /**
+     * The own gateway.
+     */
+    private final AccessPoint self;
+    /**
+     * The remote access points.
+     */
+    private final List<AccessPoint> remoteAccessPoints;
+    /**
+     * The own gateway followed by the remote access points.
+     */
+    private final List<AccessPoint> accessPointsWithSelf;
+    private final ZonedDateTime loadTime;
+    @Getter(lombok.AccessLevel.NONE)
+    private final Map<String, AccessPoint> byName;
+
+    /**
+     * Creates a snapshot of the given access points configuration.
+     *
+     * @param version the version of the snapshot
+     * @param config  the configured access points
+     */
+    public AccessPointsSnapshot(long version, AccessPointsConfiguration config) {
+        this.version = version;
+        this.pmodeId = config.getId();
+        this.self = config.getSelf();
+        this.remoteAccessPoints = config.getRemoteAccessPoints() == null
+            ? List.of()
+            : Collections.unmodifiableList(new ArrayList<>(config.getRemoteAccessPoints()));
+        var withSelf = new ArrayList<AccessPoint>(remoteAccessPoints.size() + 1);
+        withSelf.add(self);
+        withSelf.addAll(remoteAccessPoints);
+        this.accessPointsWithSelf = Collections.unmodifiableList(withSelf);
+        this.loadTime = ZonedDateTime.now();
+
+        Map<String, AccessPoint> index = new HashMap<>();
+        for (AccessPoint ap : withSelf) {
+            if (ap != null && ap.getName() != null) {
+                index.putIfAbsent(ap.getName(), ap);
+            }
+        }
+        this.byName = Collections.unmodifiableMap(index);
+    }
+
+    /**
+     * Returns the access point with the given name.
+     *
+     * @param name the name of the access point
+     * @return the access point or null if there is no access point with this name
+     */
+    public AccessPoint getByName(String name) {
+        return byName.get(name);
+    }
+}
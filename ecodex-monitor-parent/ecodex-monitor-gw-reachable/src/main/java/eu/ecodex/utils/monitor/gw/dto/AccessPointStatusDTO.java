@@ -10,6 +10,7 @@
 
 package eu.ecodex.utils.monitor.gw.dto;
 
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -34,11 +35,47 @@ public class AccessPointStatusDTO {
     String endpoint;
     ProtocolVersion[] allowedTls;
     ProtocolVersion usedTls;
+    /**
+     * SHA-256 fingerprints of the client certificate chain, the certificates are available at the
+     * gatewaycertificates endpoint.
+     */
     String[] localCertificates;
+    /**
+     * SHA-256 fingerprints of the certificate chain sent by the gateway, the certificates are
+     * available at the gatewaycertificates endpoint.
+     */
     String[] serverCertificates;
     List<CheckResultDTO> failures = new ArrayList<>();
     List<CheckResultDTO> warnings = new ArrayList<>();
     ZonedDateTime checkTime;
     HttpHost proxyHost;
     HttpHost targetHost;
+    /**
+     * Revocation status of the server certificate.
+     */
+    RevocationStatus revocationStatus = RevocationStatus.NOT_CHECKED;
+    /**
+     * Duration of the phases of the probe.
+     */
+    PhaseTimingsDTO timings;
+    /**
+     * State of the circuit breaker of the access point.
+     */
+    CircuitState circuitState = CircuitState.CLOSED;
+    /**
+     * How the TLS session of the probe has been established, null if no session was established.
+     */
+    TlsHandshake tlsHandshake;
+
+    /**
+     * Returns how old this status is.
+     *
+     * @return the seconds since the check or null if the gateway has not been checked
+     */
+    public Long getAgeSeconds() {
+        if (checkTime == null) {
+            return null;
+        }
+        return Duration.between(checkTime, ZonedDateTime.now()).toSeconds();
+    }
 }
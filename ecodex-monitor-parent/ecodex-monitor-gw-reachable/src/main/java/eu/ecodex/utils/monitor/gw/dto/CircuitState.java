@@ -0,0 +1,29 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.dto;
+
+/**
+ * State of the circuit breaker of an access point.
+ */
+public enum CircuitState {
+    /**
+     * The access point is probed normally.
+     */
+    CLOSED,
+    /**
+     * The backoff has passed, the next probe is a trial which closes or opens the circuit again.
+     */
+    HALF_OPEN,
+    /**
+     * The access point has failed repeatedly and is not probed until the backoff has passed.
+     */
+    OPEN
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.dto;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+
+/**
+ * Data Transfer Object containing the probe history and the availability of an access point.
+ */
+@Data
+public class GatewayHistoryDTO {
+    /**
+     * Name of the access point.
+     */
+    String name;
+    ZonedDateTime from;
+    ZonedDateTime to;
+    /**
+     * Number of probes within the period.
+     */
+    long probes;
+    /**
+     * Number of probes with failures within the period.
+     */
+    long failures;
+    /**
+     * Percentage of probes without failures, null if there has been no probe.
+     */
+    Double availabilityPercent;
+    /**
+     * The single probe results and, for older periods, the rolled up buckets ordered by time.
+     */
+    List<HistoryEntryDTO> entries = new ArrayList<>();
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.dto;
+
+import java.time.ZonedDateTime;
+import lombok.Data;
+
+/**
+ * Data Transfer Object for a single probe result or a rolled up bucket of probe results.
+ */
+@Data
+public class HistoryEntryDTO {
+    /**
+     * Time of the probe or start of the bucket.
+     */
+    ZonedDateTime time;
+    /**
+     * Number of probes, 1 for a single probe result.
+     */
+    int probes;
+    /**
+     * Number of probes with failures.
+     */
+    int failures;
+    /**
+     * Average duration of the probes in milliseconds, null if unknown.
+     */
+    Long averageLatencyMillis;
+    /**
+     * Maximum duration of the probes in milliseconds, null if unknown.
+     */
+    Long maxLatencyMillis;
+    /**
+     * The negotiated TLS version of a single probe, null for buckets.
+     */
+    String tls;
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.dto;
+
+import java.time.Duration;
+import lombok.Data;
+
+/**
+ * Data Transfer Object containing how long the phases of a gateway probe took.
+ *
+ * <p>The phases follow each other, so the sum of the phases is about the total duration. A phase
+ * is null if it has not been reached, eg. the TLS handshake if the connection failed.
+ */
+@Data
+public class PhaseTimingsDTO {
+    /**
+     * Time needed to resolve the host name of the gateway.
+     */
+    Duration dns;
+    /**
+     * Time needed to establish the TCP connection.
+     */
+    Duration connect;
+    /**
+     * Time needed for the TLS handshake.
+     */
+    Duration tlsHandshake;
+    /**
+     * Time between sending the request and receiving the response headers.
+     */
+    Duration firstByte;
+    /**
+     * Time needed for the complete probe including reading the response.
+     */
+    Duration total;
+}
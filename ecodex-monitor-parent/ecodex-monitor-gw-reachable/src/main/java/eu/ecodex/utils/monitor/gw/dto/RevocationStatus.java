@@ -0,0 +1,33 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.dto;
+
+/**
+ * Revocation status of a gateway certificate.
+ */
+public enum RevocationStatus {
+    /**
+     * The revocation status has not been checked, eg. because the check is disabled.
+     */
+    NOT_CHECKED,
+    /**
+     * The certificate is not revoked.
+     */
+    GOOD,
+    /**
+     * The certificate is revoked.
+     */
+    REVOKED,
+    /**
+     * Neither an OCSP response nor a CRL could be used to determine the status.
+     */
+    UNKNOWN
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.dto;
+
+/**
+ * How the TLS session of a probe has been established.
+ */
+public enum TlsHandshake {
+    /**
+     * A full handshake has been performed, the certificates have been exchanged and verified.
+     */
+    FULL,
+    /**
+     * An abbreviated handshake has resumed a session of an earlier probe.
+     */
+    RESUMED,
+    /**
+     * No handshake has been performed, a kept alive connection of an earlier probe was reused.
+     */
+    NONE
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import eu.ecodex.utils.monitor.gw.domain.AccessPointsDiff;
+import eu.ecodex.utils.monitor.gw.domain.AccessPointsSnapshot;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published by the {@link ConfiguredGatewaysService} when a new snapshot of the configured access
+ * points adds, removes or changes access points, eg. because a new p-mode set has been loaded.
+ *
+ * <p>Listeners only have to update the state of the access points contained in the diff.
+ */
+public class AccessPointsChangedEvent extends ApplicationEvent {
+    private final transient AccessPointsSnapshot previous;
+    private final transient AccessPointsSnapshot current;
+    private final transient AccessPointsDiff diff;
+
+    /**
+     * Creates the event.
+     *
+     * @param source   the service which published the snapshot
+     * @param previous the replaced snapshot, null for the first snapshot
+     * @param current  the new snapshot
+     * @param diff     the differences between the snapshots
+     */
+    public AccessPointsChangedEvent(
+        Object source, AccessPointsSnapshot previous, AccessPointsSnapshot current,
+        AccessPointsDiff diff) {
+        super(source);
+        this.previous = previous;
+        this.current = current;
+        this.diff = diff;
+    }
+
+    public AccessPointsSnapshot getPrevious() {
+        return previous;
+    }
+
+    public AccessPointsSnapshot getCurrent() {
+        return current;
+    }
+
+    public AccessPointsDiff getDiff() {
+        return diff;
+    }
+}
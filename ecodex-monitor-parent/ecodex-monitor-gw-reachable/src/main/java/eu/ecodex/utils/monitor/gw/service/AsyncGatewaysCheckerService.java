@@ -0,0 +1,219 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.config.ProbeProperties.ProbeMode;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import eu.ecodex.utils.monitor.gw.dto.CheckResultDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.net.ssl.SSLHandshakeException;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.ParseException;
+import org.apache.hc.core5.http.nio.entity.DiscardingEntityConsumer;
+import org.apache.hc.core5.http.nio.support.BasicRequestProducer;
+import org.apache.hc.core5.http.nio.support.BasicResponseConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Non-blocking variant of the {@link GatewaysCheckerService}.
+ *
+ * <p>The gateways are probed with the async http client of the {@link GatewayTlsClientProvider},
+ * so a probe does not hold a thread while it connects, performs the TLS handshake and waits for
+ * the response. Many probes can run on the few I/O threads of the client and the results can be
+ * composed as {@link CompletableFuture}s. The response body is discarded. Only the evaluation of a
+ * finished probe, which may check the revocation status of the server certificate, and the TLS
+ * handshake probe mode run on a virtual thread.
+ *
+ * <p>The results are cached in the same {@link GatewayStatusCache} as the results of the blocking
+ * checker. As the connection is set up by the I/O threads only the total duration of a probe is
+ * reported in the timings.
+ *
+ * <p>Requires {@code monitor.gw.probe.async-client=true}.
+ */
+@Component
+public class AsyncGatewaysCheckerService {
+    private static final Logger LOGGER =
+        LoggerFactory.getLogger(AsyncGatewaysCheckerService.class);
+    @Autowired
+    GatewayMonitorConfigurationProperties gatewayMonitorConfig;
+    @Autowired
+    GatewaysCheckerService gatewaysCheckerService;
+    @Autowired
+    GatewayStatusCache gatewayStatusCache;
+    @Autowired
+    GatewayCircuitBreaker circuitBreaker;
+    private ExecutorService completionExecutor;
+
+    @PostConstruct
+    public void init() {
+        this.completionExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        completionExecutor.shutdownNow();
+    }
+
+    public CompletableFuture<AccessPointStatusDTO> getGatewayStatus(AccessPoint ap) {
+        return getGatewayStatus(ap, gatewayMonitorConfig.getCheckCacheTimeout());
+    }
+
+    /**
+     * Retrieves the status of the specified gateway without blocking.
+     *
+     * @param ap           The access point representing the gateway whose status needs to be
+     *                     fetched.
+     * @param cacheTimeout The time duration for which the status should be cached before checking
+     *                     again.
+     * @return future completed with the status of the gateway
+     */
+    public CompletableFuture<AccessPointStatusDTO> getGatewayStatus(
+        AccessPoint ap, Duration cacheTimeout) {
+        return gatewayStatusCache.getAsync(ap, cacheTimeout, this::checkGateway);
+    }
+
+    /**
+     * Probes the specified gateway regardless of the age of its cached status, the new status
+     * replaces the cached one.
+     *
+     * @param ap The access point representing the gateway which should be probed.
+     * @return future completed with the new status of the gateway
+     */
+    public CompletableFuture<AccessPointStatusDTO> refreshGatewayStatus(AccessPoint ap) {
+        return gatewayStatusCache.getAsync(ap, Duration.ZERO, this::checkGateway);
+    }
+
+    private CompletableFuture<AccessPointStatusDTO> checkGateway(AccessPoint ap) {
+        var rejected = circuitBreaker.rejectProbe(ap);
+        if (rejected != null) {
+            return CompletableFuture.completedFuture(rejected);
+        }
+        LOGGER.info("Checking endpoint [{}] asynchronously", ap);
+        var timings = new ProbeTimings();
+        var status = gatewaysCheckerService.newStatus(ap);
+        var tlsClient = gatewaysCheckerService.getTlsClient(status);
+        if (tlsClient == null) {
+            return CompletableFuture.completedFuture(finish(ap, status, timings));
+        }
+        if (tlsClient.asyncHttpClient == null) {
+            tlsClient.release();
+            var checkResultDTO = new CheckResultDTO();
+            checkResultDTO.setName("Async client");
+            checkResultDTO.setMessage("The async http client is disabled!");
+            status.getFailures().add(checkResultDTO);
+            return CompletableFuture.completedFuture(finish(ap, status, timings));
+        }
+
+        if (gatewayMonitorConfig.getProbe().getMode() == ProbeMode.TLS_HANDSHAKE) {
+            // the handshake alone is short, it is done on a virtual thread
+            return CompletableFuture.supplyAsync(() -> {
+                var handshakeTimings = ProbeTimings.start();
+                try {
+                    gatewaysCheckerService.probeTlsHandshake(
+                        ap, status, handshakeTimings, tlsClient);
+                } finally {
+                    tlsClient.release();
+                }
+                return finish(ap, status, handshakeTimings);
+            }, completionExecutor);
+        }
+
+        HttpUriRequestBase httpRequest;
+        try {
+            httpRequest = gatewaysCheckerService.newHttpRequest(ap);
+        } catch (IllegalArgumentException e) {
+            tlsClient.release();
+            gatewaysCheckerService.addConnectionFailure(status, e);
+            return CompletableFuture.completedFuture(finish(ap, status, timings));
+        }
+        LOGGER.debug("Executing request {} {}", httpRequest.getMethod(), ap.getEndpoint());
+
+        final var clientContext = HttpClientContext.create();
+        var response = new CompletableFuture<Message<HttpResponse, Void>>();
+        tlsClient.asyncHttpClient.execute(
+            new BasicRequestProducer(httpRequest, null),
+            new BasicResponseConsumer<>(new DiscardingEntityConsumer<Void>()),
+            clientContext,
+            new FutureCallback<>() {
+                @Override
+                public void completed(Message<HttpResponse, Void> result) {
+                    response.complete(result);
+                }
+
+                @Override
+                public void failed(Exception ex) {
+                    response.completeExceptionally(ex);
+                }
+
+                @Override
+                public void cancelled() {
+                    response.cancel(false);
+                }
+            }
+        );
+        return response.handleAsync((result, e) -> {
+            // released on the completion executor, closing the client within its own I/O
+            // thread would block
+            try {
+                return evaluate(ap, status, timings, clientContext, result, e);
+            } finally {
+                tlsClient.release();
+            }
+        }, completionExecutor);
+    }
+
+    private AccessPointStatusDTO evaluate(
+        AccessPoint ap, AccessPointStatusDTO status, ProbeTimings timings,
+        HttpClientContext clientContext, Message<HttpResponse, Void> result, Throwable e) {
+        var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof SSLHandshakeException sslHandshakeException) {
+            gatewaysCheckerService.addTlsFailure(status, sslHandshakeException);
+        } else if (cause instanceof Exception exception) {
+            gatewaysCheckerService.addConnectionFailure(status, exception);
+        } else if (cause != null) {
+            throw new CompletionException(cause);
+        } else {
+            LOGGER.debug("{} {}", result.getHead().getCode(), result.getHead().getReasonPhrase());
+            gatewaysCheckerService.checkResponseCode(status, result.getHead().getCode());
+        }
+        try {
+            gatewaysCheckerService.addSessionDetails(status, timings, clientContext);
+        } catch (IOException | ParseException ex) {
+            gatewaysCheckerService.addConnectionFailure(status, ex);
+        }
+        return finish(ap, status, timings);
+    }
+
+    private AccessPointStatusDTO finish(
+        AccessPoint ap, AccessPointStatusDTO status, ProbeTimings timings) {
+        timings.finish();
+        status.setTimings(timings.toDto());
+        gatewaysCheckerService.recordTimings(ap, timings);
+        circuitBreaker.recordResult(ap, status);
+        return status;
+    }
+}
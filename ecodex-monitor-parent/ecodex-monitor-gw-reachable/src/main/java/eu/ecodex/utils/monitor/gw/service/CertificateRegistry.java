@@ -0,0 +1,123 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns the certificates seen during the probes by their SHA-256 fingerprint.
+ *
+ * <p>The status of an access point only references the fingerprints, the certificates itself are
+ * kept once in this registry no matter how many access points or monitoring domains share them.
+ * A certificate which is already known is found by {@link Certificate#equals(Object)}, so the
+ * fingerprint is only calculated once. Certificates which have not been seen for the configured
+ * retention are removed when a new certificate is registered.
+ */
+public class CertificateRegistry {
+    private final Duration retention;
+    private final Map<Certificate, Entry> byCertificate = new ConcurrentHashMap<>();
+    private final Map<String, Entry> byFingerprint = new ConcurrentHashMap<>();
+
+    public CertificateRegistry(Duration retention) {
+        this.retention = retention;
+    }
+
+    /**
+     * Registers the certificates.
+     *
+     * @param certificates the certificates, may be null
+     * @return the fingerprints of the certificates in the same order
+     */
+    public String[] register(Certificate[] certificates) {
+        if (certificates == null) {
+            return new String[0];
+        }
+        var fingerprints = new String[certificates.length];
+        for (int i = 0; i < certificates.length; i++) {
+            fingerprints[i] = register(certificates[i]);
+        }
+        return fingerprints;
+    }
+
+    /**
+     * Registers the certificate.
+     *
+     * @param certificate the certificate
+     * @return the SHA-256 fingerprint of the certificate as lower case hex string
+     */
+    public String register(Certificate certificate) {
+        var now = System.nanoTime();
+        var entry = byCertificate.get(certificate);
+        if (entry == null) {
+            removeExpired(now);
+            entry = byCertificate.computeIfAbsent(
+                certificate, c -> new Entry(fingerprintOf(c), c));
+            byFingerprint.putIfAbsent(entry.fingerprint, entry);
+        }
+        entry.lastSeen = now;
+        return entry.fingerprint;
+    }
+
+    /**
+     * Returns the certificate with the fingerprint.
+     *
+     * @param fingerprint the SHA-256 fingerprint as hex string
+     * @return the certificate or null if it is not known
+     */
+    public Certificate get(String fingerprint) {
+        var entry = byFingerprint.get(fingerprint.toLowerCase());
+        return entry == null ? null : entry.certificate;
+    }
+
+    public Set<String> getFingerprints() {
+        return Set.copyOf(byFingerprint.keySet());
+    }
+
+    private void removeExpired(long now) {
+        byFingerprint.values().removeIf(entry -> {
+            if (now - entry.lastSeen < retention.toNanos()) {
+                return false;
+            }
+            byCertificate.remove(entry.certificate, entry);
+            return true;
+        });
+    }
+
+    static String fingerprintOf(Certificate certificate) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(certificate.getEncoded());
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        } catch (CertificateEncodingException e) {
+            throw new IllegalArgumentException("Cannot encode certificate", e);
+        }
+    }
+
+    private static class Entry {
+        private final String fingerprint;
+        private final Certificate certificate;
+        private volatile long lastSeen = System.nanoTime();
+
+        Entry(String fingerprint, Certificate certificate) {
+            this.fingerprint = fingerprint;
+            this.certificate = certificate;
+        }
+    }
+}
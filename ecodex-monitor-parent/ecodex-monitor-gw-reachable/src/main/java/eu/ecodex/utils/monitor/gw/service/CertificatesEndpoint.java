@@ -0,0 +1,74 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import eu.ecodex.utils.monitor.gw.dto.CertificateDTO;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import java.util.Set;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+/**
+ * Endpoint to provide the certificates referenced by the fingerprints in the status of the
+ * gateways.
+ *
+ * <p>The fingerprints of all known certificates are available at the {@code gatewaycertificates}
+ * endpoint, a single certificate at {@code gatewaycertificates/{fingerprint}}.
+ */
+@Endpoint(id = "gatewaycertificates")
+public class CertificatesEndpoint {
+    @Autowired
+    CertificateRegistry certificateRegistry;
+
+    /**
+     * Retrieves the fingerprints of all certificates seen during the probes.
+     *
+     * @return the SHA-256 fingerprints
+     */
+    @ReadOperation
+    public Set<String> getFingerprints() {
+        return certificateRegistry.getFingerprints();
+    }
+
+    /**
+     * Retrieves a certificate.
+     *
+     * @param fingerprint The SHA-256 fingerprint of the certificate.
+     * @return The certificate, null if the certificate is not known.
+     */
+    @ReadOperation
+    public CertificateDTO getCertificate(@Selector String fingerprint) {
+        var certificate = certificateRegistry.get(fingerprint);
+        if (certificate == null) {
+            return null;
+        }
+        var certificateDTO = new CertificateDTO();
+        certificateDTO.setFingerprint(fingerprint.toLowerCase());
+        if (certificate instanceof X509Certificate x509Certificate) {
+            certificateDTO.setSubject(x509Certificate.getSubjectX500Principal().getName());
+            certificateDTO.setIssuer(x509Certificate.getIssuerX500Principal().getName());
+            certificateDTO.setSerialNumber(x509Certificate.getSerialNumber().toString(16));
+            certificateDTO.setNotBefore(x509Certificate.getNotBefore().toInstant());
+            certificateDTO.setNotAfter(x509Certificate.getNotAfter().toInstant());
+        }
+        try {
+            certificateDTO.setEncoded(
+                Base64.getEncoder().encodeToString(certificate.getEncoded()));
+        } catch (CertificateEncodingException e) {
+            throw new IllegalStateException("Cannot encode certificate " + fingerprint, e);
+        }
+        return certificateDTO;
+    }
+}
@@ -13,49 +13,75 @@ package eu.ecodex.utils.monitor.gw.service;
 import static eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties.GATEWAY_MONITOR_PREFIX;
 
 import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.config.GatewayRestInterfaceConfiguration;
 import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
 import eu.ecodex.utils.monitor.gw.domain.AccessPointsConfiguration;
+import eu.ecodex.utils.monitor.gw.domain.AccessPointsDiff;
+import eu.ecodex.utils.monitor.gw.domain.AccessPointsSnapshot;
+import jakarta.annotation.PreDestroy;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
-import java.util.Optional;
-import lombok.Getter;
-import lombok.Setter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.util.StringUtils;
 
 /**
  * Service for managing and retrieving the configured gateways in the system.
  *
  * <p>The class coordinates with configuration properties and a PMode downloader to update and
- * provide access to the access points configuration.
+ * provide access to the access points configuration. The configured access points are published
+ * as an immutable {@link AccessPointsSnapshot}, readers never wait for a running update. Once the
+ * p-mode check interval has elapsed a reader triggers an asynchronous update and continues with the
+ * current snapshot, only the very first read has to wait until the access points are loaded.
+ *
+ * <p>If a new snapshot adds, removes or changes access points an {@link AccessPointsChangedEvent}
+ * with the {@link AccessPointsDiff} to the previous snapshot is published, so the cached state of
+ * only the affected access points has to be updated.
  */
 public class ConfiguredGatewaysService {
     private static final Logger LOGGER = LoggerFactory.getLogger(ConfiguredGatewaysService.class);
     @Autowired
     private GatewayMonitorConfigurationProperties monitorConfigurationProperties;
     @SuppressWarnings("checkstyle:MemberName")
-    @Autowired
+    @Autowired(required = false)
     private PModeDownloader pModeDownloader;
-    @Setter
-    @Getter
-    private AccessPointsConfiguration accessPointConfig = new AccessPointsConfiguration();
+    @Autowired(required = false)
+    private ApplicationEventPublisher eventPublisher;
+    private final AtomicReference<AccessPointsSnapshot> snapshot = new AtomicReference<>();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicBoolean updating = new AtomicBoolean();
+    private final ExecutorService updateExecutor = Executors.newSingleThreadExecutor(r -> {
+        var thread = new Thread(r, "gw-configured-gateways-update");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile long nextUpdate;
 
     /**
-     * Updates the currently configured access points based on the configuration properties.
+     * Updates the currently configured access points based on the configuration properties and
+     * publishes them as new snapshot. The access points from the gateway p-Modes are read from the
+     * snapshot of the {@link PModeDownloader}, which only asks the gateway for new p-Modes once per
+     * check interval.
      *
      * @throws RuntimeException if no access points configuration is found in the properties and
      *                          loading from p-Modes is not enabled.
      */
-    public synchronized void updateConfiguredGateways() {
-        if (monitorConfigurationProperties.getRest().isLoadPmodes()) {
-            this.accessPointConfig = pModeDownloader.updateAccessPointsConfig(accessPointConfig);
-            LOGGER.info("Loaded configured access points from gateway p-Modes");
+    public void updateConfiguredGateways() {
+        AccessPointsConfiguration accessPointConfig;
+        var rest = monitorConfigurationProperties.getRest();
+        if (rest != null && rest.isLoadPmodes() && pModeDownloader != null) {
+            accessPointConfig = pModeDownloader.getAccessPointsConfig();
+            LOGGER.trace("Using configured access points from gateway p-Modes");
         } else if (monitorConfigurationProperties.getAccessPoints() != null) {
-            this.accessPointConfig = monitorConfigurationProperties.getAccessPoints();
-            LOGGER.info("Loaded configured access points from properties!");
+            accessPointConfig = monitorConfigurationProperties.getAccessPoints();
+            LOGGER.trace("Using configured access points from properties!");
         } else {
             throw new RuntimeException(
                 "No access points are configured in properties under: "
@@ -65,32 +91,67 @@ public class ConfiguredGatewaysService {
                     + "\n[" + GATEWAY_MONITOR_PREFIX
                     + ".rest.load-pmodes] is false");
         }
+        publish(accessPointConfig);
+    }
+
+    /**
+     * Returns the current snapshot of the configured access points. If the snapshot is older than
+     * the p-mode check interval an asynchronous update is started, the current snapshot is returned
+     * without waiting for it.
+     *
+     * @return the current snapshot of the configured access points
+     */
+    public AccessPointsSnapshot getSnapshot() {
+        var current = snapshot.get();
+        if (current == null) {
+            return loadInitialSnapshot();
+        }
+        if (System.nanoTime() - nextUpdate >= 0 && updating.compareAndSet(false, true)) {
+            updateExecutor.execute(() -> {
+                try {
+                    updateConfiguredGateways();
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Updating the configured access points failed, keeping [{}]",
+                        snapshot.get(), e);
+                    scheduleNextUpdate();
+                } finally {
+                    updating.set(false);
+                }
+            });
+        }
+        return current;
+    }
+
+    public AccessPointsConfiguration getAccessPointConfig() {
+        var current = getSnapshot();
+        var config = new AccessPointsConfiguration();
+        config.setId(current.getPmodeId());
+        config.setSelf(current.getSelf());
+        config.setRemoteAccessPoints(current.getRemoteAccessPoints());
+        return config;
     }
 
-    public synchronized Collection<AccessPoint> getConfiguredGateways() {
-        updateConfiguredGateways();
-        return this.accessPointConfig.getRemoteAccessPoints();
+    public void setAccessPointConfig(AccessPointsConfiguration accessPointConfig) {
+        publish(accessPointConfig);
+    }
+
+    public Collection<AccessPoint> getConfiguredGateways() {
+        return getSnapshot().getRemoteAccessPoints();
     }
 
     /**
      * Retrieves the collection of all configured gateways, including the gateway's own access
-     * point. The method first updates the list of configured gateways and then adds the gateway's
-     * own access point to the collection before returning it.
+     * point. The gateway's own access point is the first element of the collection.
      *
      * @return A collection of {@link AccessPoint} instances representing the configured gateways,
      *      including the gateway's own access point.
      */
-    public synchronized Collection<AccessPoint> getConfiguredGatewaysWithSelf() {
-        updateConfiguredGateways();
-        List<AccessPoint> list = new ArrayList<>();
-        list.add(getSelf());
-        list.addAll(this.accessPointConfig.getRemoteAccessPoints());
-        return list;
+    public Collection<AccessPoint> getConfiguredGatewaysWithSelf() {
+        return new ArrayList<>(getSnapshot().getAccessPointsWithSelf());
     }
 
-    public synchronized AccessPoint getSelf() {
-        updateConfiguredGateways();
-        return this.accessPointConfig.getSelf();
+    public AccessPoint getSelf() {
+        return getSnapshot().getSelf();
     }
 
     /**
@@ -100,19 +161,56 @@ public class ConfiguredGatewaysService {
      * @return The AccessPoint with the specified name, or null if no such access point is found.
      * @throws IllegalArgumentException if the provided name is empty.
      */
-    public synchronized AccessPoint getByName(String name) {
-        updateConfiguredGateways();
+    public AccessPoint getByName(String name) {
         if (!StringUtils.hasLength(name)) {
             throw new IllegalArgumentException("Name is not allowed to be empty!");
         }
-        if (name.equals(this.accessPointConfig.getSelf().getName())) {
-            return this.accessPointConfig.getSelf();
+        return getSnapshot().getByName(name);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        updateExecutor.shutdownNow();
+    }
+
+    private synchronized AccessPointsSnapshot loadInitialSnapshot() {
+        var current = snapshot.get();
+        if (current == null) {
+            updateConfiguredGateways();
+            current = snapshot.get();
         }
-        Optional<AccessPoint> first = this.accessPointConfig.getRemoteAccessPoints()
-                                                            .stream()
-                                                            .filter(ap -> name.equals(ap.getName()))
-                                                            .findFirst();
+        return current;
+    }
+
+    private synchronized void publish(AccessPointsConfiguration accessPointConfig) {
+        var current = snapshot.get();
+        var candidate = new AccessPointsSnapshot(version.get() + 1, accessPointConfig);
+        var diff = AccessPointsDiff.between(current, candidate);
+        if (current != null && diff.isEmpty()
+            && current.getPmodeId() == candidate.getPmodeId()) {
+            scheduleNextUpdate();
+            return;
+        }
+        version.incrementAndGet();
+        snapshot.set(candidate);
+        scheduleNextUpdate();
+        LOGGER.info(
+            "Configured access points changed, using snapshot [{}] with [{}] access points",
+            candidate.getVersion(), candidate.getAccessPointsWithSelf().size()
+        );
+        if (current != null && !diff.isEmpty() && eventPublisher != null) {
+            LOGGER.info("Access points changed from snapshot [{}] to [{}]: [{}]",
+                current.getVersion(), candidate.getVersion(), diff);
+            eventPublisher.publishEvent(
+                new AccessPointsChangedEvent(this, current, candidate, diff));
+        }
+    }
 
-        return first.orElse(null);
+    private void scheduleNextUpdate() {
+        var rest = monitorConfigurationProperties.getRest();
+        var checkInterval = rest == null
+            ? new GatewayRestInterfaceConfiguration().getPmodeCheckInterval()
+            : rest.getPmodeCheckInterval();
+        nextUpdate = System.nanoTime() + checkInterval.toNanos();
     }
 }
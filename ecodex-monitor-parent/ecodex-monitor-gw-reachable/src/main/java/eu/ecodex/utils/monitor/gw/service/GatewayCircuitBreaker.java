@@ -0,0 +1,271 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import eu.ecodex.utils.monitor.gw.dto.CheckResultDTO;
+import eu.ecodex.utils.monitor.gw.dto.CircuitState;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Circuit breaker which stops probing access points which fail repeatedly.
+ *
+ * <p>After {@code monitor.gw.circuit-breaker.failure-threshold}
+ * probes with failures in a row the circuit of the access point is opened and the access point is
+ * not probed until the backoff has passed. Instead a status with a "Circuit breaker" failure and
+ * the failures of the last real probe is reported. After the backoff the circuit is half open and
+ * the next probe is a trial: if it succeeds the circuit is closed, otherwise it is opened again
+ * with the backoff multiplied up to the maximum backoff. Only one trial runs at a time, other
+ * probes are rejected until its result is recorded. A trial without a result after the overall
+ * probe timeout is considered lost and the next probe becomes the trial.
+ *
+ * <p>If a {@link MeterRegistry} is available the state of every circuit is published as gauge
+ * {@value #METRIC_PREFIX}.state (0 closed, 1 half open, 2 open) tagged by access point, and the
+ * number of skipped probes as {@value #METRIC_PREFIX}.rejected.
+ *
+ * <p>The circuits of access points which have been removed or whose endpoint has changed are
+ * dropped when the {@link AccessPointsChangedEvent} is published.
+ */
+@Component
+public class GatewayCircuitBreaker {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GatewayCircuitBreaker.class);
+    public static final String METRIC_PREFIX = "monitor.gw.circuit";
+    public static final String CIRCUIT_BREAKER_CHECK_NAME = "Circuit breaker";
+    @Autowired
+    GatewayMonitorConfigurationProperties gatewayMonitorConfig;
+    @Autowired
+    GatewayStatusCache gatewayStatusCache;
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
+    LongSupplier nanoClock = System::nanoTime;
+    private final Map<AccessPoint, Circuit> circuits = new ConcurrentHashMap<>();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * Registers the rejected probes counter if a {@link MeterRegistry} is available.
+     */
+    @PostConstruct
+    public void init() {
+        if (meterRegistry == null) {
+            return;
+        }
+        FunctionCounter.builder(METRIC_PREFIX + ".rejected", rejectedCount, LongAdder::doubleValue)
+                       .description("Number of probes skipped because the circuit was open")
+                       .register(meterRegistry);
+    }
+
+    /**
+     * Checks if the access point may be probed.
+     *
+     * @param ap the access point
+     * @return null if the access point may be probed, otherwise the status to report instead
+     */
+    public AccessPointStatusDTO rejectProbe(AccessPoint ap) {
+        if (!gatewayMonitorConfig.getCircuitBreaker().isEnabled()) {
+            return null;
+        }
+        var circuit = circuits.get(ap);
+        if (circuit == null) {
+            return null;
+        }
+        CircuitState state;
+        String reason;
+        synchronized (circuit) {
+            long now = nanoClock.getAsLong();
+            if (circuit.state == CircuitState.OPEN && now - circuit.openUntil >= 0) {
+                LOGGER.info("Backoff of [{}] has passed, probing it again", ap);
+                circuit.state = CircuitState.HALF_OPEN;
+                circuit.trialRunning = false;
+            }
+            if (circuit.state == CircuitState.CLOSED) {
+                return null;
+            }
+            if (circuit.state == CircuitState.HALF_OPEN
+                && (!circuit.trialRunning || now - circuit.trialDeadline >= 0)) {
+                circuit.trialRunning = true;
+                circuit.trialDeadline = now
+                    + gatewayMonitorConfig.getProbe().getOverallTimeout().toNanos();
+                return null;
+            }
+            state = circuit.state;
+            reason = "Gateway failed " + circuit.consecutiveFailures + " times in a row, ";
+            if (state == CircuitState.HALF_OPEN) {
+                reason += "a trial probe is running";
+            } else {
+                reason += "it is not probed for another "
+                    + Duration.ofNanos(circuit.openUntil - now).toSeconds() + "s";
+            }
+        }
+        rejectedCount.increment();
+        LOGGER.debug("Not probing [{}]: {}", ap, reason);
+        return rejectedStatus(ap, state, reason);
+    }
+
+    /**
+     * Tells if the status has been reported by {@link #rejectProbe(AccessPoint)} instead of a
+     * probe.
+     *
+     * @param status the status
+     * @return true if the access point has not been probed because its circuit was open
+     */
+    public static boolean isRejected(AccessPointStatusDTO status) {
+        return status.getFailures().stream()
+                     .anyMatch(f -> CIRCUIT_BREAKER_CHECK_NAME.equals(f.getName()));
+    }
+
+    /**
+     * Updates the circuit of the access point with the result of a probe and reports the state of
+     * the circuit in the status.
+     *
+     * @param ap     the access point
+     * @param status the result of the probe
+     */
+    public void recordResult(AccessPoint ap, AccessPointStatusDTO status) {
+        var properties = gatewayMonitorConfig.getCircuitBreaker();
+        if (!properties.isEnabled()) {
+            return;
+        }
+        boolean failed = !status.getFailures().isEmpty();
+        var circuit = failed ? circuits.computeIfAbsent(ap, this::newCircuit) : circuits.get(ap);
+        if (circuit == null) {
+            return;
+        }
+        synchronized (circuit) {
+            circuit.trialRunning = false;
+            if (!failed) {
+                if (circuit.state != CircuitState.CLOSED) {
+                    LOGGER.info("[{}] has been probed successfully, closing its circuit", ap);
+                }
+                circuit.state = CircuitState.CLOSED;
+                circuit.consecutiveFailures = 0;
+                circuit.backoff = null;
+            } else {
+                circuit.consecutiveFailures++;
+                if (circuit.state == CircuitState.HALF_OPEN) {
+                    var backoff = Duration.ofNanos(
+                        (long) (circuit.backoff.toNanos() * properties.getBackoffMultiplier()));
+                    open(ap, circuit, min(backoff, properties.getMaxBackoff()));
+                } else if (circuit.state == CircuitState.CLOSED
+                    && circuit.consecutiveFailures >= properties.getFailureThreshold()) {
+                    open(ap, circuit,
+                         min(properties.getInitialBackoff(), properties.getMaxBackoff()));
+                }
+            }
+            status.setCircuitState(circuit.state);
+        }
+    }
+
+    /**
+     * Returns the state of the circuit of the access point.
+     *
+     * @param ap the access point
+     * @return the state of the circuit
+     */
+    public CircuitState getState(AccessPoint ap) {
+        var circuit = circuits.get(ap);
+        return circuit == null ? CircuitState.CLOSED : circuit.state;
+    }
+
+    /**
+     * Drops the circuits of the removed and changed access points, a changed access point starts
+     * with a closed circuit.
+     *
+     * @param event the changes of the configured access points
+     */
+    @EventListener
+    public void onAccessPointsChanged(AccessPointsChangedEvent event) {
+        var diff = event.getDiff();
+        diff.getRemoved().forEach(this::forget);
+        diff.getChanged().forEach(change -> forget(change.previous()));
+    }
+
+    private void forget(AccessPoint ap) {
+        var circuit = circuits.remove(ap);
+        if (circuit != null && circuit.gauge != null) {
+            meterRegistry.remove(circuit.gauge);
+        }
+    }
+
+    private void open(AccessPoint ap, Circuit circuit, Duration backoff) {
+        LOGGER.warn(
+            "[{}] failed [{}] times in a row, not probing it for [{}]", ap,
+            circuit.consecutiveFailures, backoff
+        );
+        circuit.state = CircuitState.OPEN;
+        circuit.backoff = backoff;
+        circuit.openUntil = nanoClock.getAsLong() + backoff.toNanos();
+    }
+
+    private Circuit newCircuit(AccessPoint ap) {
+        var circuit = new Circuit();
+        if (meterRegistry != null) {
+            circuit.gauge =
+                Gauge.builder(METRIC_PREFIX + ".state", circuit, c -> c.state.ordinal())
+                     .tag("ap", String.valueOf(ap.getName()))
+                     .description("State of the circuit breaker: 0 closed, 1 half open, 2 open")
+                     .strongReference(true)
+                     .register(meterRegistry);
+        }
+        return circuit;
+    }
+
+    private AccessPointStatusDTO rejectedStatus(
+        AccessPoint ap, CircuitState state, String reason) {
+        var status = new AccessPointStatusDTO();
+        status.setCheckTime(ZonedDateTime.now());
+        status.setName(ap.getName());
+        status.setEndpoint(ap.getEndpoint());
+        status.setCircuitState(state);
+
+        var checkResultDTO = new CheckResultDTO();
+        checkResultDTO.setName(CIRCUIT_BREAKER_CHECK_NAME);
+        checkResultDTO.setMessage(reason);
+        status.getFailures().add(checkResultDTO);
+        // keep reporting why the gateway failed
+        var latest = gatewayStatusCache.getLatest(ap);
+        if (latest != null) {
+            latest.getFailures().stream()
+                  .filter(f -> !CIRCUIT_BREAKER_CHECK_NAME.equals(f.getName()))
+                  .forEach(status.getFailures()::add);
+        }
+        return status;
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    private static class Circuit {
+        CircuitState state = CircuitState.CLOSED;
+        int consecutiveFailures;
+        Duration backoff;
+        long openUntil;
+        boolean trialRunning;
+        long trialDeadline;
+        Gauge gauge;
+    }
+}
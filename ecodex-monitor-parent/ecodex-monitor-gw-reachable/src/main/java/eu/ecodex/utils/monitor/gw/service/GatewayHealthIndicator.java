@@ -10,35 +10,116 @@
 
 package eu.ecodex.utils.monitor.gw.service;
 
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.config.HealthCheckProperties;
 import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
 import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import eu.ecodex.utils.monitor.gw.dto.CheckResultDTO;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.health.AbstractHealthIndicator;
 import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
 
 /**
  * GatewayHealthIndicator is an implementation of the AbstractHealthIndicator that provides health
  * checks specifically for gateway services.
+ *
+ * <p>The own gateway and the remote gateways selected by
+ * {@code monitor.gw.health-check.check-names} are evaluated as one batch: the latest results are
+ * read from the status cache and gateways without a result are probed in parallel, all within
+ * {@code monitor.gw.health-check.timeout}. The health is DOWN if any selected gateway has a
+ * failure, UNKNOWN if a gateway did not answer in time and UP otherwise. The status of every
+ * gateway is reported in the details.
  */
 public class GatewayHealthIndicator extends AbstractHealthIndicator {
+    /**
+     * Check name selecting all configured remote gateways.
+     */
+    public static final String ALL_GATEWAYS = "*";
+    @Autowired
+    GatewayMonitorConfigurationProperties gatewayMonitorConfig;
     @Autowired
     ConfiguredGatewaysService configuredGatewaysService;
     @Autowired
-    GatewaysCheckerService gwChecker;
+    GatewayStatusRefresher statusRefresher;
 
     @Override
     protected void doHealthCheck(Health.Builder builder) {
         builder.up();
-        checkSelf(builder);
+        var healthCheck = gatewayMonitorConfig.getHealthCheck();
+        AccessPoint self = healthCheck.isCheckSelf() ? configuredGatewaysService.getSelf() : null;
+        List<AccessPoint> selected = new ArrayList<>();
+        if (self != null) {
+            selected.add(self);
+        }
+        selected.addAll(selectRemoteGateways(healthCheck, self));
+        if (selected.isEmpty()) {
+            return;
+        }
+
+        var statuses = statusRefresher.getLatestStatuses(selected, healthCheck.getTimeout());
+        Status health = Status.UP;
+        Map<String, Object> gateways = new LinkedHashMap<>();
+        for (int i = 0; i < selected.size(); i++) {
+            var ap = selected.get(i);
+            var status = statuses.get(i);
+            var gatewayHealth = healthOf(status);
+            if (ap.equals(self) && !status.getFailures().isEmpty()) {
+                builder.withDetail("self_detail", status.getFailures().getFirst().toString());
+            }
+            gateways.put(ap.getName(), details(status, gatewayHealth));
+            health = worse(health, gatewayHealth);
+        }
+        builder.status(health);
+        builder.withDetail("gateways", gateways);
+    }
+
+    private List<AccessPoint> selectRemoteGateways(
+        HealthCheckProperties healthCheck, AccessPoint self) {
+        var checkNames = healthCheck.getCheckNames();
+        if (checkNames.isEmpty()) {
+            return List.of();
+        }
+        boolean all = checkNames.contains(ALL_GATEWAYS);
+        return configuredGatewaysService.getConfiguredGateways().stream()
+                                        .filter(ap -> !ap.equals(self))
+                                        .filter(ap -> all || checkNames.contains(ap.getName()))
+                                        .toList();
+    }
+
+    private static Status healthOf(AccessPointStatusDTO status) {
+        var failures = status.getFailures();
+        if (failures.isEmpty()) {
+            return Status.UP;
+        }
+        boolean timedOut = failures.stream().map(CheckResultDTO::getName)
+                                   .allMatch(GatewayProbeExecutor.TIMEOUT_CHECK_NAME::equals);
+        return timedOut ? Status.UNKNOWN : Status.DOWN;
     }
 
-    private void checkSelf(Health.Builder builder) {
-        AccessPoint ap = configuredGatewaysService.getSelf();
-        AccessPointStatusDTO gatewayStatus = gwChecker.getGatewayStatus(ap);
+    private static Map<String, Object> details(AccessPointStatusDTO status, Status health) {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("status", health.getCode());
+        if (status.getCheckTime() != null) {
+            details.put("checkTime", status.getCheckTime().toString());
+        }
+        if (!status.getFailures().isEmpty()) {
+            details.put("failure", status.getFailures().getFirst().toString());
+        }
+        return details;
+    }
 
-        if (!gatewayStatus.getFailures().isEmpty()) {
-            builder.down();
-            builder.withDetail("self_detail", gatewayStatus.getFailures().getFirst().toString());
+    private static Status worse(Status current, Status other) {
+        if (current.equals(Status.DOWN) || other.equals(Status.DOWN)) {
+            return Status.DOWN;
+        }
+        if (current.equals(Status.UNKNOWN) || other.equals(Status.UNKNOWN)) {
+            return Status.UNKNOWN;
         }
+        return Status.UP;
     }
 }
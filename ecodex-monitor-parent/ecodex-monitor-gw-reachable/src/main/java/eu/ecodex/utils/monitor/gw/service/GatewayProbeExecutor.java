@@ -0,0 +1,246 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import eu.ecodex.utils.monitor.gw.dto.CheckResultDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Probes a collection of access points in parallel.
+ *
+ * <p>Every probe runs on its own virtual thread, the number of probes running at the same time is
+ * bounded by {@code monitor.gw.probe.max-concurrent-probes}.
+ * Access points which have not been checked within the overall timeout are reported with a
+ * "Timeout" failure, so the caller always gets a result for every access point. Only this caller
+ * gets the "Timeout" failure, the probe itself keeps running within its own timeouts and its
+ * result is cached. If a
+ * {@link ProbeCapacity.Share} is available a probe also takes a slot of the capacity shared with
+ * the other monitoring domains.
+ *
+ * <p>If the async client is enabled the probes are started on the
+ * {@link AsyncGatewaysCheckerService} instead. They take the same permits, which are released when
+ * the probe completes, so the same limit applies.
+ */
+@Component
+public class GatewayProbeExecutor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GatewayProbeExecutor.class);
+    public static final String TIMEOUT_CHECK_NAME = "Timeout";
+    @Autowired
+    GatewayMonitorConfigurationProperties gatewayMonitorConfig;
+    @Autowired
+    GatewaysCheckerService gatewaysCheckerService;
+    @Autowired
+    AsyncGatewaysCheckerService asyncGatewaysCheckerService;
+    @Autowired(required = false)
+    ProbeCapacity.Share probeCapacity;
+    private ExecutorService executorService;
+    private Semaphore probePermits;
+
+    /**
+     * Creates the virtual thread executor and the permits bounding the concurrent probes.
+     */
+    @PostConstruct
+    public void init() {
+        this.executorService = Executors.newVirtualThreadPerTaskExecutor();
+        this.probePermits =
+            new Semaphore(Math.max(1, gatewayMonitorConfig.getProbe().getMaxConcurrentProbes()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    public List<AccessPointStatusDTO> getGatewayStatuses(Collection<AccessPoint> accessPoints) {
+        return getGatewayStatuses(
+            accessPoints, gatewayMonitorConfig.getProbe().getOverallTimeout());
+    }
+
+    /**
+     * Retrieves the status of all given access points, the access points are probed in parallel.
+     *
+     * @param accessPoints    the access points to check
+     * @param overallTimeout  how long to wait for all probes, access points without a result after
+     *                        this time are reported as timed out
+     * @return the status of each access point in the order of the given collection
+     */
+    public List<AccessPointStatusDTO> getGatewayStatuses(
+        Collection<AccessPoint> accessPoints, Duration overallTimeout) {
+        long deadline = System.nanoTime() + overallTimeout.toNanos();
+
+        Map<AccessPoint, Future<AccessPointStatusDTO>> probes = new LinkedHashMap<>();
+        if (gatewayMonitorConfig.getProbe().isAsyncClient()) {
+            accessPoints.forEach(ap -> probes.put(
+                ap, probeAsync(() -> asyncGatewaysCheckerService.getGatewayStatus(ap))));
+        } else {
+            accessPoints.forEach(ap -> probes.put(ap, executorService.submit(() -> probe(ap))));
+        }
+
+        List<AccessPointStatusDTO> result = new ArrayList<>(probes.size());
+        probes.forEach((ap, future) -> result.add(awaitProbe(ap, future, deadline)));
+        return result;
+    }
+
+    /**
+     * Probes the access point in the background regardless of the age of its cached status.
+     *
+     * @param ap the access point to probe
+     * @return future completed with the new status of the access point
+     */
+    public CompletableFuture<AccessPointStatusDTO> refresh(AccessPoint ap) {
+        if (gatewayMonitorConfig.getProbe().isAsyncClient()) {
+            return probeAsync(() -> asyncGatewaysCheckerService.refreshGatewayStatus(ap));
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                acquirePermits();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            try {
+                return gatewaysCheckerService.refreshGatewayStatus(ap);
+            } finally {
+                releasePermits();
+            }
+        }, executorService);
+    }
+
+    private AccessPointStatusDTO probe(AccessPoint ap) throws InterruptedException {
+        acquirePermits();
+        try {
+            return gatewaysCheckerService.getGatewayStatus(ap);
+        } finally {
+            releasePermits();
+        }
+    }
+
+    /**
+     * Starts the async probe once the permits are taken, they are released when the probe
+     * completes. Cancelling the returned future does not cancel the probe, so the permits are
+     * never released before the probe is done.
+     */
+    private CompletableFuture<AccessPointStatusDTO> probeAsync(
+        Supplier<CompletableFuture<AccessPointStatusDTO>> asyncProbe) {
+        var result = new CompletableFuture<AccessPointStatusDTO>();
+        executorService.execute(() -> {
+            try {
+                acquirePermits();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.completeExceptionally(e);
+                return;
+            }
+            CompletableFuture<AccessPointStatusDTO> probe;
+            try {
+                probe = asyncProbe.get();
+            } catch (RuntimeException e) {
+                releasePermits();
+                result.completeExceptionally(e);
+                return;
+            }
+            probe.whenComplete((status, e) -> {
+                releasePermits();
+                if (e != null) {
+                    result.completeExceptionally(e);
+                } else {
+                    result.complete(status);
+                }
+            });
+        });
+        return result;
+    }
+
+    private void acquirePermits() throws InterruptedException {
+        probePermits.acquire();
+        if (probeCapacity != null) {
+            try {
+                probeCapacity.acquire();
+            } catch (InterruptedException e) {
+                probePermits.release();
+                throw e;
+            }
+        }
+    }
+
+    private void releasePermits() {
+        if (probeCapacity != null) {
+            probeCapacity.release();
+        }
+        probePermits.release();
+    }
+
+    private AccessPointStatusDTO awaitProbe(
+        AccessPoint ap, Future<AccessPointStatusDTO> future, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // the probe is not interrupted, an interrupted probe would cache a failure for the
+            // other callers, it finishes within its own timeouts
+            LOGGER.warn("Probing [{}] did not finish in time, reporting it as timed out", ap);
+            return timedOutStatus(ap);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return timedOutStatus(ap);
+        } catch (ExecutionException e) {
+            LOGGER.error("Probing [{}] failed", ap, e.getCause());
+            var status = newStatus(ap);
+            var checkResultDTO = new CheckResultDTO();
+            checkResultDTO.setName("Probe failure");
+            checkResultDTO.setMessage(String.valueOf(e.getCause().getMessage()));
+            checkResultDTO.writeStackTraceIntoDetails(e);
+            status.getFailures().add(checkResultDTO);
+            return status;
+        }
+    }
+
+    private AccessPointStatusDTO timedOutStatus(AccessPoint ap) {
+        var status = newStatus(ap);
+        var checkResultDTO = new CheckResultDTO();
+        checkResultDTO.setName(TIMEOUT_CHECK_NAME);
+        checkResultDTO.setMessage("Gateway did not answer within the probe deadline!");
+        status.getFailures().add(checkResultDTO);
+        return status;
+    }
+
+    private AccessPointStatusDTO newStatus(AccessPoint ap) {
+        var status = new AccessPointStatusDTO();
+        status.setCheckTime(ZonedDateTime.now());
+        status.setName(ap.getName());
+        status.setEndpoint(ap.getEndpoint());
+        return status;
+    }
+}
@@ -12,6 +12,8 @@ package eu.ecodex.utils.monitor.gw.service;
 
 import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
 import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import eu.ecodex.utils.monitor.gw.dto.GatewayHistoryDTO;
+import java.time.Duration;
 import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
@@ -22,23 +24,24 @@ import org.springframework.boot.actuate.endpoint.annotation.Selector;
  * Endpoint to provide information about the reachability status of configured gateways.
  *
  * <p>This class provides operations to retrieve the status of all configured gateways as well as
- * the status of a specific gateway based on its name. The information is gathered by interacting
- * with the ConfiguredGatewaysService and GatewaysCheckerService.
+ * the status of a specific gateway based on its name. The gateways are probed in the background by
+ * the GatewayStatusRefresher, the endpoint answers with the latest probe results. The recorded
+ * probe results and the availability of a gateway are available at
+ * {@code gateways/{name}/{period}}.
  */
 @Endpoint(id = "gateways")
 public class GatewayReachableEndpoint {
     @Autowired
     ConfiguredGatewaysService configuredGatewaysService;
     @Autowired
-    GatewaysCheckerService checkerService;
+    GatewayStatusRefresher statusRefresher;
+    @Autowired
+    GatewayStatusHistory statusHistory;
 
     @ReadOperation
     List<AccessPointStatusDTO> accessPointStatusList() {
-        return configuredGatewaysService
-            .getConfiguredGatewaysWithSelf()
-            .stream()
-            .map(ap -> checkerService.getGatewayStatus(ap))
-            .toList();
+        return statusRefresher.getLatestStatuses(
+            configuredGatewaysService.getConfiguredGatewaysWithSelf());
     }
 
     /**
@@ -56,6 +59,19 @@ public class GatewayReachableEndpoint {
         if (byName == null) {
             return dto;
         }
-        return checkerService.getGatewayStatus(byName);
+        return statusRefresher.getLatestStatus(byName);
+    }
+
+    /**
+     * Retrieves the recorded probe results of an access point and its availability.
+     *
+     * @param endpointName The name of the access point.
+     * @param period       How far to look back, eg. {@code 24h} or {@code 7d}.
+     * @return A {@link GatewayHistoryDTO} with the probe results within the period, older results
+     *         are rolled up. If nothing has been recorded the availability is null.
+     */
+    @ReadOperation
+    public GatewayHistoryDTO getHistory(@Selector String endpointName, @Selector Duration period) {
+        return statusHistory.getHistory(endpointName, period);
     }
 }
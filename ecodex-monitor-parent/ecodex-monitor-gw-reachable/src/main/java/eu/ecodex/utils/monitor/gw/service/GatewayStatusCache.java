@@ -0,0 +1,341 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Thread safe cache for the results of the gateway checks.
+ *
+ * <p>Entries expire after the configured cache timeout and the cache is bounded to
+ * {@code monitor.gw.check-cache-max-size} entries, if it grows
+ * beyond that the entries with the oldest check time are evicted. Loading is single-flight: if
+ * several threads miss the same access point at the same time only one of them runs the probe, the
+ * others wait for its result.
+ *
+ * <p>The last loaded status of every access point is kept until it is replaced by a newer one, so
+ * {@link #getLatest(AccessPoint)} can answer without waiting even while the entry is reloaded.
+ *
+ * <p>Every loaded status is also appended to the {@link GatewayStatusHistory} if available.
+ *
+ * <p>When the configured access points change only the entries of the removed access points and of
+ * the access points whose endpoint has changed are invalidated, see
+ * {@link #onAccessPointsChanged(AccessPointsChangedEvent)}.
+ *
+ * <p>Hits, misses and the load time are counted and registered as metrics if a
+ * {@link MeterRegistry} is available.
+ */
+@Component
+public class GatewayStatusCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GatewayStatusCache.class);
+    public static final String METRIC_PREFIX = "monitor.gw.status.cache";
+    @Autowired
+    GatewayMonitorConfigurationProperties gatewayMonitorConfig;
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
+    @Autowired(required = false)
+    GatewayStatusHistory statusHistory;
+    private final Map<AccessPoint, CompletableFuture<AccessPointStatusDTO>> entries =
+        new ConcurrentHashMap<>();
+    private final Map<AccessPoint, AccessPointStatusDTO> latest = new ConcurrentHashMap<>();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder totalLoadTimeNanos = new LongAdder();
+    private Timer loadTimer;
+
+    /**
+     * Registers the cache metrics if a {@link MeterRegistry} is available.
+     */
+    @PostConstruct
+    public void init() {
+        if (meterRegistry == null) {
+            return;
+        }
+        FunctionCounter.builder(METRIC_PREFIX + ".requests", hitCount, LongAdder::doubleValue)
+                       .tag("result", "hit")
+                       .description("Number of gateway status requests answered from the cache")
+                       .register(meterRegistry);
+        FunctionCounter.builder(METRIC_PREFIX + ".requests", missCount, LongAdder::doubleValue)
+                       .tag("result", "miss")
+                       .description("Number of gateway status requests which required a probe")
+                       .register(meterRegistry);
+        FunctionCounter.builder(
+                           METRIC_PREFIX + ".evictions", evictionCount, LongAdder::doubleValue)
+                       .description("Number of entries evicted because the cache was full")
+                       .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".size", entries, Map::size)
+             .description("Number of cached gateway states")
+             .register(meterRegistry);
+        loadTimer = Timer.builder(METRIC_PREFIX + ".load")
+                         .description("Time needed to probe a gateway on a cache miss")
+                         .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached status of the access point or loads it with the given loader if there is
+     * no cached status or the cached status is older than the given time to live.
+     *
+     * @param ap         the access point
+     * @param timeToLive how long a cached status is valid
+     * @param loader     the function probing the access point
+     * @return the cached or freshly loaded status
+     */
+    public AccessPointStatusDTO get(
+        AccessPoint ap, Duration timeToLive,
+        Function<AccessPoint, AccessPointStatusDTO> loader) {
+        while (true) {
+            var cached = entries.get(ap);
+            if (cached == null) {
+                var loading = new CompletableFuture<AccessPointStatusDTO>();
+                if (entries.putIfAbsent(ap, loading) == null) {
+                    return load(ap, loading, loader);
+                }
+            } else if (!cached.isDone()) {
+                hitCount.increment();
+                LOGGER.trace("Waiting for running check of [{}]", ap);
+                return join(cached);
+            } else {
+                var status = cached.getNow(null);
+                if (status != null && isFresh(status, timeToLive)) {
+                    hitCount.increment();
+                    LOGGER.trace(
+                        "Checking [{}] and hitting [{}] + [{}] cache last check was on [{}]", ap,
+                        ZonedDateTime.now(), timeToLive, status.getCheckTime()
+                    );
+                    return status;
+                }
+                var loading = new CompletableFuture<AccessPointStatusDTO>();
+                if (entries.replace(ap, cached, loading)) {
+                    return load(ap, loading, loader);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the cached status of the access point or starts loading it with the given
+     * non-blocking loader if there is no cached status or the cached status is older than the given
+     * time to live. A running load is shared like in
+     * {@link #get(AccessPoint, Duration, Function)}, but never awaited.
+     *
+     * @param ap         the access point
+     * @param timeToLive how long a cached status is valid
+     * @param loader     the function starting the probe of the access point
+     * @return future completed with the cached or freshly loaded status
+     */
+    public CompletableFuture<AccessPointStatusDTO> getAsync(
+        AccessPoint ap, Duration timeToLive,
+        Function<AccessPoint, CompletableFuture<AccessPointStatusDTO>> loader) {
+        while (true) {
+            var cached = entries.get(ap);
+            if (cached == null) {
+                var loading = new CompletableFuture<AccessPointStatusDTO>();
+                if (entries.putIfAbsent(ap, loading) == null) {
+                    return loadAsync(ap, loading, loader);
+                }
+            } else if (!cached.isDone()) {
+                hitCount.increment();
+                return cached.copy();
+            } else {
+                var status = cached.getNow(null);
+                if (status != null && isFresh(status, timeToLive)) {
+                    hitCount.increment();
+                    return CompletableFuture.completedFuture(status);
+                }
+                var loading = new CompletableFuture<AccessPointStatusDTO>();
+                if (entries.replace(ap, cached, loading)) {
+                    return loadAsync(ap, loading, loader);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the cached status of the access point.
+     *
+     * @param ap the access point
+     */
+    public void invalidate(AccessPoint ap) {
+        entries.remove(ap);
+        latest.remove(ap);
+    }
+
+    /**
+     * Invalidates the entries of the removed access points and the entries of the old endpoints of
+     * the changed access points, the entries of all other access points are kept.
+     *
+     * @param event the changes of the configured access points
+     */
+    @EventListener
+    public void onAccessPointsChanged(AccessPointsChangedEvent event) {
+        var diff = event.getDiff();
+        diff.getRemoved().forEach(this::invalidate);
+        diff.getChanged().forEach(change -> invalidate(change.previous()));
+        LOGGER.debug("Invalidated [{}] removed and [{}] changed access points",
+            diff.getRemoved().size(), diff.getChanged().size());
+    }
+
+    /**
+     * Returns the last loaded status of the access point regardless of its age.
+     *
+     * @param ap the access point
+     * @return the last loaded status or null if the access point has not been checked yet
+     */
+    public AccessPointStatusDTO getLatest(AccessPoint ap) {
+        return latest.get(ap);
+    }
+
+    /**
+     * Checks if the status of the access point is currently being loaded.
+     *
+     * @param ap the access point
+     * @return true if a check of the access point is running
+     */
+    public boolean isLoading(AccessPoint ap) {
+        var cached = entries.get(ap);
+        return cached != null && !cached.isDone();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public Duration getTotalLoadTime() {
+        return Duration.ofNanos(totalLoadTimeNanos.sum());
+    }
+
+    private AccessPointStatusDTO load(
+        AccessPoint ap, CompletableFuture<AccessPointStatusDTO> loading,
+        Function<AccessPoint, AccessPointStatusDTO> loader) {
+        missCount.increment();
+        long start = System.nanoTime();
+        try {
+            var status = loader.apply(ap);
+            loaded(ap, status);
+            loading.complete(status);
+            evictIfNecessary();
+            return status;
+        } catch (RuntimeException e) {
+            entries.remove(ap, loading);
+            loading.completeExceptionally(e);
+            throw e;
+        } finally {
+            recordLoadTime(start);
+        }
+    }
+
+    private CompletableFuture<AccessPointStatusDTO> loadAsync(
+        AccessPoint ap, CompletableFuture<AccessPointStatusDTO> loading,
+        Function<AccessPoint, CompletableFuture<AccessPointStatusDTO>> loader) {
+        missCount.increment();
+        long start = System.nanoTime();
+        CompletableFuture<AccessPointStatusDTO> probe;
+        try {
+            probe = loader.apply(ap);
+        } catch (RuntimeException e) {
+            probe = CompletableFuture.failedFuture(e);
+        }
+        probe.whenComplete((status, e) -> {
+            recordLoadTime(start);
+            if (e != null) {
+                entries.remove(ap, loading);
+                loading.completeExceptionally(e);
+            } else {
+                loaded(ap, status);
+                loading.complete(status);
+                evictIfNecessary();
+            }
+        });
+        return loading.copy();
+    }
+
+    private void loaded(AccessPoint ap, AccessPointStatusDTO status) {
+        latest.put(ap, status);
+        if (statusHistory != null) {
+            statusHistory.record(ap, status);
+        }
+    }
+
+    private void recordLoadTime(long start) {
+        long duration = System.nanoTime() - start;
+        totalLoadTimeNanos.add(duration);
+        if (loadTimer != null) {
+            loadTimer.record(duration, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void evictIfNecessary() {
+        int maxSize = gatewayMonitorConfig.getCheckCacheMaxSize();
+        int overflow = entries.size() - maxSize;
+        if (overflow <= 0) {
+            return;
+        }
+        entries.entrySet().stream()
+               .filter(e -> e.getValue().isDone() && e.getValue().getNow(null) != null)
+               .sorted(Comparator.comparing(e -> e.getValue().getNow(null).getCheckTime()))
+               .limit(overflow)
+               .toList()
+               .forEach(e -> {
+                   if (entries.remove(e.getKey(), e.getValue())) {
+                       latest.remove(e.getKey());
+                       evictionCount.increment();
+                       LOGGER.debug("Evicted [{}] from gateway status cache", e.getKey());
+                   }
+               });
+    }
+
+    private static boolean isFresh(AccessPointStatusDTO status, Duration timeToLive) {
+        return status.getCheckTime() != null
+            && status.getCheckTime().plus(timeToLive).isAfter(ZonedDateTime.now());
+    }
+
+    private static AccessPointStatusDTO join(CompletableFuture<AccessPointStatusDTO> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,424 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import eu.ecodex.utils.monitor.gw.dto.GatewayHistoryDTO;
+import eu.ecodex.utils.monitor.gw.dto.HistoryEntryDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.apache.hc.core5.http.ProtocolVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the history of the probe results of every access point.
+ *
+ * <p>Every probe result is stored as a compact record of the probe time, the outcome, the latency
+ * and the negotiated TLS version. Periodically the records older than
+ * {@code monitor.gw.history.raw-retention} are rolled up into buckets of
+ * {@code monitor.gw.history.rollup-interval}, which only count the probes, failures and
+ * latencies, and buckets older than {@code monitor.gw.history.rollup-retention} are removed.
+ *
+ * <p>If {@code monitor.gw.history.directory} is set, each access point has two files there:
+ * {@value #PROBE_FILE_SUFFIX} with the probe records, which are appended as the results arrive,
+ * and {@value #ROLLUP_FILE_SUFFIX} with the buckets. Both are rewritten on compaction. The records
+ * have a fixed size, a partially written record at the end of a file is dropped on load.
+ */
+@Component
+public class GatewayStatusHistory {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GatewayStatusHistory.class);
+    static final String PROBE_FILE_SUFFIX = ".probes";
+    static final String ROLLUP_FILE_SUFFIX = ".rollups";
+    // epoch second, latency millis, failed flag, tls version
+    private static final int PROBE_RECORD_SIZE = Long.BYTES + Integer.BYTES + 2;
+    // bucket start, probes, failures, latency samples, latency sum, latency max
+    private static final int ROLLUP_RECORD_SIZE = 2 * Long.BYTES + 4 * Integer.BYTES;
+    private static final String TLS_PROTOCOL = "TLS";
+    @Autowired
+    GatewayMonitorConfigurationProperties gatewayMonitorConfig;
+    Clock clock = Clock.systemDefaultZone();
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Loads the stored history and schedules the compaction if the history is enabled.
+     */
+    @PostConstruct
+    public void init() {
+        var config = gatewayMonitorConfig.getHistory();
+        if (!config.isEnabled()) {
+            LOGGER.info("History of the gateway status is disabled");
+            return;
+        }
+        loadStoredSeries(config.getDirectory());
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "gw-status-history-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = config.getCompactionInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::compact, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the compaction.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Appends the probe result to the history of the access point. Statuses reported by the
+     * {@link GatewayCircuitBreaker} instead of a probe are not recorded.
+     *
+     * @param ap     the probed access point
+     * @param status the result of the probe
+     */
+    public void record(AccessPoint ap, AccessPointStatusDTO status) {
+        if (!gatewayMonitorConfig.getHistory().isEnabled() || status == null
+            || GatewayCircuitBreaker.isRejected(status)) {
+            return;
+        }
+        var time = status.getCheckTime() != null
+            ? status.getCheckTime().toInstant() : clock.instant();
+        var timings = status.getTimings();
+        int latency = timings != null && timings.getTotal() != null
+            ? (int) Math.min(Integer.MAX_VALUE, timings.getTotal().toMillis()) : -1;
+        seriesOf(ap.getName()).append(new ProbeRecord(
+            time.getEpochSecond(), latency, !status.getFailures().isEmpty(),
+            encodeTls(status.getUsedTls())
+        ));
+    }
+
+    /**
+     * Returns the probe results of the access point within the given period together with the
+     * availability, which is the percentage of probes without failures.
+     *
+     * @param name   the name of the access point
+     * @param period how far to look back from now
+     * @return the history of the access point, without entries if nothing has been recorded
+     */
+    public GatewayHistoryDTO getHistory(String name, Duration period) {
+        var now = clock.instant();
+        var from = now.minus(period);
+        var dto = new GatewayHistoryDTO();
+        dto.setName(name);
+        dto.setFrom(ZonedDateTime.ofInstant(from, clock.getZone()));
+        dto.setTo(ZonedDateTime.ofInstant(now, clock.getZone()));
+        // the name comes from the caller, only access points with a history are looked up
+        var s = gatewayMonitorConfig.getHistory().isEnabled() ? series.get(name) : null;
+        if (s != null) {
+            s.collect(from.getEpochSecond(), dto);
+        }
+        for (HistoryEntryDTO entry : dto.getEntries()) {
+            dto.setProbes(dto.getProbes() + entry.getProbes());
+            dto.setFailures(dto.getFailures() + entry.getFailures());
+        }
+        if (dto.getProbes() > 0) {
+            dto.setAvailabilityPercent(
+                100.0 * (dto.getProbes() - dto.getFailures()) / dto.getProbes());
+        }
+        return dto;
+    }
+
+    /**
+     * Rolls up the probe records older than the raw retention and removes expired buckets.
+     */
+    public void compact() {
+        var config = gatewayMonitorConfig.getHistory();
+        long now = clock.instant().getEpochSecond();
+        long rawCutoff = now - config.getRawRetention().toSeconds();
+        long rollupCutoff = now - config.getRollupRetention().toSeconds();
+        long interval = Math.max(1, config.getRollupInterval().toSeconds());
+        for (Series s : series.values()) {
+            try {
+                s.compact(rawCutoff, rollupCutoff, interval);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Compaction of the history of [{}] failed", s.name, e);
+            }
+        }
+    }
+
+    int getSeriesCount() {
+        return series.size();
+    }
+
+    private Series seriesOf(String name) {
+        return series.computeIfAbsent(
+            name, n -> new Series(n, gatewayMonitorConfig.getHistory().getDirectory()));
+    }
+
+    private void loadStoredSeries(Path directory) {
+        if (directory == null || !Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                 .filter(file -> file.endsWith(PROBE_FILE_SUFFIX)
+                     || file.endsWith(ROLLUP_FILE_SUFFIX))
+                 .map(file -> file.substring(0, file.lastIndexOf('.')))
+                 .distinct()
+                 .forEach(file -> seriesOf(URLDecoder.decode(file, StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            LOGGER.warn("Cannot read the gateway status history from [{}]", directory, e);
+        }
+    }
+
+    private static byte encodeTls(ProtocolVersion tls) {
+        if (tls == null) {
+            return 0;
+        }
+        return (byte) ((tls.getMajor() & 0xF) << 4 | tls.getMinor() & 0xF);
+    }
+
+    private static String decodeTls(byte tls) {
+        if (tls == 0) {
+            return null;
+        }
+        return new ProtocolVersion(TLS_PROTOCOL, tls >> 4 & 0xF, tls & 0xF).toString();
+    }
+
+    private record ProbeRecord(long epochSecond, int latencyMillis, boolean failed, byte tls) {
+    }
+
+    private record Rollup(long bucketStart, int probes, int failures, int latencySamples,
+                          long latencySumMillis, int latencyMaxMillis) {
+
+        Rollup add(ProbeRecord probe) {
+            boolean hasLatency = probe.latencyMillis() >= 0;
+            return new Rollup(
+                bucketStart, probes + 1, failures + (probe.failed() ? 1 : 0),
+                latencySamples + (hasLatency ? 1 : 0),
+                latencySumMillis + (hasLatency ? probe.latencyMillis() : 0),
+                Math.max(latencyMaxMillis, probe.latencyMillis())
+            );
+        }
+    }
+
+    /**
+     * The history of one access point, all methods are synchronized on the series.
+     */
+    private static final class Series {
+        private final String name;
+        private final Path probeFile;
+        private final Path rollupFile;
+        private final List<ProbeRecord> probes = new ArrayList<>();
+        private final TreeMap<Long, Rollup> rollups = new TreeMap<>();
+
+        Series(String name, Path directory) {
+            this.name = name;
+            if (directory == null) {
+                this.probeFile = null;
+                this.rollupFile = null;
+                return;
+            }
+            var fileName = URLEncoder.encode(name, StandardCharsets.UTF_8);
+            this.probeFile = directory.resolve(fileName + PROBE_FILE_SUFFIX);
+            this.rollupFile = directory.resolve(fileName + ROLLUP_FILE_SUFFIX);
+            load();
+        }
+
+        synchronized void append(ProbeRecord probe) {
+            probes.add(probe);
+            if (probeFile == null) {
+                return;
+            }
+            var buffer = ByteBuffer.allocate(PROBE_RECORD_SIZE);
+            writeProbe(buffer, probe);
+            try {
+                Files.createDirectories(probeFile.getParent());
+                Files.write(
+                    probeFile, buffer.array(), StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND
+                );
+            } catch (IOException e) {
+                LOGGER.warn("Cannot append the probe result of [{}] to [{}]", name, probeFile, e);
+            }
+        }
+
+        synchronized void collect(long fromEpochSecond, GatewayHistoryDTO dto) {
+            var zone = dto.getTo().getZone();
+            for (Rollup rollup : rollups.values()) {
+                if (rollup.bucketStart() < fromEpochSecond) {
+                    continue;
+                }
+                var entry = new HistoryEntryDTO();
+                entry.setTime(toTime(rollup.bucketStart(), zone));
+                entry.setProbes(rollup.probes());
+                entry.setFailures(rollup.failures());
+                if (rollup.latencySamples() > 0) {
+                    entry.setAverageLatencyMillis(
+                        rollup.latencySumMillis() / rollup.latencySamples());
+                    entry.setMaxLatencyMillis((long) rollup.latencyMaxMillis());
+                }
+                dto.getEntries().add(entry);
+            }
+            for (ProbeRecord probe : probes) {
+                if (probe.epochSecond() < fromEpochSecond) {
+                    continue;
+                }
+                var entry = new HistoryEntryDTO();
+                entry.setTime(toTime(probe.epochSecond(), zone));
+                entry.setProbes(1);
+                entry.setFailures(probe.failed() ? 1 : 0);
+                if (probe.latencyMillis() >= 0) {
+                    entry.setAverageLatencyMillis((long) probe.latencyMillis());
+                    entry.setMaxLatencyMillis((long) probe.latencyMillis());
+                }
+                entry.setTls(decodeTls(probe.tls()));
+                dto.getEntries().add(entry);
+            }
+        }
+
+        synchronized void compact(long rawCutoff, long rollupCutoff, long interval) {
+            boolean changed = false;
+            var iterator = probes.iterator();
+            while (iterator.hasNext()) {
+                var probe = iterator.next();
+                if (probe.epochSecond() >= rawCutoff) {
+                    continue;
+                }
+                long bucket = Math.floorDiv(probe.epochSecond(), interval) * interval;
+                rollups.merge(
+                    bucket, new Rollup(bucket, 0, 0, 0, 0, -1).add(probe),
+                    (existing, added) -> existing.add(probe)
+                );
+                iterator.remove();
+                changed = true;
+            }
+            var expired = rollups.headMap(rollupCutoff - interval, true);
+            if (!expired.isEmpty()) {
+                expired.clear();
+                changed = true;
+            }
+            if (changed) {
+                store();
+            }
+        }
+
+        private void load() {
+            var probeData = read(probeFile, PROBE_RECORD_SIZE);
+            while (probeData.remaining() >= PROBE_RECORD_SIZE) {
+                probes.add(new ProbeRecord(
+                    probeData.getLong(), probeData.getInt(), probeData.get() != 0,
+                    probeData.get()
+                ));
+            }
+            var rollupData = read(rollupFile, ROLLUP_RECORD_SIZE);
+            while (rollupData.remaining() >= ROLLUP_RECORD_SIZE) {
+                var rollup = new Rollup(
+                    rollupData.getLong(), rollupData.getInt(), rollupData.getInt(),
+                    rollupData.getInt(), rollupData.getLong(), rollupData.getInt()
+                );
+                rollups.put(rollup.bucketStart(), rollup);
+            }
+            if (probeData.limit() < probeData.capacity()) {
+                // drop the partially written record, otherwise new records would be misaligned
+                store();
+            }
+        }
+
+        private ByteBuffer read(Path file, int recordSize) {
+            if (!Files.isRegularFile(file)) {
+                return ByteBuffer.allocate(0);
+            }
+            try {
+                var buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+                int partial = buffer.capacity() % recordSize;
+                if (partial != 0) {
+                    LOGGER.warn(
+                        "Dropping [{}] bytes of an incomplete record in [{}]", partial, file);
+                    buffer.limit(buffer.capacity() - partial);
+                }
+                return buffer;
+            } catch (IOException e) {
+                LOGGER.warn("Cannot read the gateway status history from [{}]", file, e);
+                return ByteBuffer.allocate(0);
+            }
+        }
+
+        private void store() {
+            if (probeFile == null) {
+                return;
+            }
+            var probeData = ByteBuffer.allocate(probes.size() * PROBE_RECORD_SIZE);
+            probes.forEach(probe -> writeProbe(probeData, probe));
+            var rollupData = ByteBuffer.allocate(rollups.size() * ROLLUP_RECORD_SIZE);
+            for (Rollup rollup : rollups.values()) {
+                rollupData.putLong(rollup.bucketStart())
+                          .putInt(rollup.probes())
+                          .putInt(rollup.failures())
+                          .putInt(rollup.latencySamples())
+                          .putLong(rollup.latencySumMillis())
+                          .putInt(rollup.latencyMaxMillis());
+            }
+            try {
+                // write the rollups first, a crash in between may count a probe twice but never
+                // loses it
+                replace(rollupFile, rollupData.array());
+                replace(probeFile, probeData.array());
+            } catch (IOException e) {
+                LOGGER.warn("Cannot write the gateway status history of [{}]", name, e);
+            }
+        }
+
+        private static void replace(Path file, byte[] data) throws IOException {
+            var directory = file.getParent();
+            Files.createDirectories(directory);
+            var tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            Files.write(tmp, data);
+            Files.move(
+                tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        private static void writeProbe(ByteBuffer buffer, ProbeRecord probe) {
+            buffer.putLong(probe.epochSecond())
+                  .putInt(probe.latencyMillis())
+                  .put((byte) (probe.failed() ? 1 : 0))
+                  .put(probe.tls());
+        }
+
+        private static ZonedDateTime toTime(long epochSecond, ZoneId zone) {
+            return ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), zone);
+        }
+    }
+}
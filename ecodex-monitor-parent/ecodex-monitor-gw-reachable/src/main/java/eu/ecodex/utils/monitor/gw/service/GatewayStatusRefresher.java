@@ -0,0 +1,215 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Probes the configured gateways in the background and serves the latest results.
+ *
+ * <p>Every gateway is probed again after
+ * {@code monitor.gw.probe.refresh-ahead-ratio} of the check
+ * cache timeout, reduced by a random jitter, so the new result is available before the cached one
+ * expires and the probes of many gateways are spread over time. The endpoint and the health
+ * indicator read the latest result from the {@link GatewayStatusCache} without waiting for a probe,
+ * even if the result is stale and currently being refreshed. Only gateways which have never been
+ * checked are probed inline.
+ *
+ * <p>When the configured access points change, the access points whose endpoint has changed are
+ * probed with the next refresh check, added access points are spread by the jitter like on start
+ * up and all other access points keep their schedule.
+ *
+ * <p>If the background refresh is disabled the gateways are probed inline on every request which
+ * misses the cache.
+ */
+@Component
+public class GatewayStatusRefresher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GatewayStatusRefresher.class);
+    @Autowired
+    GatewayMonitorConfigurationProperties gatewayMonitorConfig;
+    @Autowired
+    ConfiguredGatewaysService configuredGatewaysService;
+    @Autowired
+    GatewayProbeExecutor probeExecutor;
+    @Autowired
+    GatewayStatusCache gatewayStatusCache;
+    private final Map<AccessPoint, Long> nextRefresh = new ConcurrentHashMap<>();
+    private final Set<AccessPoint> running = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Starts the background refresh if it is enabled.
+     */
+    @PostConstruct
+    public void init() {
+        var probe = gatewayMonitorConfig.getProbe();
+        if (!probe.isBackgroundRefresh()) {
+            LOGGER.info("Background refresh of the gateway status is disabled");
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "gw-status-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = probe.getRefreshCheckInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(
+            this::refreshDueGateways, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background refresh.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the latest status of the access point, the access point is only probed inline if it
+     * has never been checked or the background refresh is disabled.
+     *
+     * @param ap the access point
+     * @return the latest status of the access point
+     */
+    public AccessPointStatusDTO getLatestStatus(AccessPoint ap) {
+        return getLatestStatuses(List.of(ap)).getFirst();
+    }
+
+    /**
+     * Returns the latest status of every access point in the order of the given collection. Access
+     * points without a result are probed in parallel by the {@link GatewayProbeExecutor}.
+     *
+     * @param accessPoints the access points
+     * @return the latest status of each access point
+     */
+    public List<AccessPointStatusDTO> getLatestStatuses(Collection<AccessPoint> accessPoints) {
+        return getLatestStatuses(
+            accessPoints, gatewayMonitorConfig.getProbe().getOverallTimeout());
+    }
+
+    /**
+     * Returns the latest status of every access point in the order of the given collection. Access
+     * points without a result are probed in parallel, access points which have not answered within
+     * the timeout are reported as timed out.
+     *
+     * @param accessPoints the access points
+     * @param timeout      how long to wait for the probes of access points without a result
+     * @return the latest status of each access point
+     */
+    public List<AccessPointStatusDTO> getLatestStatuses(
+        Collection<AccessPoint> accessPoints, Duration timeout) {
+        if (scheduler == null) {
+            return probeExecutor.getGatewayStatuses(accessPoints, timeout);
+        }
+        Map<AccessPoint, AccessPointStatusDTO> statuses = new LinkedHashMap<>();
+        List<AccessPoint> unchecked = new ArrayList<>();
+        for (AccessPoint ap : accessPoints) {
+            var status = gatewayStatusCache.getLatest(ap);
+            statuses.put(ap, status);
+            if (status == null) {
+                unchecked.add(ap);
+            }
+        }
+        if (!unchecked.isEmpty()) {
+            LOGGER.debug("No probe result available for [{}], probing inline", unchecked);
+            var probed = probeExecutor.getGatewayStatuses(unchecked, timeout);
+            for (int i = 0; i < unchecked.size(); i++) {
+                statuses.put(unchecked.get(i), probed.get(i));
+            }
+        }
+        return new ArrayList<>(statuses.values());
+    }
+
+    /**
+     * Schedules the changed access points for an immediate probe and forgets the removed ones.
+     *
+     * @param event the changes of the configured access points
+     */
+    @EventListener
+    public void onAccessPointsChanged(AccessPointsChangedEvent event) {
+        if (scheduler == null) {
+            return;
+        }
+        var diff = event.getDiff();
+        long now = System.nanoTime();
+        diff.getRemoved().forEach(nextRefresh::remove);
+        diff.getChanged().forEach(change -> {
+            nextRefresh.remove(change.previous());
+            nextRefresh.put(change.current(), now);
+        });
+    }
+
+    void refreshDueGateways() {
+        try {
+            Set<AccessPoint> accessPoints =
+                new HashSet<>(configuredGatewaysService.getConfiguredGatewaysWithSelf());
+            nextRefresh.keySet().retainAll(accessPoints);
+            long now = System.nanoTime();
+            for (AccessPoint ap : accessPoints) {
+                long due = nextRefresh.computeIfAbsent(ap, a -> now + randomJitter());
+                if (due - now <= 0 && running.add(ap)) {
+                    LOGGER.trace("Refreshing status of [{}] in background", ap);
+                    probeExecutor.refresh(ap).whenComplete((status, e) -> {
+                        if (e != null) {
+                            LOGGER.warn("Background refresh of [{}] failed", ap, e);
+                        }
+                        nextRefresh.put(ap, System.nanoTime() + nextRefreshDelay());
+                        running.remove(ap);
+                    });
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Error while refreshing the gateway states", e);
+        }
+    }
+
+    private long nextRefreshDelay() {
+        var probe = gatewayMonitorConfig.getProbe();
+        long timeToLive = gatewayMonitorConfig.getCheckCacheTimeout().toNanos();
+        long refreshAfter = (long) (timeToLive * probe.getRefreshAheadRatio()) - randomJitter();
+        return Math.max(probe.getRefreshCheckInterval().toNanos(), refreshAfter);
+    }
+
+    private long randomJitter() {
+        long timeToLive = gatewayMonitorConfig.getCheckCacheTimeout().toNanos();
+        long maxJitter = Math.min(
+            gatewayMonitorConfig.getProbe().getRefreshJitter().toNanos(), timeToLive / 2);
+        if (maxJitter <= 0) {
+            return 0;
+        }
+        return ThreadLocalRandom.current().nextLong(maxJitter);
+    }
+}
@@ -0,0 +1,399 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import eu.domibus.connector.lib.spring.configuration.StoreConfigurationProperties;
+import eu.domibus.connector.lib.spring.configuration.TLSConnectionProperties;
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.config.ProbeProperties;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyManagementException;
+import java.security.KeyStoreException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.UnrecoverableKeyException;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import javax.net.ssl.SSLContext;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.DefaultHostnameVerifier;
+import org.apache.hc.core5.http.ParseException;
+import org.apache.hc.core5.http.ProtocolVersion;
+import org.apache.hc.core5.http.ssl.TLS;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.ssl.SSLContexts;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+/**
+ * Provides the TLS client material which is shared by all gateway probes.
+ *
+ * <p>Loading the key and trust store, building the {@link SSLContext}, the socket factory and the
+ * pooled http client is expensive, so it is only done once. The built client is kept together with
+ * a fingerprint of the {@link TLSConnectionProperties} (including size and modification time of the
+ * configured stores) and is only rebuilt if the fingerprint changes, eg. because a store has been
+ * replaced on disk. If the async client is enabled a non-blocking http client with the same TLS
+ * material is built and started as well.
+ *
+ * <p>Every probe holds a reference to the client it uses until it releases it. A replaced client
+ * is only closed once the last of its running probes has released it, so a rebuild never breaks
+ * a running probe.
+ *
+ * <p>The {@link SSLContext} caches the TLS sessions of the probes, so later probes of a gateway
+ * can resume them. If keep alive is enabled the pooled connections are kept open between the
+ * probes until they have been idle for the keep alive timeout.
+ */
+@Component
+public class GatewayTlsClientProvider {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GatewayTlsClientProvider.class);
+    @Autowired
+    GatewayMonitorConfigurationProperties gatewayMonitorConfig;
+    @Autowired
+    TrustStoreCompleteChainTrustStrategy trustStoreCompleteChainTrustStrategy;
+    private volatile TlsClient tlsClient;
+
+    /**
+     * Returns the shared TLS client, the client is (re)built if it has not been built yet or the
+     * TLS configuration or one of the configured stores has changed since the last build. The
+     * caller has to release the client with {@code TlsClient.release()} once the probe is done.
+     *
+     * @return the shared TLS client
+     * @throws TlsClientSetupException if the SSLContext cannot be set up
+     */
+    public TlsClient getTlsClient() {
+        var tls = gatewayMonitorConfig.getTls();
+        var fingerprint = fingerprint(tls, gatewayMonitorConfig.getProbe());
+        var current = this.tlsClient;
+        if (current != null && current.fingerprint.equals(fingerprint) && current.acquire()) {
+            return current;
+        }
+        synchronized (this) {
+            current = this.tlsClient;
+            if (current != null && current.fingerprint.equals(fingerprint) && current.acquire()) {
+                return current;
+            }
+            LOGGER.info("Building TLS client for gateway checks, fingerprint [{}]", fingerprint);
+            var newClient = buildTlsClient(tls, fingerprint);
+            newClient.acquire();
+            this.tlsClient = newClient;
+            if (current != null) {
+                // closed as soon as the running probes have released it
+                current.release();
+            }
+            return newClient;
+        }
+    }
+
+    /**
+     * Closes the shared http client.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (tlsClient != null) {
+            tlsClient.close();
+            tlsClient = null;
+        }
+    }
+
+    private TlsClient buildTlsClient(TLSConnectionProperties tls, String fingerprint) {
+        char[] privateKeyPassword = tls.getPrivateKey().getPassword().toCharArray();
+
+        SSLContext sslcontext;
+        try {
+            var keyStore = tls.getKeyStore().loadKeyStore();
+            var trustStore = tls.getTrustStore().loadKeyStore();
+            trustStoreCompleteChainTrustStrategy.setTrustStore(trustStore);
+            sslcontext = SSLContexts
+                .custom()
+                .loadTrustMaterial(trustStore, trustStoreCompleteChainTrustStrategy)
+                .loadKeyMaterial(
+                    keyStore, privateKeyPassword,
+                    (aliases, sslParameters) -> tls.getPrivateKey().getAlias()
+                )
+                .build();
+        } catch (NoSuchAlgorithmException | KeyManagementException | KeyStoreException
+                 | UnrecoverableKeyException
+                 | StoreConfigurationProperties.CannotLoadKeyStoreException e) {
+            throw new TlsClientSetupException("Error while setting up SSLContext", e);
+        }
+
+        var probe = gatewayMonitorConfig.getProbe();
+        var sessionContext = sslcontext.getClientSessionContext();
+        sessionContext.setSessionCacheSize(probe.getSessionCacheSize());
+        sessionContext.setSessionTimeout((int) probe.getSessionTimeout().toSeconds());
+
+        LOGGER.trace(
+            "Client supports: [{}]", CollectionUtils.arrayToList(
+                sslcontext.getSupportedSSLParameters().getProtocols()));
+
+        ProtocolVersion[] supportedClientProtos =
+            Stream.of(sslcontext.getSupportedSSLParameters().getProtocols())
+                  .map(s -> {
+                      try {
+                          return TLS.parse(s);
+                      } catch (ParseException e) {
+                          return null;
+                      }
+                  })
+                  .filter(Objects::nonNull)
+                  .toArray(ProtocolVersion[]::new);
+        LOGGER.debug(
+            "Supported and Allowed client protocols are [{}]",
+            CollectionUtils.arrayToList(supportedClientProtos)
+        );
+
+        ProtocolVersion minTls;
+        try {
+            minTls = TLS.parse(tls.getMinTls());
+        } catch (ParseException e) {
+            throw new TlsClientSetupException("Cannot parse minTls " + tls.getMinTls(), e);
+        }
+        ProtocolVersion[] allowedTls = Stream.of(TLS.values())
+                                             .filter(t -> t.greaterEquals(minTls))
+                                             .map(t -> t.version)
+                                             .filter(p -> ArrayUtils.contains(
+                                                 supportedClientProtos, p))
+                                             .toArray(ProtocolVersion[]::new);
+        LOGGER.trace("allowed TLS protocols are [{}]", CollectionUtils.arrayToList(allowedTls));
+        if (allowedTls.length == 0) {
+            LOGGER.warn(
+                "Client supports TLS protocols [{}] but required minTls [{}] is not part of it!",
+                CollectionUtils.arrayToList(supportedClientProtos), minTls
+            );
+        }
+
+        String[] tlsVersions = Stream.of(allowedTls)
+                                     .map(GatewayTlsClientProvider::mapProtocolVersionToTLS)
+                                     .map(t -> t.id)
+                                     .toArray(String[]::new);
+
+        // records the connect and handshake time of every probe
+        var sslSocketFactory = new TimingSslSocketFactory(
+            sslcontext, tlsVersions, new DefaultHostnameVerifier());
+
+        var probeTimeout = Timeout.ofMilliseconds(probe.getProbeTimeout().toMillis());
+        var connectionConfig = ConnectionConfig.custom()
+                                               .setConnectTimeout(probeTimeout)
+                                               .setSocketTimeout(probeTimeout)
+                                               // the gateway may have closed an idle connection
+                                               .setValidateAfterInactivity(TimeValue.ofSeconds(1))
+                                               .build();
+        var maxConcurrentProbes = Math.max(1, probe.getMaxConcurrentProbes());
+        var cm = PoolingHttpClientConnectionManagerBuilder
+            .create()
+            .setSSLSocketFactory(sslSocketFactory)
+            .setDnsResolver(new TimingDnsResolver())
+            .setDefaultConnectionConfig(connectionConfig)
+            .setMaxConnTotal(maxConcurrentProbes)
+            .setMaxConnPerRoute(maxConcurrentProbes)
+            .build();
+        var requestConfig = RequestConfig.custom()
+                                         .setConnectionRequestTimeout(probeTimeout)
+                                         .setResponseTimeout(probeTimeout)
+                                         .build();
+        var httpClientBuilder = HttpClients.custom()
+                                           .setConnectionManager(cm)
+                                           .setDefaultRequestConfig(requestConfig);
+        if (probe.isKeepAlive()) {
+            // all probes use the same client certificate, so the connections carry no user state
+            httpClientBuilder.disableConnectionState()
+                             .evictIdleConnections(keepAliveTimeout(probe));
+        }
+        var httpClient = httpClientBuilder.build();
+
+        CloseableHttpAsyncClient asyncHttpClient = null;
+        if (probe.isAsyncClient()) {
+            asyncHttpClient = buildAsyncHttpClient(
+                sslcontext, tlsVersions, connectionConfig, requestConfig, maxConcurrentProbes);
+        }
+
+        return new TlsClient(
+            fingerprint, sslcontext, allowedTls, tlsVersions, httpClient, asyncHttpClient);
+    }
+
+    private CloseableHttpAsyncClient buildAsyncHttpClient(
+        SSLContext sslcontext, String[] tlsVersions, ConnectionConfig connectionConfig,
+        RequestConfig requestConfig, int maxConnections) {
+        var tlsStrategy = new HandshakeMarkingTlsStrategy(
+            sslcontext, tlsVersions, new DefaultHostnameVerifier());
+        var cm = PoolingAsyncClientConnectionManagerBuilder
+            .create()
+            .setTlsStrategy(tlsStrategy)
+            .setDefaultConnectionConfig(connectionConfig)
+            .setMaxConnTotal(maxConnections)
+            .setMaxConnPerRoute(maxConnections)
+            .build();
+        var ioReactorConfig = IOReactorConfig
+            .custom()
+            .setIoThreadCount(Math.max(1, gatewayMonitorConfig.getProbe().getIoThreads()))
+            .build();
+        var asyncHttpClientBuilder = HttpAsyncClients.custom()
+                                                     .setConnectionManager(cm)
+                                                     .setIOReactorConfig(ioReactorConfig)
+                                                     .setDefaultRequestConfig(requestConfig);
+        if (gatewayMonitorConfig.getProbe().isKeepAlive()) {
+            asyncHttpClientBuilder.disableConnectionState()
+                                  .evictIdleConnections(
+                                      keepAliveTimeout(gatewayMonitorConfig.getProbe()));
+        }
+        var asyncHttpClient = asyncHttpClientBuilder.build();
+        asyncHttpClient.start();
+        return asyncHttpClient;
+    }
+
+    private static TimeValue keepAliveTimeout(ProbeProperties probe) {
+        return TimeValue.ofMilliseconds(probe.getKeepAliveTimeout().toMillis());
+    }
+
+    private static TLS mapProtocolVersionToTLS(ProtocolVersion protocolVersion) {
+        return Stream.of(TLS.values())
+                     .filter(t -> t.isSame(protocolVersion))
+                     .findFirst()
+                     .get();
+    }
+
+    private static String fingerprint(TLSConnectionProperties tls, ProbeProperties probe) {
+        var sb = new StringBuilder();
+        appendStore(sb, tls.getKeyStore());
+        appendStore(sb, tls.getTrustStore());
+        sb.append(tls.getPrivateKey().getAlias()).append('|')
+          .append(tls.getPrivateKey().getPassword()).append('|')
+          .append(tls.getMinTls()).append('|')
+          .append(probe.getProbeTimeout()).append('|')
+          .append(probe.isAsyncClient()).append('|')
+          .append(probe.getIoThreads()).append('|')
+          .append(probe.isKeepAlive()).append('|')
+          .append(probe.getKeepAliveTimeout()).append('|')
+          .append(probe.getSessionCacheSize()).append('|')
+          .append(probe.getSessionTimeout());
+        try {
+            var digest = MessageDigest.getInstance("SHA-256")
+                                      .digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static void appendStore(StringBuilder sb, StoreConfigurationProperties store) {
+        Resource path = store.getPath();
+        sb.append(path).append('|')
+          .append(store.getType()).append('|')
+          .append(store.getPassword()).append('|');
+        try {
+            sb.append(path.lastModified()).append('|')
+              .append(path.contentLength()).append('|');
+        } catch (IOException e) {
+            LOGGER.trace("Cannot read modification time of [{}]", path, e);
+        }
+    }
+
+    /**
+     * The shared TLS material and http client used by the gateway probes.
+     */
+    public static class TlsClient {
+        final String fingerprint;
+        final SSLContext sslContext;
+        final ProtocolVersion[] allowedTls;
+        /**
+         * The allowed TLS versions as protocol names for {@link javax.net.ssl.SSLSocket}s.
+         */
+        final String[] tlsVersions;
+        final CloseableHttpClient httpClient;
+        /**
+         * The non-blocking http client, null if the async client is disabled.
+         */
+        final CloseableHttpAsyncClient asyncHttpClient;
+        /**
+         * The reference of the provider and one reference per running probe.
+         */
+        private final AtomicInteger references = new AtomicInteger(1);
+        private volatile boolean closed;
+
+        TlsClient(
+            String fingerprint, SSLContext sslContext, ProtocolVersion[] allowedTls,
+            String[] tlsVersions, CloseableHttpClient httpClient,
+            CloseableHttpAsyncClient asyncHttpClient) {
+            this.fingerprint = fingerprint;
+            this.sslContext = sslContext;
+            this.allowedTls = allowedTls;
+            this.tlsVersions = tlsVersions;
+            this.httpClient = httpClient;
+            this.asyncHttpClient = asyncHttpClient;
+        }
+
+        /**
+         * Takes a reference for a probe.
+         *
+         * @return false if the client has already been closed
+         */
+        boolean acquire() {
+            int count;
+            do {
+                count = references.get();
+                if (count == 0) {
+                    return false;
+                }
+            } while (!references.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        /**
+         * Releases a reference taken with {@link #acquire()}, the client is closed once it has been
+         * replaced and the last reference is released.
+         */
+        void release() {
+            if (references.decrementAndGet() == 0) {
+                close();
+            }
+        }
+
+        boolean isClosed() {
+            return closed;
+        }
+
+        void close() {
+            closed = true;
+            httpClient.close(CloseMode.GRACEFUL);
+            if (asyncHttpClient != null) {
+                asyncHttpClient.close(CloseMode.GRACEFUL);
+            }
+        }
+    }
+
+    /**
+     * Thrown if the TLS client cannot be set up, eg. because the key material cannot be loaded.
+     */
+    public static class TlsClientSetupException extends RuntimeException {
+        public TlsClientSetupException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
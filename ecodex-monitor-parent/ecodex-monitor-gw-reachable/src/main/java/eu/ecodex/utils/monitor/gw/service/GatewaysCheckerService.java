@@ -11,64 +11,90 @@
 package eu.ecodex.utils.monitor.gw.service;
 
 import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.config.ProbeProperties.ProbeMode;
 import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
 import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
 import eu.ecodex.utils.monitor.gw.dto.CheckResultDTO;
+import eu.ecodex.utils.monitor.gw.dto.RevocationStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
 import java.net.URISyntaxException;
-import java.security.KeyManagementException;
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
-import java.security.UnrecoverableKeyException;
+import java.nio.charset.StandardCharsets;
 import java.security.cert.Certificate;
-import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
 import java.time.Duration;
 import java.time.ZonedDateTime;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
-import java.util.stream.Stream;
-import javax.net.ssl.SSLContext;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLHandshakeException;
-import org.apache.commons.lang3.ArrayUtils;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import org.apache.hc.client5.http.DnsResolver;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpHead;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
 import org.apache.hc.client5.http.protocol.HttpClientContext;
 import org.apache.hc.client5.http.ssl.DefaultHostnameVerifier;
-import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
-import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactoryBuilder;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HeaderElements;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpStatus;
 import org.apache.hc.core5.http.ParseException;
-import org.apache.hc.core5.http.ProtocolVersion;
+import org.apache.hc.core5.http.URIScheme;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.http.ssl.TLS;
-import org.apache.hc.core5.ssl.SSLContexts;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.springframework.util.Base64Utils;
-import org.springframework.util.CollectionUtils;
 
 /**
  * Service for checking the status of gateways.
  *
  * <p>This service provides methods to get the current status of a specified gateway and caches the
- * results based on a configurable timeout duration.
+ * results based on a configurable timeout duration in the {@link GatewayStatusCache}.
  *
  * <p>The service utilizes SSL/TLS configurations to securely connect and retrieve the statuses
- * from the gateways.
+ * from the gateways. The TLS material and the http client are shared between all checks and are
+ * provided by the {@link GatewayTlsClientProvider}.
+ *
+ * <p>Depending on the {@link ProbeMode} a probe only performs the TLS handshake, sends a HEAD
+ * request or a GET request for the first bytes of the body. The response body is never read
+ * completely.
+ *
+ * <p>The duration of the DNS lookup, TCP connect, TLS handshake, first byte and of the whole probe
+ * is reported in the status and, if a {@link MeterRegistry} is available, recorded in the timer
+ * {@value #METRIC_PREFIX}.phase tagged by access point and phase.
  */
 @Component
 @SuppressWarnings("squid:S1135")
 public class GatewaysCheckerService {
     private static final Logger LOGGER = LoggerFactory.getLogger(GatewaysCheckerService.class);
+    private static final int DEFAULT_HTTPS_PORT = 443;
+    private static final DnsResolver DNS_RESOLVER = new TimingDnsResolver();
+    private static final DefaultHostnameVerifier HOSTNAME_VERIFIER = new DefaultHostnameVerifier();
+    public static final String METRIC_PREFIX = "monitor.gw.probe";
     @Autowired
     GatewayMonitorConfigurationProperties gatewayMonitorConfig;
     @Autowired
-    TrustStoreCompleteChainTrustStrategy trustStoreCompleteChainTrustStrategy;
-    private final Map<AccessPoint, AccessPointStatusDTO> apCheck = new HashMap<>();
+    GatewayTlsClientProvider tlsClientProvider;
+    @Autowired
+    GatewayStatusCache gatewayStatusCache;
+    @Autowired
+    RevocationChecker revocationChecker;
+    @Autowired
+    GatewayCircuitBreaker circuitBreaker;
+    @Autowired
+    CertificateRegistry certificateRegistry;
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
 
     public AccessPointStatusDTO getGatewayStatus(AccessPoint ap) {
         return getGatewayStatus(ap, gatewayMonitorConfig.getCheckCacheTimeout());
@@ -86,192 +112,358 @@ public class GatewaysCheckerService {
      *      connection.
      */
     public AccessPointStatusDTO getGatewayStatus(AccessPoint ap, Duration cacheTimeout) {
-        var status = apCheck.get(ap);
-        if (status != null && status.getCheckTime().plus(cacheTimeout)
-                                    .isAfter(ZonedDateTime.now())) {
-            LOGGER.trace(
-                "Checking [{}] and hitting [{}] + [{}] cache last check was on [{}]", ap,
-                ZonedDateTime.now(), cacheTimeout, status.getCheckTime()
-            );
-            return status;
-        }
-        LOGGER.info("Checking endpoint [{}]", ap);
-        status = new AccessPointStatusDTO();
-        status.setCheckTime(ZonedDateTime.now());
-        status.setEndpoint(ap.getEndpoint());
-        status.setName(ap.getName());
-        apCheck.put(ap, status);
-
-        char[] privateKeyPassword =
-            gatewayMonitorConfig.getTls().getPrivateKey().getPassword().toCharArray();
-        var keyStore = gatewayMonitorConfig.getTls().getKeyStore().loadKeyStore();
-        var trustStore = gatewayMonitorConfig.getTls().getTrustStore().loadKeyStore();
+        return gatewayStatusCache.get(ap, cacheTimeout, this::checkGateway);
+    }
 
-        var minTlsString = gatewayMonitorConfig.getTls().getMinTls();
+    /**
+     * Probes the specified gateway regardless of the age of its cached status, the new status
+     * replaces the cached one. If the gateway is already being probed the running probe is awaited.
+     *
+     * @param ap The access point representing the gateway which should be probed.
+     * @return The new status of the gateway.
+     */
+    public AccessPointStatusDTO refreshGatewayStatus(AccessPoint ap) {
+        return gatewayStatusCache.get(ap, Duration.ZERO, this::checkGateway);
+    }
 
-        SSLContext sslcontext = null;
+    private AccessPointStatusDTO checkGateway(AccessPoint ap) {
+        var rejected = circuitBreaker.rejectProbe(ap);
+        if (rejected != null) {
+            return rejected;
+        }
+        var timings = ProbeTimings.start();
+        AccessPointStatusDTO status;
         try {
-            sslcontext = SSLContexts
-                .custom()
-                .loadTrustMaterial(trustStore, trustStoreCompleteChainTrustStrategy)
-                .loadKeyMaterial(
-                    keyStore, privateKeyPassword,
-                    (aliases, sslParameters) -> gatewayMonitorConfig.getTls()
-                                                                    .getPrivateKey()
-                                                                    .getAlias()
-                )
-                .build();
-        } catch (NoSuchAlgorithmException | KeyManagementException | KeyStoreException
-                 | UnrecoverableKeyException e) {
-            LOGGER.error("Error while setting up SSLContext", e);
-            var checkResultDTO = new CheckResultDTO();
-            checkResultDTO.setName("SSLContext setup");
-            checkResultDTO.setMessage(e.getMessage());
-            checkResultDTO.writeStackTraceIntoDetails(e);
+            status = checkGateway(ap, timings);
+        } finally {
+            timings.finish();
         }
+        status.setTimings(timings.toDto());
+        recordTimings(ap, timings);
+        circuitBreaker.recordResult(ap, status);
+        return status;
+    }
 
-        LOGGER.trace(
-            "Client supports: [{}]", CollectionUtils.arrayToList(
-                sslcontext.getSupportedSSLParameters().getProtocols()));
-
-        final ProtocolVersion[] allowedTls;
-        ProtocolVersion[] supportedClientProtos =
-            Stream.of(sslcontext.getSupportedSSLParameters().getProtocols())
-                  .map(s -> {
-                      try {
-                          return TLS.parse(s);
-                      } catch (ParseException e) {
-                          return null;
-                      }
-                  })
-                  .filter(Objects::nonNull)
-                  .toArray(ProtocolVersion[]::new);
-        LOGGER.debug(
-            "Supported and Allowed client protocols are [{}]",
-            CollectionUtils.arrayToList(supportedClientProtos)
-        );
-
-        ProtocolVersion minTls;
+    private AccessPointStatusDTO checkGateway(AccessPoint ap, ProbeTimings timings) {
+        LOGGER.info("Checking endpoint [{}]", ap);
+        var status = newStatus(ap);
+        var tlsClient = getTlsClient(status);
+        if (tlsClient == null) {
+            return status;
+        }
         try {
-            minTls = TLS.parse(minTlsString);
-        } catch (ParseException e) {
-            throw new RuntimeException(e);
+            probe(ap, status, timings, tlsClient);
+        } finally {
+            tlsClient.release();
         }
-        allowedTls = Stream.of(TLS.values())
-                           .filter(tls -> tls.greaterEquals(minTls))
-                           .map(t -> t.version)
-                           .filter(p -> ArrayUtils.contains(supportedClientProtos, p))
-                           .toArray(ProtocolVersion[]::new);
-        status.setAllowedTls(allowedTls);
-
-        LOGGER.trace(
-            "allowed TLS protocols are [{}]", CollectionUtils.arrayToList(status.getAllowedTls()));
+        return status;
+    }
 
-        if (allowedTls.length == 0) {
-            var checkResultDTO = new CheckResultDTO();
-            checkResultDTO.setMessage("Client does not support minTls!");
-            status.getFailures().add(checkResultDTO);
-            LOGGER.warn(
-                "Client supports TLS protocols [{}] but required minTls [{}] is not part of it!",
-                CollectionUtils.arrayToList(supportedClientProtos), minTls
-            );
+    private void probe(
+        AccessPoint ap, AccessPointStatusDTO status, ProbeTimings timings,
+        GatewayTlsClientProvider.TlsClient tlsClient) {
+        if (gatewayMonitorConfig.getProbe().getMode() == ProbeMode.TLS_HANDSHAKE) {
+            probeTlsHandshake(ap, status, timings, tlsClient);
+            return;
         }
 
-        var defaultHostnameVerifier = new DefaultHostnameVerifier();
-
-        TLS[] tls = Stream.of(allowedTls)
-                          .map(this::mapProtocolVersionToTLS)
-                          .toArray(TLS[]::new);
-
-        final SSLConnectionSocketFactory sslSocketFactory =
-            SSLConnectionSocketFactoryBuilder.create()
-                                             .setSslContext(sslcontext)
-                                             .setTlsVersions(tls)
-                                             .setHostnameVerifier(defaultHostnameVerifier)
-                                             .build();
-
-        final var cm = PoolingHttpClientConnectionManagerBuilder.create()
-                                                                .setSSLSocketFactory(
-                                                                    sslSocketFactory)
-                                                                .build();
-        try (var httpclient = HttpClients.custom().setConnectionManager(cm).build()) {
-            final var httpRequest = new HttpGet(ap.getEndpoint());
+        try {
+            final var httpRequest = newHttpRequest(ap);
 
             LOGGER.debug(
                 "Executing request {} {}", httpRequest.getMethod(), httpRequest.getUri()
             );
 
             final var clientContext = HttpClientContext.create();
-            try (CloseableHttpResponse response = httpclient.execute(httpRequest, clientContext)) {
+            try (CloseableHttpResponse response =
+                     tlsClient.httpClient.execute(httpRequest, clientContext)) {
+                timings.responseReceived();
                 LOGGER.debug("----------------------------------------");
                 LOGGER.debug("{} {}", response.getCode(), response.getReasonPhrase());
-                LOGGER.debug(EntityUtils.toString(response.getEntity()));
-
-                if (response.getCode() != 200) {
-                    var checkResultDTO = new CheckResultDTO();
-                    checkResultDTO.setName("HTTP Code");
-                    checkResultDTO.setMessage("HTTP Code != 200");
-                    status.getFailures().add(checkResultDTO);
+                logBodyStart(response);
+                if (gatewayMonitorConfig.getProbe().isKeepAlive()) {
+                    // only a fully read response returns the connection to the pool
+                    EntityUtils.consume(response.getEntity());
                 }
+
+                checkResponseCode(status, response.getCode());
             } catch (SSLHandshakeException sslHandshakeException) {
-                LOGGER.error("TLS Handshake failed due", sslHandshakeException);
+                addTlsFailure(status, sslHandshakeException);
+            } finally {
+                addSessionDetails(status, timings, clientContext);
+            }
+        } catch (IOException | ParseException | URISyntaxException | IllegalArgumentException e) {
+            addConnectionFailure(status, e);
+        }
+    }
 
-                var checkResultDTO = new CheckResultDTO();
-                checkResultDTO.setName("TLS failure");
-                checkResultDTO.setMessage("TLS Handshake failed!");
+    /**
+     * Creates the request of the configured probe mode, a GET only requests the first
+     * max-body-bytes of the body.
+     *
+     * @param ap the access point
+     * @return the request
+     * @throws IllegalArgumentException if the endpoint is not a valid URI
+     */
+    HttpUriRequestBase newHttpRequest(AccessPoint ap) {
+        var probe = gatewayMonitorConfig.getProbe();
+        HttpUriRequestBase httpRequest;
+        if (probe.getMode() == ProbeMode.HEAD) {
+            httpRequest = new HttpHead(ap.getEndpoint());
+        } else {
+            httpRequest = new HttpGet(ap.getEndpoint());
+            if (probe.getMaxBodyBytes() > 0) {
+                httpRequest.setHeader(
+                    HttpHeaders.RANGE, "bytes=0-" + (probe.getMaxBodyBytes() - 1));
+            }
+        }
+        if (!probe.isKeepAlive()) {
+            // every probe should prove that a new connection can be established
+            httpRequest.setHeader(HttpHeaders.CONNECTION, HeaderElements.CLOSE);
+        }
+        return httpRequest;
+    }
 
-                // TODO: switch for print stack trace...
-                checkResultDTO.writeStackTraceIntoDetails(sslHandshakeException);
+    /**
+     * Only opens a TLS session to the gateway and reports the negotiated protocol, cipher and
+     * certificates, no HTTP request is sent.
+     *
+     * @param ap        the access point
+     * @param status    the status of the probe
+     * @param timings   the timings of the probe
+     * @param tlsClient the shared TLS material
+     */
+    void probeTlsHandshake(
+        AccessPoint ap, AccessPointStatusDTO status, ProbeTimings timings,
+        GatewayTlsClientProvider.TlsClient tlsClient) {
+        try {
+            var uri = new URI(ap.getEndpoint());
+            var host = uri.getHost();
+            if (host == null || !URIScheme.HTTPS.same(uri.getScheme())) {
+                var checkResultDTO = new CheckResultDTO();
+                checkResultDTO.setName("TLS handshake");
+                checkResultDTO.setMessage("Endpoint is not a https URL!");
                 status.getFailures().add(checkResultDTO);
-            } finally {
-                final var sslSession = clientContext.getSSLSession();
-                if (sslSession != null) {
-                    LOGGER.debug("TLS protocol {}", sslSession.getProtocol());
-                    LOGGER.debug("TLS cipher suite {}", sslSession.getCipherSuite());
-
-                    status.setUsedTls(TLS.parse(sslSession.getProtocol()));
-                    status.setLocalCertificates(
-                        convertToBase64StringArray(sslSession.getLocalCertificates()));
-                    status.setServerCertificates(
-                        convertToBase64StringArray(sslSession.getPeerCertificates()));
-                } else {
-                    LOGGER.info("SSL session is null, cannot provide any information!");
+                return;
+            }
+            int port = uri.getPort() < 0 ? DEFAULT_HTTPS_PORT : uri.getPort();
+            status.setTargetHost(new HttpHost(uri.getScheme(), host, port));
+            int timeout = (int) gatewayMonitorConfig.getProbe().getProbeTimeout().toMillis();
+
+            var address = DNS_RESOLVER.resolve(host)[0];
+            try (var socket = new Socket()) {
+                long start = System.nanoTime();
+                socket.connect(new InetSocketAddress(address, port), timeout);
+                timings.recordConnect(System.nanoTime() - start);
+                socket.setSoTimeout(timeout);
+
+                start = System.nanoTime();
+                try (var sslSocket = (SSLSocket) tlsClient.sslContext
+                    .getSocketFactory().createSocket(socket, host, port, true)) {
+                    sslSocket.setEnabledProtocols(tlsClient.tlsVersions);
+                    sslSocket.startHandshake();
+                    timings.recordTlsHandshake(System.nanoTime() - start);
+
+                    var sslSession = sslSocket.getSession();
+                    ProbeTimings.markHandshake(sslSession);
+                    addSessionDetails(status, timings, sslSession);
+                    HOSTNAME_VERIFIER.verify(
+                        host, (X509Certificate) sslSession.getPeerCertificates()[0]);
+                    if (TLS.V_1_3.id.equals(sslSession.getProtocol())) {
+                        confirmHandshake(sslSocket);
+                    }
                 }
-                status.setProxyHost(clientContext.getHttpRoute().getProxyHost());
-                status.setTargetHost(clientContext.getHttpRoute().getTargetHost());
             }
+        } catch (SSLException sslException) {
+            addTlsFailure(status, sslException);
         } catch (IOException | ParseException | URISyntaxException | IllegalArgumentException e) {
+            addConnectionFailure(status, e);
+        }
+    }
+
+    /**
+     * With TLS 1.3 the gateway verifies the client certificate after the client has finished the
+     * handshake. So the connection is closed and the answer of the gateway is awaited, an alert
+     * is thrown as {@link SSLException}. If the gateway does not answer in time the handshake is
+     * considered successful.
+     */
+    private void confirmHandshake(SSLSocket sslSocket) throws IOException {
+        sslSocket.setSoTimeout(
+            (int) gatewayMonitorConfig.getProbe().getHandshakeConfirmTimeout().toMillis());
+        sslSocket.shutdownOutput();
+        try {
+            while (sslSocket.getInputStream().read() >= 0) {
+                // discard anything sent before the close
+            }
+        } catch (SocketTimeoutException e) {
+            LOGGER.trace("Gateway did not close the connection in time", e);
+        }
+    }
+
+    AccessPointStatusDTO newStatus(AccessPoint ap) {
+        var status = new AccessPointStatusDTO();
+        status.setCheckTime(ZonedDateTime.now());
+        status.setEndpoint(ap.getEndpoint());
+        status.setName(ap.getName());
+        return status;
+    }
+
+    /**
+     * Returns the shared TLS client and reports the allowed TLS versions in the status. The client
+     * has to be released once the probe is done.
+     *
+     * @param status the status of the probe
+     * @return the TLS client or null if it cannot be set up, the failure is added to the status
+     */
+    GatewayTlsClientProvider.TlsClient getTlsClient(AccessPointStatusDTO status) {
+        GatewayTlsClientProvider.TlsClient tlsClient;
+        try {
+            tlsClient = tlsClientProvider.getTlsClient();
+        } catch (GatewayTlsClientProvider.TlsClientSetupException e) {
+            LOGGER.error("Error while setting up SSLContext", e);
             var checkResultDTO = new CheckResultDTO();
-            checkResultDTO.setName("Connection Failure");
-            checkResultDTO.setMessage("Connection failed");
+            checkResultDTO.setName("SSLContext setup");
+            checkResultDTO.setMessage(e.getMessage());
             checkResultDTO.writeStackTraceIntoDetails(e);
             status.getFailures().add(checkResultDTO);
+            return null;
         }
-        return status;
+
+        status.setAllowedTls(tlsClient.allowedTls);
+        if (tlsClient.allowedTls.length == 0) {
+            var checkResultDTO = new CheckResultDTO();
+            checkResultDTO.setMessage("Client does not support minTls!");
+            status.getFailures().add(checkResultDTO);
+        }
+        return tlsClient;
+    }
+
+    void checkResponseCode(AccessPointStatusDTO status, int code) {
+        var probe = gatewayMonitorConfig.getProbe();
+        // 206 answers the range requested by the GET probe
+        boolean rangeRequested = probe.getMode() != ProbeMode.HEAD && probe.getMaxBodyBytes() > 0;
+        if (code != HttpStatus.SC_OK
+            && !(rangeRequested && code == HttpStatus.SC_PARTIAL_CONTENT)) {
+            var checkResultDTO = new CheckResultDTO();
+            checkResultDTO.setName("HTTP Code");
+            checkResultDTO.setMessage(rangeRequested
+                ? "HTTP Code " + code + " is not 200 or 206"
+                : "HTTP Code " + code + " != 200");
+            status.getFailures().add(checkResultDTO);
+        }
+    }
+
+    void addTlsFailure(AccessPointStatusDTO status, SSLException sslHandshakeException) {
+        LOGGER.error("TLS Handshake failed due", sslHandshakeException);
+
+        var checkResultDTO = new CheckResultDTO();
+        checkResultDTO.setName("TLS failure");
+        checkResultDTO.setMessage("TLS Handshake failed!");
+        checkResultDTO.writeStackTraceIntoDetails(sslHandshakeException);
+        status.getFailures().add(checkResultDTO);
     }
 
-    private TLS mapProtocolVersionToTLS(ProtocolVersion protocolVersion) {
-        return Stream.of(TLS.values())
-                     .filter(t -> t.isSame(protocolVersion))
-                     .findFirst()
-                     .get();
+    void addConnectionFailure(AccessPointStatusDTO status, Exception e) {
+        var checkResultDTO = new CheckResultDTO();
+        checkResultDTO.setName("Connection Failure");
+        checkResultDTO.setMessage("Connection failed");
+        checkResultDTO.writeStackTraceIntoDetails(e);
+        status.getFailures().add(checkResultDTO);
     }
 
-    private String[] convertToBase64StringArray(java.security.cert.Certificate[] certificates) {
-        if (certificates == null) {
-            return new String[0];
+    /**
+     * Adds the negotiated TLS session, how it has been established, the revocation status of the
+     * server certificate and the route of the connection to the status.
+     *
+     * @param status        the status of the probe
+     * @param timings       the timings of the probe
+     * @param clientContext the context of the executed request
+     */
+    void addSessionDetails(
+        AccessPointStatusDTO status, ProbeTimings timings, HttpClientContext clientContext)
+        throws IOException, ParseException {
+        addSessionDetails(status, timings, clientContext.getSSLSession());
+        var httpRoute = clientContext.getHttpRoute();
+        if (httpRoute != null) {
+            status.setProxyHost(httpRoute.getProxyHost());
+            status.setTargetHost(httpRoute.getTargetHost());
         }
-        return Stream.of(certificates)
-                     .map(this::mapToBase64String)
-                     .toArray(String[]::new);
     }
 
-    private String mapToBase64String(Certificate certificate) {
-        try {
-            byte[] encoded = certificate.getEncoded();
-            return Base64Utils.encodeToString(encoded);
-        } catch (CertificateEncodingException e) {
-            throw new RuntimeException(e);
+    private void addSessionDetails(
+        AccessPointStatusDTO status, ProbeTimings timings, SSLSession sslSession)
+        throws IOException, ParseException {
+        if (sslSession != null) {
+            LOGGER.debug("TLS protocol {}", sslSession.getProtocol());
+            LOGGER.debug("TLS cipher suite {}", sslSession.getCipherSuite());
+
+            status.setTlsHandshake(timings.tlsHandshakeOf(sslSession));
+            if (!gatewayMonitorConfig.getProbe().isSessionResumption()) {
+                // the next probe has to perform a full handshake
+                sslSession.invalidate();
+            }
+
+            status.setUsedTls(TLS.parse(sslSession.getProtocol()));
+            status.setLocalCertificates(
+                certificateRegistry.register(sslSession.getLocalCertificates()));
+            status.setServerCertificates(
+                certificateRegistry.register(sslSession.getPeerCertificates()));
+            checkRevocation(status, sslSession.getPeerCertificates());
+        } else {
+            LOGGER.info("SSL session is null, cannot provide any information!");
+        }
+    }
+
+    private void logBodyStart(ClassicHttpResponse response) throws IOException {
+        var entity = response.getEntity();
+        if (entity == null || !LOGGER.isDebugEnabled()) {
+            return;
+        }
+        // the rest of the body is only read if keep alive is enabled
+        var bodyStart = entity.getContent()
+                              .readNBytes(gatewayMonitorConfig.getProbe().getMaxBodyBytes());
+        LOGGER.debug(new String(bodyStart, StandardCharsets.UTF_8));
+    }
+
+    void recordTimings(AccessPoint ap, ProbeTimings timings) {
+        if (meterRegistry == null) {
+            return;
+        }
+        recordPhase(ap, "dns", timings.getDnsNanos());
+        recordPhase(ap, "connect", timings.getConnectNanos());
+        recordPhase(ap, "tls-handshake", timings.getTlsHandshakeNanos());
+        recordPhase(ap, "first-byte", timings.getFirstByteNanos());
+        recordPhase(ap, "total", timings.getTotalNanos());
+    }
+
+    private void recordPhase(AccessPoint ap, String phase, long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        Timer.builder(METRIC_PREFIX + ".phase")
+             .tag("ap", String.valueOf(ap.getName()))
+             .tag("phase", phase)
+             .description("Duration of the phases of a gateway probe")
+             .publishPercentileHistogram()
+             .register(meterRegistry)
+             .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void checkRevocation(AccessPointStatusDTO status, Certificate[] peerCertificates) {
+        var revocation = revocationChecker.check(peerCertificates);
+        status.setRevocationStatus(revocation.status());
+        if (revocation.status() == RevocationStatus.REVOKED
+            || revocation.status() == RevocationStatus.UNKNOWN) {
+            var checkResultDTO = new CheckResultDTO();
+            checkResultDTO.setName("Certificate revocation");
+            checkResultDTO.setMessage("Server certificate revocation status is "
+                                          + revocation.status());
+            checkResultDTO.setDetails(revocation.details());
+            if (revocation.status() == RevocationStatus.REVOKED) {
+                status.getFailures().add(checkResultDTO);
+            } else {
+                status.getWarnings().add(checkResultDTO);
+            }
         }
     }
 }
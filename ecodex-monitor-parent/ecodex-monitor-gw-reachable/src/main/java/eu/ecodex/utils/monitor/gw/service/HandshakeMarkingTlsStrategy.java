@@ -0,0 +1,36 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy;
+import org.apache.hc.core5.reactor.ssl.SSLBufferMode;
+
+/**
+ * TLS strategy of the async http client which marks the session of every completed handshake, so
+ * the probe can tell from the session whether it has performed a handshake.
+ */
+class HandshakeMarkingTlsStrategy extends DefaultClientTlsStrategy {
+
+    HandshakeMarkingTlsStrategy(
+        SSLContext sslContext, String[] supportedProtocols, HostnameVerifier hostnameVerifier) {
+        super(sslContext, supportedProtocols, null, SSLBufferMode.STATIC, hostnameVerifier);
+    }
+
+    @Override
+    protected void verifySession(String hostname, SSLSession sslsession) throws SSLException {
+        ProbeTimings.markHandshake(sslsession);
+        super.verifySession(hostname, sslsession);
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.config.GatewayRestInterfaceConfiguration;
+import eu.ecodex.utils.monitor.gw.config.HistoryProperties;
+import eu.ecodex.utils.monitor.gw.config.MonitoringDomainProperties;
+import eu.ecodex.utils.monitor.gw.config.ProbeProperties;
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.CompositeHealthContributor;
+import org.springframework.boot.actuate.health.HealthContributor;
+import org.springframework.boot.actuate.health.HealthContributorRegistry;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * Runs the named monitoring domains configured under monitor.gw.domains.
+ *
+ * <p>Every domain gets its own application context with the services of the gateway monitor, so
+ * the TLS client, the p-mode downloader, the probe result cache, the circuit breaker and the probe
+ * pool of a domain are isolated from the other domains and from the default domain configured
+ * directly under monitor.gw. The contexts only share the {@link ProbeCapacity} and the
+ * {@link MeterRegistry}. The health of every domain is registered as part of the
+ * {@value #HEALTH_CONTRIBUTOR_NAME} health contributor.
+ */
+public class MonitoringDomains {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MonitoringDomains.class);
+    /**
+     * Name of the domain configured directly under monitor.gw.
+     */
+    public static final String DEFAULT_DOMAIN = "default";
+    public static final String HEALTH_CONTRIBUTOR_NAME = "gatewayDomains";
+    @Autowired
+    GatewayMonitorConfigurationProperties gatewayMonitorConfig;
+    @Autowired
+    ProbeCapacity probeCapacity;
+    @Autowired
+    CertificateRegistry certificateRegistry;
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
+    @Autowired(required = false)
+    HealthContributorRegistry healthContributorRegistry;
+    private final Map<String, MonitoringDomain> domains = new LinkedHashMap<>();
+
+    /**
+     * Starts the context of every configured domain.
+     *
+     * @throws IllegalStateException if a domain uses the name of the default domain
+     */
+    @PostConstruct
+    public void init() {
+        gatewayMonitorConfig.getDomains().forEach((name, domain) -> {
+            if (DEFAULT_DOMAIN.equals(name)) {
+                throw new IllegalStateException(
+                    "The monitoring domain name [" + DEFAULT_DOMAIN + "] is reserved!");
+            }
+            LOGGER.info("Starting monitoring domain [{}]", name);
+            domains.put(name, new MonitoringDomain(name, startContext(name, domain)));
+        });
+        if (healthContributorRegistry != null && !domains.isEmpty()) {
+            Map<String, HealthContributor> indicators = new LinkedHashMap<>();
+            domains.forEach((name, domain) -> indicators.put(name, domain.getHealthIndicator()));
+            healthContributorRegistry.registerContributor(
+                HEALTH_CONTRIBUTOR_NAME, CompositeHealthContributor.fromMap(indicators));
+        }
+    }
+
+    /**
+     * Stops the contexts of all domains.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (healthContributorRegistry != null && !domains.isEmpty()) {
+            healthContributorRegistry.unregisterContributor(HEALTH_CONTRIBUTOR_NAME);
+        }
+        var started = new ArrayList<>(domains.values());
+        Collections.reverse(started);
+        started.forEach(domain -> domain.context.close());
+        domains.clear();
+    }
+
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(domains.keySet());
+    }
+
+    /**
+     * Returns the domain with the given name.
+     *
+     * @param name the name of the domain
+     * @return the domain or null if no such domain is configured
+     */
+    public MonitoringDomain get(String name) {
+        return domains.get(name);
+    }
+
+    private AnnotationConfigApplicationContext startContext(
+        String name, MonitoringDomainProperties domain) {
+        var config = newDomainConfig(name, domain);
+        var context = new AnnotationConfigApplicationContext();
+        context.setDisplayName("Monitoring domain " + name);
+        // registered as singletons, the domain context must not destroy the shared beans
+        var beanFactory = context.getBeanFactory();
+        beanFactory.registerSingleton("gatewayMonitorConfig", config);
+        beanFactory.registerSingleton("probeCapacityShare", probeCapacity.share(name));
+        beanFactory.registerSingleton("certificateRegistry", certificateRegistry);
+        if (meterRegistry != null) {
+            beanFactory.registerSingleton("meterRegistry", meterRegistry);
+        }
+        if (config.getRest() != null && config.getRest().isLoadPmodes()) {
+            context.registerBean(
+                PModeDownloader.class, () -> new PModeDownloader(config.getRest()));
+        }
+        context.registerBean(ConfiguredGatewaysService.class);
+        context.registerBean(GatewayHealthIndicator.class);
+        context.register(ServiceConfiguration.class);
+        context.refresh();
+        return context;
+    }
+
+    /**
+     * Creates the configuration of a domain, the settings which are not configured for the domain
+     * are taken from the default domain.
+     *
+     * @param name   the name of the domain
+     * @param domain the properties of the domain
+     * @return the configuration used by the services of the domain
+     */
+    GatewayMonitorConfigurationProperties newDomainConfig(
+        String name, MonitoringDomainProperties domain) {
+        var config = new GatewayMonitorConfigurationProperties();
+        BeanUtils.copyProperties(gatewayMonitorConfig, config);
+        config.setDomains(new LinkedHashMap<>());
+        config.setTls(domain.getTls());
+        config.setAccessPoints(domain.getAccessPoints());
+        if (domain.getRest() != null) {
+            config.setRest(domain.getRest());
+        } else {
+            var rest = new GatewayRestInterfaceConfiguration();
+            rest.setLoadPmodes(false);
+            config.setRest(rest);
+        }
+
+        var probe = new ProbeProperties();
+        BeanUtils.copyProperties(gatewayMonitorConfig.getProbe(), probe);
+        if (domain.getMaxConcurrentProbes() != null) {
+            probe.setMaxConcurrentProbes(domain.getMaxConcurrentProbes());
+        }
+        config.setProbe(probe);
+        if (domain.getCheckCacheTimeout() != null) {
+            config.setCheckCacheTimeout(domain.getCheckCacheTimeout());
+        }
+
+        // the history files are named after the access points, which may exist in every domain
+        var history = new HistoryProperties();
+        BeanUtils.copyProperties(gatewayMonitorConfig.getHistory(), history);
+        if (history.getDirectory() != null) {
+            history.setDirectory(history.getDirectory().resolve(name));
+        }
+        config.setHistory(history);
+        return config;
+    }
+
+    /**
+     * A running monitoring domain.
+     */
+    public static final class MonitoringDomain {
+        private final String name;
+        private final AnnotationConfigApplicationContext context;
+
+        private MonitoringDomain(String name, AnnotationConfigApplicationContext context) {
+            this.name = name;
+            this.context = context;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the latest status of every gateway of the domain, including its own gateway.
+         *
+         * @return the latest status of each gateway
+         */
+        public List<AccessPointStatusDTO> getLatestStatuses() {
+            return getBean(GatewayStatusRefresher.class).getLatestStatuses(
+                getBean(ConfiguredGatewaysService.class).getConfiguredGatewaysWithSelf());
+        }
+
+        /**
+         * Returns the latest status of a gateway of the domain.
+         *
+         * @param endpointName the name of the gateway
+         * @return the latest status or null if the domain has no such gateway
+         */
+        public AccessPointStatusDTO getLatestStatus(String endpointName) {
+            var ap = getBean(ConfiguredGatewaysService.class).getByName(endpointName);
+            if (ap == null) {
+                return null;
+            }
+            return getBean(GatewayStatusRefresher.class).getLatestStatus(ap);
+        }
+
+        public GatewayHealthIndicator getHealthIndicator() {
+            return getBean(GatewayHealthIndicator.class);
+        }
+
+        <T> T getBean(Class<T> type) {
+            return context.getBean(type);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+/**
+ * Endpoint to provide the reachability status of the gateways of the named monitoring domains.
+ *
+ * <p>The gateways of the default domain are available at the {@code gateways} endpoint, the
+ * gateways of a named domain at {@code gatewaydomains/{domain}} and a single gateway at
+ * {@code gatewaydomains/{domain}/{name}}.
+ */
+@Endpoint(id = "gatewaydomains")
+public class MonitoringDomainsEndpoint {
+    @Autowired
+    MonitoringDomains monitoringDomains;
+
+    /**
+     * Retrieves the latest status of the gateways of all named domains.
+     *
+     * @return the statuses of the gateways by domain name
+     */
+    @ReadOperation
+    public Map<String, List<AccessPointStatusDTO>> getDomains() {
+        Map<String, List<AccessPointStatusDTO>> result = new LinkedHashMap<>();
+        for (String name : monitoringDomains.getNames()) {
+            result.put(name, monitoringDomains.get(name).getLatestStatuses());
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves the latest status of the gateways of a domain.
+     *
+     * @param domain The name of the domain.
+     * @return The statuses of the gateways, null if the domain is not configured.
+     */
+    @ReadOperation
+    public List<AccessPointStatusDTO> getDomain(@Selector String domain) {
+        var monitoringDomain = monitoringDomains.get(domain);
+        return monitoringDomain == null ? null : monitoringDomain.getLatestStatuses();
+    }
+
+    /**
+     * Retrieves the latest status of a gateway of a domain.
+     *
+     * @param domain       The name of the domain.
+     * @param endpointName The name of the access point.
+     * @return The status of the access point, null if the domain or the access point is not
+     *         configured.
+     */
+    @ReadOperation
+    public AccessPointStatusDTO getGateway(
+        @Selector String domain, @Selector String endpointName) {
+        var monitoringDomain = monitoringDomains.get(domain);
+        return monitoringDomain == null ? null : monitoringDomain.getLatestStatus(endpointName);
+    }
+}
@@ -12,21 +12,33 @@ package eu.ecodex.utils.monitor.gw.service;
 
 import eu.domibus.ext.domain.PModeArchiveInfoDTO;
 import eu.ecodex.configuration.pmode.Configuration;
+import eu.ecodex.configuration.pmode.reader.PModeParties;
+import eu.ecodex.configuration.pmode.reader.PModePartiesReader;
 import eu.ecodex.utils.monitor.gw.config.GatewayRestInterfaceConfiguration;
 import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
 import eu.ecodex.utils.monitor.gw.domain.AccessPointsConfiguration;
 import jakarta.validation.constraints.NotNull;
 import jakarta.xml.bind.JAXBContext;
 import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Unmarshaller;
 import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import javax.xml.stream.XMLStreamException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 
@@ -34,12 +46,27 @@ import org.springframework.web.util.DefaultUriBuilderFactory;
  * PModeDownloader is responsible for downloading and updating PMode configurations from a specified
  * gateway REST interface. The class uses Spring's RestTemplate to interact with the REST API and
  * JAXB for XML parsing.
+ *
+ * <p>The id of the current p-mode set is polled at most once per
+ * {@code monitor.gw.rest.pmode-check-interval}, the p-mode set itself is only
+ * downloaded and parsed if the id (or the ETag of the answer, if the gateway sends one) has
+ * changed. For the access points only the parties are streamed out of the p-mode set, the parsed
+ * access points are kept as a snapshot which is shared by all callers and must not be modified.
+ * If the complete {@link Configuration} is requested the {@link JAXBContext} is created once and
+ * the unmarshaller is reused.
  */
 public class PModeDownloader {
     private static final Logger LOGGER = LoggerFactory.getLogger(PModeDownloader.class);
     private final GatewayRestInterfaceConfiguration gatewayRestInterfaceConfiguration;
     private final RestTemplate restTemplate;
-    private ConfigurationWrapper wrappedConfiguration = new ConfigurationWrapper();
+    private final ConfigurationWrapper wrappedConfiguration = new ConfigurationWrapper();
+    // only used by downloadNewPModes, which is synchronized
+    private Unmarshaller unmarshaller;
+    // the id and ETag of the last answer to the current p-mode request, guarded by this
+    private int currentPModeId = -1;
+    private String currentPModeETag;
+    private volatile AccessPointsConfiguration accessPointsConfig;
+    private volatile long nextPoll;
 
     /**
      * Constructs a new PModeDownloader with the specified GatewayRestInterfaceConfiguration.
@@ -49,15 +76,23 @@ public class PModeDownloader {
      */
     public PModeDownloader(
         @Autowired GatewayRestInterfaceConfiguration gatewayRestInterfaceConfiguration) {
+        this(
+            gatewayRestInterfaceConfiguration, new RestTemplateBuilder()
+                .uriTemplateHandler(
+                    new DefaultUriBuilderFactory(gatewayRestInterfaceConfiguration.getUrl()))
+                .basicAuthentication(
+                    gatewayRestInterfaceConfiguration.getUsername(),
+                    gatewayRestInterfaceConfiguration.getPassword()
+                )
+                .build()
+        );
+    }
+
+    PModeDownloader(
+        GatewayRestInterfaceConfiguration gatewayRestInterfaceConfiguration,
+        RestTemplate restTemplate) {
         this.gatewayRestInterfaceConfiguration = gatewayRestInterfaceConfiguration;
-        this.restTemplate = new RestTemplateBuilder()
-            .uriTemplateHandler(
-                new DefaultUriBuilderFactory(gatewayRestInterfaceConfiguration.getUrl()))
-            .basicAuthentication(
-                gatewayRestInterfaceConfiguration.getUsername(),
-                gatewayRestInterfaceConfiguration.getPassword()
-            )
-            .build();
+        this.restTemplate = restTemplate;
     }
 
     public Configuration downloadPModes() {
@@ -71,18 +106,12 @@ public class PModeDownloader {
      * @return The wrapped configuration object after attempting to download and unmarshal new
      *      P-Modes.
      */
-    public ConfigurationWrapper downloadNewPModes(int id) {
+    public synchronized ConfigurationWrapper downloadNewPModes(int id) {
         var lineSeparator = "\n\n####################";
 
-        ResponseEntity<PModeArchiveInfoDTO> currentPMode =
-            restTemplate.getForEntity("/ext/pmode/current", PModeArchiveInfoDTO.class);
+        int pmodeId = fetchCurrentPModeId();
 
-        int pmodeId = -1;
-        LOGGER.debug("Retrieved json [{}]", currentPMode);
-
-        pmodeId = currentPMode.getBody().getId();
-
-        if (pmodeId > id) {
+        if (pmodeId > id && pmodeId != wrappedConfiguration.id) {
             var forEntity = restTemplate.getForEntity("/ext/pmode/" + pmodeId, String.class);
 
             var xmlString = forEntity.getBody();
@@ -91,15 +120,9 @@ public class PModeDownloader {
                 LOGGER.trace("Downloaded pmode: {}", lineSeparator + xmlString + lineSeparator);
             }
 
-            JAXBContext jaxbContext;
             try {
-                jaxbContext = JAXBContext.newInstance(Configuration.class);
-
-                var jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-
-                var configuration =
-                    (Configuration) jaxbUnmarshaller.unmarshal(new StringReader(xmlString));
-                this.wrappedConfiguration.config = configuration;
+                this.wrappedConfiguration.config = unmarshal(xmlString);
+                this.wrappedConfiguration.id = pmodeId;
                 if (LOGGER.isTraceEnabled()) {
                     LOGGER.trace(
                         "Downloaded pmode: {}", lineSeparator + this.wrappedConfiguration
@@ -114,8 +137,44 @@ public class PModeDownloader {
     }
 
     /**
-     * Updates the access points configuration by downloading new P-Modes and setting the self and
-     * remote access points.
+     * Returns the access points of the current p-mode set. The gateway is only asked for a new
+     * p-mode set if the p-mode check interval has elapsed since the last check, if the check fails
+     * the last known access points are returned. The parties are read with the streaming
+     * {@link PModePartiesReader} directly from the response, the p-mode set is neither buffered
+     * nor unmarshalled completely.
+     *
+     * @return snapshot of the configured access points, it must not be modified
+     * @throws RestClientException if the p-mode set cannot be loaded and no previous one is known
+     */
+    public AccessPointsConfiguration getAccessPointsConfig() {
+        var snapshot = this.accessPointsConfig;
+        if (snapshot != null && System.nanoTime() - nextPoll < 0) {
+            return snapshot;
+        }
+        synchronized (this) {
+            snapshot = this.accessPointsConfig;
+            if (snapshot != null && System.nanoTime() - nextPoll < 0) {
+                return snapshot;
+            }
+            try {
+                snapshot = pollAccessPointsConfig(snapshot);
+                this.accessPointsConfig = snapshot;
+            } catch (RestClientException e) {
+                if (snapshot == null) {
+                    throw e;
+                }
+                LOGGER.warn("Cannot check for new p-Modes, keeping p-Mode [{}]",
+                    snapshot.getId(), e);
+            }
+            nextPoll = System.nanoTime()
+                + gatewayRestInterfaceConfiguration.getPmodeCheckInterval().toNanos();
+            return snapshot;
+        }
+    }
+
+    /**
+     * Updates the access points configuration with the self and remote access points of the
+     * current p-mode set.
      *
      * @param config The current access points configuration that needs to be updated. It must not
      *               be null.
@@ -127,23 +186,88 @@ public class PModeDownloader {
         if (config == null) {
             throw new IllegalArgumentException("Config is not allowed to be null!");
         }
-        var wrappedConfig = this.downloadNewPModes(config.getId());
-        var conf = wrappedConfig.config;
-        String selfParty = conf.getParty();
+        var snapshot = getAccessPointsConfig();
+        config.setSelf(snapshot.getSelf());
+        config.setRemoteAccessPoints(snapshot.getRemoteAccessPoints());
+        config.setId(snapshot.getId());
+        return config;
+    }
 
-        Map<String, AccessPoint> aps = conf
-            .getBusinessProcesses()
-            .getParties().getParty().stream()
+    /**
+     * Asks the gateway for the id of the current p-mode set. The request is conditional on the
+     * ETag of the last answer, if the gateway answers that the p-mode set has not been modified
+     * the id of the last answer is returned. The id and the ETag are shared by the complete
+     * p-mode set and the access points, each of them compares the id with the p-mode set it has
+     * loaded. Must be called with the lock of this downloader held.
+     *
+     * @return the id of the current p-mode set
+     */
+    private int fetchCurrentPModeId() {
+        var requestHeaders = new HttpHeaders();
+        if (currentPModeETag != null) {
+            requestHeaders.setIfNoneMatch(currentPModeETag);
+        }
+        ResponseEntity<PModeArchiveInfoDTO> currentPMode = restTemplate.exchange(
+            "/ext/pmode/current", HttpMethod.GET, new HttpEntity<>(requestHeaders),
+            PModeArchiveInfoDTO.class
+        );
+        LOGGER.debug("Retrieved json [{}]", currentPMode);
+        if (currentPMode.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+            LOGGER.debug("Current p-mode set has not been modified");
+            return currentPModeId;
+        }
+        this.currentPModeId = currentPMode.getBody().getId();
+        this.currentPModeETag = currentPMode.getHeaders().getETag();
+        return currentPModeId;
+    }
+
+    private AccessPointsConfiguration pollAccessPointsConfig(AccessPointsConfiguration snapshot) {
+        int pmodeId = fetchCurrentPModeId();
+        if (snapshot != null && snapshot.getId() == pmodeId) {
+            return snapshot;
+        }
+
+        PModeParties pmodeParties = restTemplate.execute(
+            "/ext/pmode/" + pmodeId, HttpMethod.GET,
+            request -> request.getHeaders().setAccept(
+                List.of(MediaType.APPLICATION_XML, MediaType.ALL)),
+            response -> {
+                try (var body = response.getBody()) {
+                    return PModePartiesReader.read(body);
+                } catch (XMLStreamException e) {
+                    throw new RestClientException("Cannot read p-Mode [" + pmodeId + "]", e);
+                }
+            }
+        );
+        var config = toAccessPointsConfiguration(pmodeParties, pmodeId);
+        LOGGER.info("Loaded configured access points from gateway p-Mode [{}]", pmodeId);
+        return config;
+    }
+
+    private AccessPointsConfiguration toAccessPointsConfiguration(
+        PModeParties pmodeParties, int pmodeId) {
+        Map<String, AccessPoint> aps = pmodeParties
+            .parties().stream()
             .map(this::mapMpc)
-            .collect(Collectors.toMap(AccessPoint::getName, Function.identity()));
+            .collect(Collectors.toMap(
+                AccessPoint::getName, Function.identity(), (first, second) -> first,
+                LinkedHashMap::new
+            ));
 
-        AccessPoint self = aps.remove(selfParty);
-        config.setSelf(self);
-        config.setRemoteAccessPoints(aps.values());
-        config.setId(wrappedConfig.id);
+        var config = new AccessPointsConfiguration();
+        config.setSelf(aps.remove(pmodeParties.selfParty()));
+        config.setRemoteAccessPoints(List.copyOf(aps.values()));
+        config.setId(pmodeId);
         return config;
     }
 
+    private Configuration unmarshal(String xmlString) throws JAXBException {
+        if (unmarshaller == null) {
+            unmarshaller = JaxbContextHolder.JAXB_CONTEXT.createUnmarshaller();
+        }
+        return (Configuration) unmarshaller.unmarshal(new StringReader(xmlString));
+    }
+
     private AccessPoint mapMpc(Configuration.BusinessProcesses.Parties.Party party) {
         var accessPoint = new AccessPoint();
         accessPoint.setName(party.getName());
@@ -155,7 +279,19 @@ public class PModeDownloader {
         Configuration config;
         int id = -1;
     }
-}
-
 
+    /**
+     * Creating a {@link JAXBContext} is expensive, it is created once on first use and shared.
+     */
+    private static final class JaxbContextHolder {
+        private static final JAXBContext JAXB_CONTEXT = createJaxbContext();
 
+        private static JAXBContext createJaxbContext() {
+            try {
+                return JAXBContext.newInstance(Configuration.class);
+            } catch (JAXBException e) {
+                throw new IllegalStateException("Cannot create JAXB context for p-Modes", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The probe slots shared by all monitoring domains.
+ *
+ * <p>Every domain takes a slot for each running probe from its {@link Share}. If no slot is free,
+ * or another waiting domain runs fewer probes, the probe waits. So a freed slot is always handed
+ * to the waiting domain with the fewest running probes and a domain with many gateways cannot
+ * starve the others.
+ */
+public class ProbeCapacity {
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final List<Share> shares = new ArrayList<>();
+    private int running;
+
+    public ProbeCapacity(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Returns the share of a monitoring domain.
+     *
+     * @param domain the name of the domain
+     * @return the new share of the domain
+     */
+    public Share share(String domain) {
+        lock.lock();
+        try {
+            var share = new Share(domain);
+            shares.add(share);
+            return share;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getRunning() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getWaiting() {
+        lock.lock();
+        try {
+            return shares.stream().mapToInt(share -> share.waiting).sum();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean hasTurn(Share share) {
+        if (running >= capacity) {
+            return false;
+        }
+        for (Share other : shares) {
+            if (other != share && other.waiting > 0 && other.running < share.running) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The probe slots taken by one monitoring domain.
+     */
+    public final class Share {
+        private final String domain;
+        private int running;
+        private int waiting;
+
+        private Share(String domain) {
+            this.domain = domain;
+        }
+
+        public String getDomain() {
+            return domain;
+        }
+
+        /**
+         * Takes a probe slot, waits until the domain has its turn.
+         *
+         * @throws InterruptedException if interrupted while waiting
+         */
+        public void acquire() throws InterruptedException {
+            lock.lock();
+            try {
+                waiting++;
+                try {
+                    while (!hasTurn(this)) {
+                        changed.await();
+                    }
+                } finally {
+                    waiting--;
+                    // other domains may have waited for this one
+                    changed.signalAll();
+                }
+                running++;
+                ProbeCapacity.this.running++;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Frees a probe slot taken with {@link #acquire()}.
+         */
+        public void release() {
+            lock.lock();
+            try {
+                running--;
+                ProbeCapacity.this.running--;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int getRunning() {
+            lock.lock();
+            try {
+                return running;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
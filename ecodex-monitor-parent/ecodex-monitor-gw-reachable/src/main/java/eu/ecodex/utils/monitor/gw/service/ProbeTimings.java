@@ -0,0 +1,154 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import eu.ecodex.utils.monitor.gw.dto.PhaseTimingsDTO;
+import eu.ecodex.utils.monitor.gw.dto.TlsHandshake;
+import java.time.Duration;
+import javax.net.ssl.SSLSession;
+
+/**
+ * Collects the duration of the phases of a single gateway probe.
+ *
+ * <p>The classic http client resolves the host name, connects and performs the TLS handshake in
+ * the thread which executes the request. So the probe binds its timings to the current thread and
+ * the {@link TimingDnsResolver} and the {@link TimingSslSocketFactory} record into them. Timings
+ * created with the constructor are not bound to a thread and only record the total duration.
+ *
+ * <p>Whoever performs a TLS handshake marks the session with {@link #markHandshake(SSLSession)},
+ * so the probe can tell from the session afterwards whether it has performed a full handshake,
+ * resumed an earlier session or reused a kept alive connection.
+ */
+class ProbeTimings {
+    private static final ThreadLocal<ProbeTimings> CURRENT = new ThreadLocal<>();
+    private static final String HANDSHAKE_NANOS = ProbeTimings.class.getName() + ".handshake";
+    private final long start = System.nanoTime();
+    private final long startMillis = System.currentTimeMillis();
+    private long dnsNanos = -1;
+    private long connectNanos = -1;
+    private long tlsHandshakeNanos = -1;
+    private long firstByteNanos = -1;
+    private long totalNanos = -1;
+
+    /**
+     * Starts recording the timings of a probe in the current thread.
+     *
+     * @return the timings of the probe
+     */
+    static ProbeTimings start() {
+        var timings = new ProbeTimings();
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    /**
+     * Returns the timings of the probe running in the current thread.
+     *
+     * @return the timings or null if no probe is running in the current thread
+     */
+    static ProbeTimings current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Marks that a handshake has just been completed on the session.
+     *
+     * @param session the session of the handshake
+     */
+    static void markHandshake(SSLSession session) {
+        if (session != null) {
+            session.putValue(HANDSHAKE_NANOS, System.nanoTime());
+        }
+    }
+
+    /**
+     * Tells how the session used by this probe has been established. A resumed session has been
+     * created before the probe started, a full handshake creates a new one.
+     *
+     * @param session the session used by the probe
+     * @return the kind of handshake or null if there is no session
+     */
+    TlsHandshake tlsHandshakeOf(SSLSession session) {
+        if (session == null) {
+            return null;
+        }
+        if (!(session.getValue(HANDSHAKE_NANOS) instanceof Long handshake)
+            || handshake - start < 0) {
+            return TlsHandshake.NONE;
+        }
+        return session.getCreationTime() < startMillis ? TlsHandshake.RESUMED : TlsHandshake.FULL;
+    }
+
+    void recordDns(long nanos) {
+        dnsNanos = Math.max(dnsNanos, 0) + nanos;
+    }
+
+    void recordConnect(long nanos) {
+        connectNanos = Math.max(connectNanos, 0) + nanos;
+    }
+
+    void recordTlsHandshake(long nanos) {
+        tlsHandshakeNanos = Math.max(tlsHandshakeNanos, 0) + nanos;
+    }
+
+    /**
+     * Records that the response headers have been received, the time before is attributed to the
+     * first byte phase unless it has been recorded by an earlier phase.
+     */
+    void responseReceived() {
+        firstByteNanos = Math.max(0, System.nanoTime() - start
+            - Math.max(dnsNanos, 0) - Math.max(connectNanos, 0) - Math.max(tlsHandshakeNanos, 0));
+    }
+
+    /**
+     * Stops recording in the current thread.
+     */
+    void finish() {
+        totalNanos = System.nanoTime() - start;
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    long getDnsNanos() {
+        return dnsNanos;
+    }
+
+    long getConnectNanos() {
+        return connectNanos;
+    }
+
+    long getTlsHandshakeNanos() {
+        return tlsHandshakeNanos;
+    }
+
+    long getFirstByteNanos() {
+        return firstByteNanos;
+    }
+
+    long getTotalNanos() {
+        return totalNanos;
+    }
+
+    PhaseTimingsDTO toDto() {
+        var dto = new PhaseTimingsDTO();
+        dto.setDns(toDuration(dnsNanos));
+        dto.setConnect(toDuration(connectNanos));
+        dto.setTlsHandshake(toDuration(tlsHandshakeNanos));
+        dto.setFirstByte(toDuration(firstByteNanos));
+        dto.setTotal(toDuration(totalNanos));
+        return dto;
+    }
+
+    private static Duration toDuration(long nanos) {
+        return nanos < 0 ? null : Duration.ofNanos(nanos);
+    }
+}
@@ -0,0 +1,458 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.config.RevocationProperties;
+import eu.ecodex.utils.monitor.gw.dto.RevocationStatus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.cert.CRLException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.Timeout;
+import org.bouncycastle.asn1.x509.AccessDescription;
+import org.bouncycastle.asn1.x509.AuthorityInformationAccess;
+import org.bouncycastle.asn1.x509.CRLDistPoint;
+import org.bouncycastle.asn1.x509.DistributionPoint;
+import org.bouncycastle.asn1.x509.DistributionPointName;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.cert.CertException;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPException;
+import org.bouncycastle.cert.ocsp.OCSPReqBuilder;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.RevokedStatus;
+import org.bouncycastle.cert.ocsp.SingleResp;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Checks the revocation status of gateway certificates.
+ *
+ * <p>The status is first requested from the OCSP responder of the certificate (or the configured
+ * one), if OCSP does not give an answer the configured local CRLs and the CRLs from the
+ * distribution points of the certificate are used. OCSP responses and downloaded CRLs are kept in
+ * a {@link RevocationResponseCache} until their next update and the resulting status is cached by
+ * the fingerprint of the certificate, so a handshake does not trigger a network fetch as long as
+ * the revocation data is valid.
+ */
+@Component
+public class RevocationChecker {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RevocationChecker.class);
+    private static final ContentType OCSP_REQUEST =
+        ContentType.create("application/ocsp-request");
+    private static final RevocationResult NOT_CHECKED =
+        new RevocationResult(RevocationStatus.NOT_CHECKED, "Revocation check is disabled");
+    @Autowired
+    GatewayMonitorConfigurationProperties gatewayMonitorConfig;
+    private final Map<String, CachedResult> results = new ConcurrentHashMap<>();
+    private volatile List<X509CRL> configuredCrls;
+    private RevocationResponseCache responseCache;
+    private CloseableHttpClient httpClient;
+
+    /**
+     * Creates the response cache and the http client for downloading CRLs and OCSP responses.
+     */
+    @PostConstruct
+    public void init() {
+        var revocation = gatewayMonitorConfig.getRevocation();
+        this.responseCache = new RevocationResponseCache(revocation.getCacheDirectory());
+        var fetchTimeout = Timeout.ofMilliseconds(revocation.getFetchTimeout().toMillis());
+        this.httpClient = HttpClients
+            .custom()
+            .setConnectionManager(PoolingHttpClientConnectionManagerBuilder
+                                      .create()
+                                      .setDefaultConnectionConfig(ConnectionConfig
+                                                                      .custom()
+                                                                      .setConnectTimeout(
+                                                                          fetchTimeout)
+                                                                      .setSocketTimeout(
+                                                                          fetchTimeout)
+                                                                      .build())
+                                      .build())
+            .setDefaultRequestConfig(RequestConfig.custom()
+                                                  .setResponseTimeout(fetchTimeout)
+                                                  .build())
+            .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        httpClient.close(CloseMode.GRACEFUL);
+    }
+
+    /**
+     * Checks the revocation status of the first certificate of the given chain, the second
+     * certificate of the chain is used as issuer.
+     *
+     * @param peerCertificates the certificate chain sent by the gateway
+     * @return the revocation status and a description where it has been taken from
+     */
+    public RevocationResult check(Certificate[] peerCertificates) {
+        var revocation = gatewayMonitorConfig.getRevocation();
+        if (!revocation.isEnabled()) {
+            return NOT_CHECKED;
+        }
+        if (peerCertificates == null || peerCertificates.length == 0
+            || !(peerCertificates[0] instanceof X509Certificate cert)) {
+            return new RevocationResult(
+                RevocationStatus.UNKNOWN, "The gateway did not send a certificate");
+        }
+        X509Certificate issuer = peerCertificates.length > 1
+            && peerCertificates[1] instanceof X509Certificate x509Issuer ? x509Issuer : null;
+
+        String fingerprint;
+        try {
+            fingerprint = TrustStoreCompleteChainTrustStrategy.fingerprint(cert);
+        } catch (CertificateException e) {
+            return new RevocationResult(RevocationStatus.UNKNOWN, e.getMessage());
+        }
+        var now = Instant.now();
+        var cached = results.get(fingerprint);
+        if (cached != null && cached.expires().isAfter(now)) {
+            LOGGER.trace("Using cached revocation status for [{}]", fingerprint);
+            return cached.result();
+        }
+        var checked = checkCertificate(cert, issuer, revocation);
+        results.put(fingerprint, checked);
+        if (results.size() > gatewayMonitorConfig.getCheckCacheMaxSize()) {
+            results.values().removeIf(r -> !r.expires().isAfter(now));
+        }
+        return checked.result();
+    }
+
+    private CachedResult checkCertificate(
+        X509Certificate cert, X509Certificate issuer, RevocationProperties revocation) {
+        if (issuer == null) {
+            return unknown("The gateway did not send the issuer certificate", revocation);
+        }
+        List<String> problems = new ArrayList<>();
+        if (revocation.isOcspEnabled()) {
+            for (String url : ocspUrls(cert, revocation)) {
+                try {
+                    var result = checkOcsp(cert, issuer, url, revocation);
+                    if (result != null) {
+                        return result;
+                    }
+                    problems.add("OCSP responder " + url + " does not know the certificate");
+                } catch (IOException | GeneralSecurityException | OCSPException
+                         | OperatorCreationException | CertException e) {
+                    LOGGER.debug("OCSP request to [{}] failed", url, e);
+                    problems.add("OCSP responder " + url + ": " + e.getMessage());
+                }
+            }
+        }
+        for (X509CRL crl : getConfiguredCrls(revocation)) {
+            var result = checkCrl(cert, issuer, crl, "local CRL", revocation);
+            if (result != null) {
+                return result;
+            }
+        }
+        if (revocation.isCrlDistributionPointsEnabled()) {
+            for (String url : crlUrls(cert)) {
+                try {
+                    var result =
+                        checkCrl(cert, issuer, downloadCrl(url, revocation), "CRL " + url,
+                                 revocation
+                        );
+                    if (result != null) {
+                        return result;
+                    }
+                    problems.add("CRL " + url + " is not valid for the certificate");
+                } catch (IOException | GeneralSecurityException e) {
+                    LOGGER.debug("Downloading CRL [{}] failed", url, e);
+                    problems.add("CRL " + url + ": " + e.getMessage());
+                }
+            }
+        }
+        if (problems.isEmpty()) {
+            problems.add("No OCSP responder or CRL available");
+        }
+        return unknown(String.join("; ", problems), revocation);
+    }
+
+    private CachedResult checkOcsp(
+        X509Certificate cert, X509Certificate issuer, String url, RevocationProperties revocation)
+        throws IOException, GeneralSecurityException, OCSPException, OperatorCreationException,
+        CertException {
+        var digestProvider = new JcaDigestCalculatorProviderBuilder().build();
+        var issuerHolder = new JcaX509CertificateHolder(issuer);
+        var key = "ocsp:" + url + ":" + TrustStoreCompleteChainTrustStrategy.fingerprint(issuer)
+            + ":" + cert.getSerialNumber().toString(16);
+
+        var encoded = responseCache.get(key);
+        boolean fetched = encoded == null;
+        if (fetched) {
+            var certId = new CertificateID(
+                digestProvider.get(CertificateID.HASH_SHA1), issuerHolder, cert.getSerialNumber());
+            var request = new OCSPReqBuilder().addRequest(certId).build();
+            var post = new HttpPost(url);
+            post.setEntity(new ByteArrayEntity(request.getEncoded(), OCSP_REQUEST));
+            encoded = fetch(post);
+        }
+
+        var response = new OCSPResp(encoded);
+        if (response.getStatus() != OCSPResp.SUCCESSFUL) {
+            throw new OCSPException("OCSP responder answered with status " + response.getStatus());
+        }
+        var basicResponse = (BasicOCSPResp) response.getResponseObject();
+        verifyOcspSignature(basicResponse, issuerHolder);
+
+        var now = Instant.now();
+        for (SingleResp single : basicResponse.getResponses()) {
+            if (!single.getCertID().getSerialNumber().equals(cert.getSerialNumber())
+                || !single.getCertID().matchesIssuer(issuerHolder, digestProvider)) {
+                continue;
+            }
+            var expires = expiry(single.getNextUpdate(), revocation);
+            if (fetched && expires.isAfter(now)) {
+                responseCache.put(key, encoded, expires);
+            }
+            var certStatus = single.getCertStatus();
+            if (certStatus == CertificateStatus.GOOD) {
+                return new CachedResult(new RevocationResult(
+                    RevocationStatus.GOOD, "Not revoked according to OCSP responder " + url),
+                                        expires
+                );
+            } else if (certStatus instanceof RevokedStatus revokedStatus) {
+                return new CachedResult(new RevocationResult(
+                    RevocationStatus.REVOKED,
+                    "Revoked on " + revokedStatus.getRevocationTime()
+                        + " according to OCSP responder " + url
+                ), expires);
+            }
+            return null;
+        }
+        throw new OCSPException("OCSP response does not contain the certificate");
+    }
+
+    private void verifyOcspSignature(BasicOCSPResp response, X509CertificateHolder issuer)
+        throws OCSPException, OperatorCreationException, CertificateException, CertException {
+        var verifierBuilder = new JcaContentVerifierProviderBuilder();
+        var signer = issuer;
+        var certs = response.getCerts();
+        if (certs.length > 0 && !certs[0].equals(issuer)) {
+            // delegated responder, must be issued by the issuer for OCSP signing
+            var responderCert = certs[0];
+            var extendedKeyUsage = ExtendedKeyUsage.fromExtensions(responderCert.getExtensions());
+            if (!responderCert.isSignatureValid(verifierBuilder.build(issuer))
+                || !responderCert.isValidOn(new Date())
+                || extendedKeyUsage == null
+                || !extendedKeyUsage.hasKeyPurposeId(KeyPurposeId.id_kp_OCSPSigning)) {
+                throw new OCSPException("OCSP responder is not authorized by the issuer");
+            }
+            signer = responderCert;
+        }
+        if (!response.isSignatureValid(verifierBuilder.build(signer))) {
+            throw new OCSPException("OCSP response signature is invalid");
+        }
+    }
+
+    private CachedResult checkCrl(
+        X509Certificate cert, X509Certificate issuer, X509CRL crl, String source,
+        RevocationProperties revocation) {
+        if (!crl.getIssuerX500Principal().equals(cert.getIssuerX500Principal())) {
+            return null;
+        }
+        try {
+            crl.verify(issuer.getPublicKey());
+        } catch (GeneralSecurityException e) {
+            LOGGER.debug("Signature of [{}] cannot be verified", source, e);
+            return null;
+        }
+        if (isExpired(crl)) {
+            LOGGER.debug("[{}] has expired on [{}]", source, crl.getNextUpdate());
+            return null;
+        }
+        var expires = expiry(crl.getNextUpdate(), revocation);
+        var revokedCertificate = crl.getRevokedCertificate(cert);
+        if (revokedCertificate != null) {
+            return new CachedResult(new RevocationResult(
+                RevocationStatus.REVOKED,
+                "Revoked on " + revokedCertificate.getRevocationDate() + " according to " + source
+            ), expires);
+        }
+        return new CachedResult(
+            new RevocationResult(RevocationStatus.GOOD, "Not revoked according to " + source),
+            expires
+        );
+    }
+
+    private X509CRL downloadCrl(String url, RevocationProperties revocation)
+        throws IOException, GeneralSecurityException {
+        var key = "crl:" + url;
+        var encoded = responseCache.get(key);
+        if (encoded != null) {
+            return parseCrl(new ByteArrayInputStream(encoded));
+        }
+        encoded = fetch(new HttpGet(url));
+        var crl = parseCrl(new ByteArrayInputStream(encoded));
+        var expires = expiry(crl.getNextUpdate(), revocation);
+        if (expires.isAfter(Instant.now())) {
+            responseCache.put(key, encoded, expires);
+        }
+        return crl;
+    }
+
+    private List<X509CRL> getConfiguredCrls(RevocationProperties revocation) {
+        var crls = this.configuredCrls;
+        if (crls == null || crls.stream().anyMatch(RevocationChecker::isExpired)) {
+            crls = new ArrayList<>();
+            for (Resource resource : revocation.getCrls()) {
+                try (InputStream is = resource.getInputStream()) {
+                    crls.add(parseCrl(is));
+                } catch (IOException | GeneralSecurityException e) {
+                    LOGGER.warn("Cannot load CRL [{}]", resource, e);
+                }
+            }
+            crls = List.copyOf(crls);
+            this.configuredCrls = crls;
+        }
+        return crls;
+    }
+
+    private byte[] fetch(ClassicHttpRequest request) throws IOException {
+        LOGGER.debug("Fetching revocation data from [{}]", request.getRequestUri());
+        return httpClient.execute(request, response -> {
+            if (response.getCode() != 200) {
+                throw new IOException("HTTP status " + response.getCode());
+            }
+            return EntityUtils.toByteArray(response.getEntity());
+        });
+    }
+
+    private static List<String> ocspUrls(
+        X509Certificate cert, RevocationProperties revocation) {
+        if (StringUtils.hasText(revocation.getOcspResponderUrl())) {
+            return List.of(revocation.getOcspResponderUrl());
+        }
+        var extensions = extensionsOf(cert);
+        var aia = extensions == null ? null : AuthorityInformationAccess.fromExtensions(extensions);
+        if (aia == null) {
+            return List.of();
+        }
+        List<String> urls = new ArrayList<>();
+        for (AccessDescription accessDescription : aia.getAccessDescriptions()) {
+            var location = accessDescription.getAccessLocation();
+            if (AccessDescription.id_ad_ocsp.equals(accessDescription.getAccessMethod())
+                && location.getTagNo() == GeneralName.uniformResourceIdentifier) {
+                urls.add(location.getName().toString());
+            }
+        }
+        return urls;
+    }
+
+    private static List<String> crlUrls(X509Certificate cert) {
+        var extensions = extensionsOf(cert);
+        var crlDistPoint = extensions == null ? null : CRLDistPoint.fromExtensions(extensions);
+        if (crlDistPoint == null) {
+            return List.of();
+        }
+        List<String> urls = new ArrayList<>();
+        for (DistributionPoint distributionPoint : crlDistPoint.getDistributionPoints()) {
+            var name = distributionPoint.getDistributionPoint();
+            if (name == null || name.getType() != DistributionPointName.FULL_NAME) {
+                continue;
+            }
+            for (GeneralName generalName : GeneralNames.getInstance(name.getName()).getNames()) {
+                if (generalName.getTagNo() == GeneralName.uniformResourceIdentifier) {
+                    urls.add(generalName.getName().toString());
+                }
+            }
+        }
+        return urls;
+    }
+
+    private static Extensions extensionsOf(X509Certificate cert) {
+        try {
+            return new JcaX509CertificateHolder(cert).getExtensions();
+        } catch (CertificateException e) {
+            LOGGER.debug("Cannot read extensions of certificate", e);
+            return null;
+        }
+    }
+
+    private static X509CRL parseCrl(InputStream is) throws CertificateException, CRLException {
+        return (X509CRL) CertificateFactory.getInstance("X.509").generateCRL(is);
+    }
+
+    private static boolean isExpired(X509CRL crl) {
+        return crl.getNextUpdate() != null && crl.getNextUpdate().toInstant()
+                                                 .isBefore(Instant.now());
+    }
+
+    private static Instant expiry(Date nextUpdate, RevocationProperties revocation) {
+        if (nextUpdate != null) {
+            return nextUpdate.toInstant();
+        }
+        return Instant.now().plus(revocation.getDefaultCacheTimeout());
+    }
+
+    private static CachedResult unknown(String details, RevocationProperties revocation) {
+        Duration timeout = revocation.getUnknownCacheTimeout();
+        return new CachedResult(
+            new RevocationResult(RevocationStatus.UNKNOWN, details), Instant.now().plus(timeout));
+    }
+
+    /**
+     * The revocation status of a certificate.
+     *
+     * @param status  the revocation status
+     * @param details where the status has been taken from or why it is unknown
+     */
+    public record RevocationResult(RevocationStatus status, String details) {
+    }
+
+    private record CachedResult(RevocationResult result, Instant expires) {
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches downloaded CRLs and OCSP responses until their next update.
+ *
+ * <p>The entries are kept in memory and, if a directory is given, also written to disk, so they
+ * survive a restart. A file starts with the expiry time in epoch milliseconds followed by the
+ * encoded CRL or OCSP response.
+ */
+class RevocationResponseCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RevocationResponseCache.class);
+    private final Path directory;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    RevocationResponseCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the cached data for the key if it has not expired yet.
+     *
+     * @param key the key eg. the URL of the CRL
+     * @return the cached data or null
+     */
+    byte[] get(String key) {
+        var now = Instant.now();
+        var entry = entries.get(key);
+        if (entry == null) {
+            entry = readFromDisk(key);
+            if (entry != null) {
+                entries.put(key, entry);
+            }
+        }
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.expires().isAfter(now)) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.data();
+    }
+
+    void put(String key, byte[] data, Instant expires) {
+        var entry = new Entry(data, expires);
+        entries.put(key, entry);
+        writeToDisk(key, entry);
+    }
+
+    private Entry readFromDisk(String key) {
+        if (directory == null) {
+            return null;
+        }
+        var file = fileOf(key);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (var in = new DataInputStream(Files.newInputStream(file))) {
+            var expires = Instant.ofEpochMilli(in.readLong());
+            return new Entry(in.readAllBytes(), expires);
+        } catch (IOException e) {
+            LOGGER.warn("Cannot read cached revocation data [{}]", file, e);
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, Entry entry) {
+        if (directory == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            var bytes = new ByteArrayOutputStream(entry.data().length + Long.BYTES);
+            try (var out = new DataOutputStream(bytes)) {
+                out.writeLong(entry.expires().toEpochMilli());
+                out.write(entry.data());
+            }
+            var file = fileOf(key);
+            var tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            Files.write(tmp, bytes.toByteArray());
+            Files.move(
+                tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Cannot write revocation data [{}] to [{}]", key, directory, e);
+        }
+    }
+
+    private Path fileOf(String key) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256")
+                                      .digest(key.getBytes(StandardCharsets.UTF_8));
+            return directory.resolve(HexFormat.of().formatHex(digest) + ".bin");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record Entry(byte[] data, Instant expires) {
+    }
+}
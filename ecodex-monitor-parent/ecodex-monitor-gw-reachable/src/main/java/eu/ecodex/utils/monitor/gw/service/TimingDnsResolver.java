@@ -0,0 +1,42 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import org.apache.hc.client5.http.DnsResolver;
+import org.apache.hc.client5.http.SystemDefaultDnsResolver;
+
+/**
+ * Resolves host names with the system resolver and records the time into the
+ * {@link ProbeTimings} of the current probe.
+ */
+class TimingDnsResolver implements DnsResolver {
+    private final DnsResolver delegate = SystemDefaultDnsResolver.INSTANCE;
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        long start = System.nanoTime();
+        try {
+            return delegate.resolve(host);
+        } finally {
+            var timings = ProbeTimings.current();
+            if (timings != null) {
+                timings.recordDns(System.nanoTime() - start);
+            }
+        }
+    }
+
+    @Override
+    public String resolveCanonicalHostname(String host) throws UnknownHostException {
+        return delegate.resolveCanonicalHostname(host);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.Timeout;
+
+/**
+ * TLS socket factory which records the time of the TCP connect and of the TLS handshake into the
+ * {@link ProbeTimings} of the current probe and marks the session of every handshake.
+ */
+class TimingSslSocketFactory extends SSLConnectionSocketFactory {
+
+    TimingSslSocketFactory(
+        SSLContext sslContext, String[] supportedProtocols, HostnameVerifier hostnameVerifier) {
+        super(sslContext, supportedProtocols, null, hostnameVerifier);
+    }
+
+    @Override
+    protected void connectSocket(
+        Socket sock, InetSocketAddress remoteAddress, Timeout connectTimeout, HttpContext context)
+        throws IOException {
+        long start = System.nanoTime();
+        try {
+            super.connectSocket(sock, remoteAddress, connectTimeout, context);
+        } finally {
+            var timings = ProbeTimings.current();
+            if (timings != null) {
+                timings.recordConnect(System.nanoTime() - start);
+            }
+        }
+    }
+
+    @Override
+    public Socket createLayeredSocket(
+        Socket socket, String target, int port, Object attachment, HttpContext context)
+        throws IOException {
+        long start = System.nanoTime();
+        try {
+            var layeredSocket =
+                super.createLayeredSocket(socket, target, port, attachment, context);
+            if (layeredSocket instanceof SSLSocket sslSocket) {
+                ProbeTimings.markHandshake(sslSocket.getSession());
+            }
+            return layeredSocket;
+        } finally {
+            var timings = ProbeTimings.current();
+            if (timings != null) {
+                timings.recordTlsHandshake(System.nanoTime() - start);
+            }
+        }
+    }
+}
@@ -17,6 +17,7 @@ import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.security.PublicKey;
@@ -31,11 +32,18 @@ import java.security.cert.CertificateFactory;
 import java.security.cert.PKIXParameters;
 import java.security.cert.TrustAnchor;
 import java.security.cert.X509Certificate;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.security.auth.x500.X500Principal;
 import org.apache.hc.core5.ssl.TrustStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,6 +56,13 @@ import org.springframework.stereotype.Component;
  *
  * <p>This class is autoconfigured as a Spring component and relies on the
  * GatewayMonitorConfigurationProperties for its configuration.
+ *
+ * <p>The certificates of the trust store are indexed by their subject, so the possible issuers of
+ * a certificate are looked up instead of trying every certificate of the trust store. The result
+ * of the chain validation is cached by the SHA-256 fingerprint of the peer certificate for
+ * {@code monitor.gw.chain-validation-cache-timeout}, so repeated probes of the same gateway skip
+ * the issuer search. The strategy never trusts a peer itself, the default trust manager always
+ * decides.
  */
 @Component
 @SuppressWarnings("squid:S1135")
@@ -58,6 +73,9 @@ public class TrustStoreCompleteChainTrustStrategy implements TrustStrategy {
     GatewayMonitorConfigurationProperties gatewayMonitorConfigurationProperties;
     private KeyStore trustStore;
     private StoreConfigurationProperties trustStoreConfig;
+    private volatile TrustAnchorIndex trustAnchorIndex = new TrustAnchorIndex(Map.of());
+    private final Map<String, ChainValidation> validationCache = new ConcurrentHashMap<>();
+    private final AtomicLong validationCount = new AtomicLong();
 
     /**
      * Initializes the trust store and its configuration for the
@@ -69,9 +87,24 @@ public class TrustStoreCompleteChainTrustStrategy implements TrustStrategy {
      */
     @PostConstruct
     public void init() {
-        this.trustStore =
-            gatewayMonitorConfigurationProperties.getTls().getTrustStore().loadKeyStore();
         this.trustStoreConfig = gatewayMonitorConfigurationProperties.getTls().getTrustStore();
+        setTrustStore(trustStoreConfig.loadKeyStore());
+    }
+
+    /**
+     * Replaces the trust store, the trust anchor index is rebuilt and the cached validation
+     * results are discarded.
+     *
+     * @param trustStore the new trust store
+     */
+    public synchronized void setTrustStore(KeyStore trustStore) {
+        try {
+            this.trustAnchorIndex = TrustAnchorIndex.of(trustStore);
+        } catch (KeyStoreException e) {
+            throw new IllegalArgumentException("Cannot read certificates of trust store", e);
+        }
+        this.trustStore = trustStore;
+        validationCache.clear();
     }
 
     @Override
@@ -79,16 +112,39 @@ public class TrustStoreCompleteChainTrustStrategy implements TrustStrategy {
         throws CertificateException {
         X509Certificate firstCertificate = x509Certificates[0];
         validateCertificate(firstCertificate);
+        // the default trust manager always decides, it also applies the TLS checks of the server
+        // certificate
         return false;
     }
 
-    private void validateCertificate(X509Certificate crt) throws CertificateException {
+    /**
+     * Checks if the certificate chain of the given certificate can be completed up to a self
+     * signed certificate of the trust store. The result is cached by the certificate fingerprint.
+     *
+     * @param crt the peer certificate
+     * @return true if the chain is valid
+     * @throws CertificateException if the certificate cannot be encoded or validated
+     */
+    public boolean validateCertificate(X509Certificate crt) throws CertificateException {
+        var fingerprint = fingerprint(crt);
+        long now = System.nanoTime();
+        var cached = validationCache.get(fingerprint);
+        if (cached != null && cached.expiresAt - now > 0) {
+            LOGGER.trace("Using cached chain validation result for [{}]", fingerprint);
+            return cached.valid;
+        }
+        boolean valid;
+        validationCount.incrementAndGet();
         try {
-            validateKeyChain(crt, trustStore);
-        } catch (KeyStoreException | InvalidAlgorithmParameterException | NoSuchAlgorithmException
+            valid = validateKeyChain(crt, trustAnchorIndex);
+        } catch (InvalidAlgorithmParameterException | NoSuchAlgorithmException
                  | NoSuchProviderException e) {
             throw new RuntimeException(e);
         }
+        var timeToLive = gatewayMonitorConfigurationProperties.getChainValidationCacheTimeout();
+        validationCache.put(fingerprint, new ChainValidation(valid, now + timeToLive.toNanos()));
+        evictExpiredValidations(now);
+        return valid;
     }
 
     /**
@@ -110,16 +166,8 @@ public class TrustStoreCompleteChainTrustStrategy implements TrustStrategy {
     public boolean validateKeyChain(X509Certificate client, KeyStore keyStore)
         throws KeyStoreException, CertificateException, InvalidAlgorithmParameterException,
         NoSuchAlgorithmException, NoSuchProviderException {
-        var certs = new X509Certificate[keyStore.size()];
-        var i = 0;
-        Enumeration<String> alias = keyStore.aliases();
-
-        while (alias.hasMoreElements()) {
-            certs[i++] = (X509Certificate) keyStore.getCertificate(alias
-                                                                       .nextElement());
-        }
-
-        return validateKeyChain(client, certs);
+        var index = keyStore == this.trustStore ? trustAnchorIndex : TrustAnchorIndex.of(keyStore);
+        return validateKeyChain(client, index);
     }
 
     /**
@@ -142,53 +190,60 @@ public class TrustStoreCompleteChainTrustStrategy implements TrustStrategy {
     public boolean validateKeyChain(X509Certificate client, X509Certificate... trustedCerts)
         throws CertificateException, InvalidAlgorithmParameterException, NoSuchAlgorithmException,
         NoSuchProviderException {
-        var found = false;
-        int i = trustedCerts.length;
+        return validateKeyChain(client, TrustAnchorIndex.of(List.of(trustedCerts)));
+    }
+
+    private boolean validateKeyChain(X509Certificate client, TrustAnchorIndex index)
+        throws CertificateException, InvalidAlgorithmParameterException, NoSuchAlgorithmException,
+        NoSuchProviderException {
         var certificateFactory = CertificateFactory.getInstance("X.509");
-        TrustAnchor anchor;
-        Set anchors;
-        CertPath path;
-        List list;
-        PKIXParameters params;
         var validator = CertPathValidator.getInstance("PKIX");
+        return validateKeyChain(client, index, certificateFactory, validator, new HashSet<>());
+    }
 
-        while (!found && i > 0) {
-            anchor = new TrustAnchor(trustedCerts[--i], null);
-            anchors = Collections.singleton(anchor);
-
-            list = Arrays.asList(new Certificate[] {client});
-            path = certificateFactory.generateCertPath(list);
+    private boolean validateKeyChain(
+        X509Certificate client, TrustAnchorIndex index, CertificateFactory certificateFactory,
+        CertPathValidator validator, Set<X509Certificate> visited)
+        throws CertificateException, InvalidAlgorithmParameterException, NoSuchAlgorithmException,
+        NoSuchProviderException {
+        var issuers = index.issuersOf(client);
+        if (issuers.isEmpty()) {
+            return false;
+        }
+        CertPath path = certificateFactory.generateCertPath(List.of(client));
 
-            params = new PKIXParameters(anchors);
-            params.setRevocationEnabled(false); // TODO: add config for revocation checks!
+        for (IndexedCertificate issuer : issuers) {
+            var params = new PKIXParameters(Collections.singleton(issuer.anchor()));
+            params.setRevocationEnabled(false); // revocation is checked by the RevocationChecker
 
-            X509Certificate currentCert = trustedCerts[i];
-            if (client.getIssuerDN().equals(currentCert.getSubjectDN())) {
-                try {
-                    validator.validate(path, params);
-                    if (isSelfSigned(currentCert)) {
-                        found = true;
-                        LOGGER.debug(
-                            "validating root [{}]",
-                            currentCert.getSubjectX500Principal().getName()
-                        );
-                    } else if (!client.equals(currentCert)) {
-                        // find parent ca
-                        LOGGER.debug(
-                            "validating [{}] via: [{}] ",
-                            client.getSubjectX500Principal().getName(),
-                            currentCert.getSubjectX500Principal().getName()
-                        );
-                        found = validateKeyChain(currentCert, trustedCerts);
-                    }
-                } catch (CertPathValidatorException e) {
-                    LOGGER.trace(
-                        "validation fail, check next certificate in the trustedCerts array"
+            X509Certificate currentCert = issuer.certificate();
+            try {
+                validator.validate(path, params);
+                if (issuer.selfSigned()) {
+                    LOGGER.debug(
+                        "validating root [{}]",
+                        currentCert.getSubjectX500Principal().getName()
+                    );
+                    return true;
+                } else if (!client.equals(currentCert) && visited.add(currentCert)) {
+                    // find parent ca
+                    LOGGER.debug(
+                        "validating [{}] via: [{}] ",
+                        client.getSubjectX500Principal().getName(),
+                        currentCert.getSubjectX500Principal().getName()
                     );
+                    if (validateKeyChain(
+                        currentCert, index, certificateFactory, validator, visited)) {
+                        return true;
+                    }
                 }
+            } catch (CertPathValidatorException e) {
+                LOGGER.trace(
+                    "validation fail, check next certificate in the trustedCerts array"
+                );
             }
         }
-        return found;
+        return false;
     }
 
     /**
@@ -200,7 +255,7 @@ public class TrustStoreCompleteChainTrustStrategy implements TrustStrategy {
      * @throws NoSuchAlgorithmException @see {@link X509Certificate#verify(PublicKey)}
      * @throws NoSuchProviderException  @see {@link X509Certificate#verify(PublicKey)}
      */
-    public boolean isSelfSigned(X509Certificate cert)
+    public static boolean isSelfSigned(X509Certificate cert)
         throws CertificateException, NoSuchAlgorithmException,
         NoSuchProviderException {
         try {
@@ -211,4 +266,83 @@ public class TrustStoreCompleteChainTrustStrategy implements TrustStrategy {
             return false;
         }
     }
+
+    int getCachedValidationCount() {
+        return validationCache.size();
+    }
+
+    long getValidationCount() {
+        return validationCount.get();
+    }
+
+    private void evictExpiredValidations(long now) {
+        if (validationCache.size() > gatewayMonitorConfigurationProperties.getCheckCacheMaxSize()) {
+            validationCache.values().removeIf(v -> v.expiresAt - now <= 0);
+        }
+    }
+
+    static String fingerprint(Certificate certificate) throws CertificateException {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(certificate.getEncoded());
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record ChainValidation(boolean valid, long expiresAt) {
+    }
+
+    private record IndexedCertificate(
+        X509Certificate certificate, TrustAnchor anchor, boolean selfSigned) {
+    }
+
+    /**
+     * The trusted certificates indexed by their subject.
+     */
+    private static final class TrustAnchorIndex {
+        private final Map<X500Principal, List<IndexedCertificate>> bySubject;
+
+        private TrustAnchorIndex(Map<X500Principal, List<IndexedCertificate>> bySubject) {
+            this.bySubject = bySubject;
+        }
+
+        static TrustAnchorIndex of(KeyStore keyStore) throws KeyStoreException {
+            List<X509Certificate> certs = new ArrayList<>(keyStore.size());
+            Enumeration<String> alias = keyStore.aliases();
+            while (alias.hasMoreElements()) {
+                var certificate = keyStore.getCertificate(alias.nextElement());
+                if (certificate instanceof X509Certificate x509Certificate) {
+                    certs.add(x509Certificate);
+                }
+            }
+            return of(certs);
+        }
+
+        static TrustAnchorIndex of(List<X509Certificate> certs) {
+            Map<X500Principal, List<IndexedCertificate>> bySubject = new HashMap<>();
+            for (X509Certificate cert : certs) {
+                boolean selfSigned;
+                try {
+                    selfSigned = isSelfSigned(cert);
+                } catch (CertificateException | NoSuchAlgorithmException
+                         | NoSuchProviderException e) {
+                    LOGGER.warn(
+                        "Cannot verify signature of [{}], treating it as not self signed",
+                        cert.getSubjectX500Principal().getName(), e
+                    );
+                    selfSigned = false;
+                }
+                bySubject.computeIfAbsent(cert.getSubjectX500Principal(), k -> new ArrayList<>())
+                         .add(new IndexedCertificate(
+                             cert, new TrustAnchor(cert, null), selfSigned));
+            }
+            bySubject.replaceAll((k, v) -> List.copyOf(v));
+            return new TrustAnchorIndex(Map.copyOf(bySubject));
+        }
+
+        List<IndexedCertificate> issuersOf(X509Certificate certificate) {
+            return bySubject.getOrDefault(certificate.getIssuerX500Principal(), List.of());
+        }
+    }
 }
@@ -0,0 +1,69 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.ecodex.utils.monitor.gw.GatewayMonitorAutoConfiguration;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.dto.TlsHandshake;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import test.server.ServerStarter;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.NONE,
+    classes = {GatewayMonitorAutoConfiguration.class},
+    properties = "monitor.gw.probe.async-client=true"
+)
+@ActiveProfiles("test")
+class AsyncGatewaysCheckerServiceITCase {
+    private static final Logger LOGGER =
+        LoggerFactory.getLogger(AsyncGatewaysCheckerServiceITCase.class);
+    public static final String GATEWAY_STATUS_IS = "Gateway status is: [{}]";
+    @Autowired
+    AsyncGatewaysCheckerService asyncGatewaysCheckerService;
+
+    @Test
+    void getGatewayStatus_illegalClientCrt() {
+        var server2 = ServerStarter.startServer2();
+
+        var accessPoint = new AccessPoint();
+        accessPoint.setName("gw2");
+        accessPoint.setEndpoint("https://localhost:" + ServerStarter.getServerPort(server2) + "/");
+
+        var gatewayStatus = asyncGatewaysCheckerService.getGatewayStatus(accessPoint).join();
+
+        LOGGER.info(GATEWAY_STATUS_IS, gatewayStatus);
+
+        assertThat(gatewayStatus.getFailures()).hasSize(1);
+    }
+
+    @Test
+    void getGatewayStatus_composed() {
+        var server3 = ServerStarter.startServer3();
+
+        var accessPoint = new AccessPoint();
+        accessPoint.setName("gw3");
+        accessPoint.setEndpoint("https://localhost:" + ServerStarter.getServerPort(server3) + "/");
+
+        var first = asyncGatewaysCheckerService.refreshGatewayStatus(accessPoint);
+        var second = asyncGatewaysCheckerService.getGatewayStatus(accessPoint);
+        CompletableFuture.allOf(first, second).join();
+
+        var gatewayStatus = first.join();
+        LOGGER.info(GATEWAY_STATUS_IS, gatewayStatus);
+        assertThat(gatewayStatus.getFailures()).isEmpty();
+        assertThat(gatewayStatus.getUsedTls()).isNotNull();
+        assertThat(gatewayStatus.getServerCertificates()).isNotEmpty();
+        assertThat(gatewayStatus.getTlsHandshake()).isEqualTo(TlsHandshake.FULL);
+        assertThat(gatewayStatus.getTimings().getTotal()).isPositive();
+        assertThat(second.join()).isSameAs(gatewayStatus);
+    }
+}
@@ -0,0 +1,74 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+class CertificateRegistryTest {
+    static Certificate clientCertificate;
+    static Certificate serverCertificate;
+
+    @BeforeAll
+    static void loadCertificates() throws Exception {
+        clientCertificate = loadCertificate("keystores/keystore.jks");
+        serverCertificate = loadCertificate("keystores/truststore.jks");
+    }
+
+    @Test
+    void register_returnsSha256Fingerprint() {
+        var registry = new CertificateRegistry(Duration.ofDays(1));
+
+        var fingerprint = registry.register(clientCertificate);
+
+        assertThat(fingerprint).hasSize(64).matches("[0-9a-f]+")
+                               .isEqualTo(CertificateRegistry.fingerprintOf(clientCertificate));
+        assertThat(registry.get(fingerprint.toUpperCase())).isSameAs(clientCertificate);
+    }
+
+    @Test
+    void register_equalCertificate_isInterned() throws Exception {
+        var registry = new CertificateRegistry(Duration.ofDays(1));
+        var copy = CertificateFactory.getInstance("X.509").generateCertificate(
+            new ByteArrayInputStream(clientCertificate.getEncoded()));
+
+        var first = registry.register(new Certificate[] {clientCertificate, serverCertificate});
+        var second = registry.register(new Certificate[] {copy});
+
+        assertThat(second[0]).isSameAs(first[0]);
+        assertThat(registry.get(second[0])).isSameAs(clientCertificate);
+        assertThat(registry.getFingerprints()).containsExactlyInAnyOrder(first);
+    }
+
+    @Test
+    void register_null_returnsEmptyArray() {
+        var registry = new CertificateRegistry(Duration.ofDays(1));
+
+        assertThat(registry.register((Certificate[]) null)).isEmpty();
+    }
+
+    @Test
+    void register_newCertificate_removesExpiredCertificates() {
+        var registry = new CertificateRegistry(Duration.ZERO);
+        var expired = registry.register(clientCertificate);
+
+        var fingerprint = registry.register(serverCertificate);
+
+        assertThat(registry.get(expired)).isNull();
+        assertThat(registry.get(fingerprint)).isSameAs(serverCertificate);
+    }
+
+    private static Certificate loadCertificate(String keyStore) throws Exception {
+        var store = KeyStore.getInstance("JKS");
+        try (var in = new ClassPathResource(keyStore).getInputStream()) {
+            store.load(in, "12345".toCharArray());
+        }
+        return store.getCertificate(store.aliases().nextElement());
+    }
+}
@@ -0,0 +1,125 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.config.GatewayRestInterfaceConfiguration;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.domain.AccessPointsConfiguration;
+import eu.ecodex.utils.monitor.gw.domain.AccessPointsDiff;
+import java.util.ArrayList;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class ConfiguredGatewaysServiceTest {
+    ConfiguredGatewaysService configuredGatewaysService;
+    GatewayMonitorConfigurationProperties config;
+    List<Object> events = new ArrayList<>();
+
+    @BeforeEach
+    public void beforeEach() {
+        config = new GatewayMonitorConfigurationProperties();
+        config.setRest(new GatewayRestInterfaceConfiguration());
+        config.getRest().setLoadPmodes(false);
+        config.getRest().setPmodeCheckInterval(Duration.ofHours(1));
+        config.setAccessPoints(accessPointsConfiguration("at", "de", "fr"));
+
+        configuredGatewaysService = new ConfiguredGatewaysService();
+        ReflectionTestUtils.setField(
+            configuredGatewaysService, "monitorConfigurationProperties", config);
+        ReflectionTestUtils.setField(
+            configuredGatewaysService, "eventPublisher",
+            (ApplicationEventPublisher) events::add);
+    }
+
+    @AfterEach
+    public void afterEach() {
+        configuredGatewaysService.shutdown();
+    }
+
+    @Test
+    void getByName_findsSelfAndRemoteAccessPoints() {
+        assertThat(configuredGatewaysService.getByName("at").getName()).isEqualTo("at");
+        assertThat(configuredGatewaysService.getByName("fr").getName()).isEqualTo("fr");
+        assertThat(configuredGatewaysService.getByName("xx")).isNull();
+        assertThat(configuredGatewaysService.getConfiguredGatewaysWithSelf())
+            .extracting(AccessPoint::getName)
+            .containsExactly("at", "de", "fr");
+    }
+
+    @Test
+    void getSnapshot_withinCheckInterval_returnsSameSnapshot() {
+        var first = configuredGatewaysService.getSnapshot();
+        config.setAccessPoints(accessPointsConfiguration("at", "de"));
+
+        assertThat(configuredGatewaysService.getSnapshot()).isSameAs(first);
+    }
+
+    @Test
+    void getSnapshot_afterCheckInterval_isUpdatedInBackground() throws InterruptedException {
+        config.getRest().setPmodeCheckInterval(Duration.ZERO);
+        var first = configuredGatewaysService.getSnapshot();
+        config.setAccessPoints(accessPointsConfiguration("at", "de"));
+
+        var current = configuredGatewaysService.getSnapshot();
+        for (int i = 0; i < 50 && current.getVersion() == first.getVersion(); i++) {
+            Thread.sleep(100);
+            current = configuredGatewaysService.getSnapshot();
+        }
+
+        assertThat(current.getVersion()).isGreaterThan(first.getVersion());
+        assertThat(current.getByName("fr")).isNull();
+        assertThat(first.getByName("fr")).isNotNull();
+    }
+
+    @Test
+    void setAccessPointConfig_publishesDiffOfChangedAccessPoints() {
+        configuredGatewaysService.getSnapshot();
+        var changed = accessPointsConfiguration("at", "de", "it");
+        changed.getRemoteAccessPoints().iterator().next()
+            .setEndpoint("https://de2.example.com/domibus/services/msh");
+
+        configuredGatewaysService.setAccessPointConfig(changed);
+
+        assertThat(events).hasSize(1);
+        AccessPointsDiff diff = ((AccessPointsChangedEvent) events.getFirst()).getDiff();
+        assertThat(diff.getAdded()).extracting(AccessPoint::getName).containsExactly("it");
+        assertThat(diff.getRemoved()).extracting(AccessPoint::getName).containsExactly("fr");
+        assertThat(diff.getChanged()).hasSize(1);
+        assertThat(diff.getChanged().getFirst().previous().getEndpoint())
+            .isEqualTo("https://de.example.com/domibus/services/msh");
+        assertThat(diff.getChanged().getFirst().current().getEndpoint())
+            .isEqualTo("https://de2.example.com/domibus/services/msh");
+    }
+
+    @Test
+    void setAccessPointConfig_sameAccessPoints_publishesNothing() {
+        var first = configuredGatewaysService.getSnapshot();
+
+        configuredGatewaysService.setAccessPointConfig(accessPointsConfiguration("at", "fr", "de"));
+
+        assertThat(events).isEmpty();
+        assertThat(configuredGatewaysService.getSnapshot()).isSameAs(first);
+    }
+
+    private static AccessPointsConfiguration accessPointsConfiguration(
+        String self, String... remotes) {
+        var accessPoints = new AccessPointsConfiguration();
+        accessPoints.setSelf(accessPoint(self));
+        accessPoints.setRemoteAccessPoints(
+            List.of(remotes).stream().map(ConfiguredGatewaysServiceTest::accessPoint).toList());
+        return accessPoints;
+    }
+
+    private static AccessPoint accessPoint(String name) {
+        var accessPoint = new AccessPoint();
+        accessPoint.setName(name);
+        accessPoint.setEndpoint("https://" + name + ".example.com/domibus/services/msh");
+        return accessPoint;
+    }
+}
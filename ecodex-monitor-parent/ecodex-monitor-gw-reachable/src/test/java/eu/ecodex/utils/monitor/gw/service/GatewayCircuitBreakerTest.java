@@ -0,0 +1,161 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import eu.ecodex.utils.monitor.gw.dto.CheckResultDTO;
+import eu.ecodex.utils.monitor.gw.dto.CircuitState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GatewayCircuitBreakerTest {
+    GatewayCircuitBreaker circuitBreaker;
+    SimpleMeterRegistry meterRegistry;
+    AtomicLong now = new AtomicLong();
+    AccessPoint ap;
+
+    @BeforeEach
+    public void beforeEach() {
+        var config = new GatewayMonitorConfigurationProperties();
+        config.getCircuitBreaker().setFailureThreshold(2);
+        config.getCircuitBreaker().setInitialBackoff(Duration.ofMinutes(1));
+        config.getCircuitBreaker().setMaxBackoff(Duration.ofMinutes(3));
+        var cache = new GatewayStatusCache();
+        cache.gatewayMonitorConfig = config;
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker = new GatewayCircuitBreaker();
+        circuitBreaker.gatewayMonitorConfig = config;
+        circuitBreaker.gatewayStatusCache = cache;
+        circuitBreaker.meterRegistry = meterRegistry;
+        circuitBreaker.nanoClock = now::get;
+        circuitBreaker.init();
+
+        ap = new AccessPoint();
+        ap.setName("ap1");
+        ap.setEndpoint("https://ap1.example.com/domibus/services/msh");
+    }
+
+    @Test
+    void failuresInARow_openTheCircuitUntilTheBackoffHasPassed() {
+        circuitBreaker.recordResult(ap, failed());
+        assertThat(circuitBreaker.rejectProbe(ap)).isNull();
+
+        var status = failed();
+        circuitBreaker.recordResult(ap, status);
+
+        assertThat(status.getCircuitState()).isEqualTo(CircuitState.OPEN);
+        var rejected = circuitBreaker.rejectProbe(ap);
+        assertThat(rejected).isNotNull();
+        assertThat(rejected.getCircuitState()).isEqualTo(CircuitState.OPEN);
+        assertThat(rejected.getFailures().getFirst().getName())
+            .isEqualTo(GatewayCircuitBreaker.CIRCUIT_BREAKER_CHECK_NAME);
+        assertThat(meterRegistry.get(GatewayCircuitBreaker.METRIC_PREFIX + ".state")
+                                .tag("ap", "ap1").gauge().value())
+            .isEqualTo(CircuitState.OPEN.ordinal());
+
+        now.addAndGet(Duration.ofMinutes(1).toNanos());
+        assertThat(circuitBreaker.rejectProbe(ap)).isNull();
+        assertThat(circuitBreaker.getState(ap)).isEqualTo(CircuitState.HALF_OPEN);
+    }
+
+    @Test
+    void failedTrial_multipliesTheBackoffUpToTheMaximum() {
+        circuitBreaker.recordResult(ap, failed());
+        circuitBreaker.recordResult(ap, failed());
+
+        // first trial fails, backoff 2 minutes
+        now.addAndGet(Duration.ofMinutes(1).toNanos());
+        assertThat(circuitBreaker.rejectProbe(ap)).isNull();
+        circuitBreaker.recordResult(ap, failed());
+        now.addAndGet(Duration.ofSeconds(119).toNanos());
+        assertThat(circuitBreaker.rejectProbe(ap)).isNotNull();
+
+        // second trial fails, backoff limited to 3 minutes
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertThat(circuitBreaker.rejectProbe(ap)).isNull();
+        circuitBreaker.recordResult(ap, failed());
+        now.addAndGet(Duration.ofMinutes(3).toNanos());
+        assertThat(circuitBreaker.rejectProbe(ap)).isNull();
+
+        assertThat(meterRegistry.get(GatewayCircuitBreaker.METRIC_PREFIX + ".rejected")
+                                .functionCounter().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void successfulTrial_closesTheCircuit() {
+        circuitBreaker.recordResult(ap, failed());
+        circuitBreaker.recordResult(ap, failed());
+        now.addAndGet(Duration.ofMinutes(1).toNanos());
+        assertThat(circuitBreaker.rejectProbe(ap)).isNull();
+
+        var status = status();
+        circuitBreaker.recordResult(ap, status);
+
+        assertThat(status.getCircuitState()).isEqualTo(CircuitState.CLOSED);
+        circuitBreaker.recordResult(ap, failed());
+        assertThat(circuitBreaker.rejectProbe(ap)).isNull();
+    }
+
+    @Test
+    void halfOpen_onlyOneTrialAtATime() {
+        circuitBreaker.recordResult(ap, failed());
+        circuitBreaker.recordResult(ap, failed());
+        now.addAndGet(Duration.ofMinutes(1).toNanos());
+
+        assertThat(circuitBreaker.rejectProbe(ap)).isNull();
+        var rejected = circuitBreaker.rejectProbe(ap);
+        assertThat(rejected).isNotNull();
+        assertThat(rejected.getCircuitState()).isEqualTo(CircuitState.HALF_OPEN);
+        assertThat(GatewayCircuitBreaker.isRejected(rejected)).isTrue();
+
+        circuitBreaker.recordResult(ap, status());
+        assertThat(circuitBreaker.rejectProbe(ap)).isNull();
+        assertThat(circuitBreaker.rejectProbe(ap)).isNull();
+    }
+
+    @Test
+    void halfOpen_lostTrialIsReplacedAfterTheOverallTimeout() {
+        circuitBreaker.recordResult(ap, failed());
+        circuitBreaker.recordResult(ap, failed());
+        now.addAndGet(Duration.ofMinutes(1).toNanos());
+        assertThat(circuitBreaker.rejectProbe(ap)).isNull();
+
+        var overallTimeout = circuitBreaker.gatewayMonitorConfig.getProbe().getOverallTimeout();
+        now.addAndGet(overallTimeout.toNanos());
+
+        assertThat(circuitBreaker.rejectProbe(ap)).isNull();
+        assertThat(circuitBreaker.rejectProbe(ap)).isNotNull();
+    }
+
+    @Test
+    void disabled_neverRejects() {
+        circuitBreaker.gatewayMonitorConfig.getCircuitBreaker().setEnabled(false);
+        for (int i = 0; i < 5; i++) {
+            circuitBreaker.recordResult(ap, failed());
+        }
+
+        assertThat(circuitBreaker.rejectProbe(ap)).isNull();
+    }
+
+    private AccessPointStatusDTO status() {
+        var status = new AccessPointStatusDTO();
+        status.setName(ap.getName());
+        status.setCheckTime(ZonedDateTime.now());
+        return status;
+    }
+
+    private AccessPointStatusDTO failed() {
+        var status = status();
+        var checkResultDTO = new CheckResultDTO();
+        checkResultDTO.setName("Connection Failure");
+        status.getFailures().add(checkResultDTO);
+        return status;
+    }
+}
@@ -0,0 +1,128 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import eu.ecodex.utils.monitor.gw.dto.CheckResultDTO;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+
+class GatewayHealthIndicatorBatchTest {
+    GatewayMonitorConfigurationProperties config;
+    GatewayHealthIndicator healthIndicator;
+    GatewayStatusRefresher refresher;
+    GatewayProbeExecutor probeExecutor;
+    AccessPoint self = accessPoint("self");
+    AccessPoint gw1 = accessPoint("gw1");
+    AccessPoint broken = accessPoint("broken");
+    AccessPoint slow = accessPoint("slow");
+
+    @BeforeEach
+    public void beforeEach() {
+        config = new GatewayMonitorConfigurationProperties();
+        config.getProbe().setBackgroundRefresh(false);
+        config.getHealthCheck().setTimeout(Duration.ofMillis(500));
+
+        var checkerService = mock(GatewaysCheckerService.class);
+        when(checkerService.getGatewayStatus(any(AccessPoint.class))).thenAnswer(invocation -> {
+            AccessPoint ap = invocation.getArgument(0);
+            if (ap.equals(slow)) {
+                Thread.sleep(Duration.ofSeconds(10).toMillis());
+            }
+            var status = new AccessPointStatusDTO();
+            status.setName(ap.getName());
+            status.setCheckTime(ZonedDateTime.now());
+            if (ap.equals(broken)) {
+                var failure = new CheckResultDTO();
+                failure.setName("Connection Failure");
+                status.getFailures().add(failure);
+            }
+            return status;
+        });
+        probeExecutor = new GatewayProbeExecutor();
+        probeExecutor.gatewayMonitorConfig = config;
+        probeExecutor.gatewaysCheckerService = checkerService;
+        probeExecutor.init();
+
+        var configuredGatewaysService = mock(ConfiguredGatewaysService.class);
+        when(configuredGatewaysService.getSelf()).thenReturn(self);
+        when(configuredGatewaysService.getConfiguredGateways())
+            .thenReturn(List.of(gw1, broken, slow));
+
+        refresher = new GatewayStatusRefresher();
+        refresher.gatewayMonitorConfig = config;
+        refresher.configuredGatewaysService = configuredGatewaysService;
+        refresher.probeExecutor = probeExecutor;
+        refresher.init();
+
+        healthIndicator = new GatewayHealthIndicator();
+        healthIndicator.gatewayMonitorConfig = config;
+        healthIndicator.configuredGatewaysService = configuredGatewaysService;
+        healthIndicator.statusRefresher = refresher;
+    }
+
+    @AfterEach
+    public void afterEach() {
+        refresher.shutdown();
+        probeExecutor.shutdown();
+    }
+
+    @Test
+    void health_withoutCheckNames_onlyChecksSelf() {
+        var health = healthIndicator.health();
+
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(gatewayDetails(health.getDetails())).containsOnlyKeys("self");
+    }
+
+    @Test
+    void health_allGateways_isDownWithinTimeout() {
+        config.getHealthCheck().setCheckNames(List.of(GatewayHealthIndicator.ALL_GATEWAYS));
+
+        long start = System.nanoTime();
+        var health = healthIndicator.health();
+        var duration = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(duration).isLessThan(Duration.ofSeconds(3));
+        assertThat(health.getStatus()).isEqualTo(Status.DOWN);
+        var gateways = gatewayDetails(health.getDetails());
+        assertThat(gateways).containsOnlyKeys("self", "gw1", "broken", "slow");
+        assertThat(gateways.get("gw1")).containsEntry("status", "UP");
+        assertThat(gateways.get("broken")).containsEntry("status", "DOWN");
+        assertThat(gateways.get("slow")).containsEntry("status", "UNKNOWN");
+    }
+
+    @Test
+    void health_selectedGatewayTimedOut_isUnknown() {
+        config.getHealthCheck().setCheckSelf(false);
+        config.getHealthCheck().setCheckNames(List.of("gw1", "slow"));
+
+        var health = healthIndicator.health();
+
+        assertThat(health.getStatus()).isEqualTo(Status.UNKNOWN);
+        assertThat(gatewayDetails(health.getDetails())).containsOnlyKeys("gw1", "slow");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Map<String, Object>> gatewayDetails(Map<String, Object> details) {
+        return (Map<String, Map<String, Object>>) details.get("gateways");
+    }
+
+    private static AccessPoint accessPoint(String name) {
+        var accessPoint = new AccessPoint();
+        accessPoint.setName(name);
+        accessPoint.setEndpoint("https://" + name + ".example.com/domibus/services/msh");
+        return accessPoint;
+    }
+}
@@ -0,0 +1,141 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import eu.ecodex.utils.monitor.gw.dto.CheckResultDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GatewayProbeExecutorTest {
+    GatewayProbeExecutor probeExecutor;
+    GatewaysCheckerService checkerService;
+
+    @BeforeEach
+    public void beforeEach() {
+        checkerService = mock(GatewaysCheckerService.class);
+        probeExecutor = new GatewayProbeExecutor();
+        probeExecutor.gatewayMonitorConfig = new GatewayMonitorConfigurationProperties();
+        probeExecutor.gatewaysCheckerService = checkerService;
+        probeExecutor.init();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        probeExecutor.shutdown();
+    }
+
+    @Test
+    void getGatewayStatuses_slowGatewayIsReportedAsTimedOut() {
+        var fast = accessPoint("fast");
+        var slow = accessPoint("slow");
+        when(checkerService.getGatewayStatus(any(AccessPoint.class))).thenAnswer(invocation -> {
+            AccessPoint ap = invocation.getArgument(0);
+            if (ap.equals(slow)) {
+                Thread.sleep(Duration.ofSeconds(10).toMillis());
+            }
+            var status = new AccessPointStatusDTO();
+            status.setName(ap.getName());
+            status.setCheckTime(ZonedDateTime.now());
+            return status;
+        });
+
+        List<AccessPointStatusDTO> statuses =
+            probeExecutor.getGatewayStatuses(List.of(slow, fast), Duration.ofMillis(500));
+
+        assertThat(statuses).extracting(AccessPointStatusDTO::getName)
+                            .containsExactly("slow", "fast");
+        assertThat(statuses.get(0).getFailures())
+            .extracting(f -> f.getName())
+            .containsExactly(GatewayProbeExecutor.TIMEOUT_CHECK_NAME);
+        assertThat(statuses.get(1).getFailures()).isEmpty();
+    }
+
+    @Test
+    void getGatewayStatuses_overallTimeout_doesNotAbortTheCachedProbe() throws Exception {
+        var cache = new GatewayStatusCache();
+        cache.gatewayMonitorConfig = probeExecutor.gatewayMonitorConfig;
+        cache.meterRegistry = new SimpleMeterRegistry();
+        cache.init();
+        var ap = accessPoint("slow");
+        when(checkerService.getGatewayStatus(any(AccessPoint.class))).thenAnswer(
+            invocation -> cache.get(ap, Duration.ofMinutes(1), a -> {
+                var status = status(a);
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    // like a probe whose socket is closed by the interrupt
+                    var failure = new CheckResultDTO();
+                    failure.setName("Connection Failure");
+                    status.getFailures().add(failure);
+                }
+                return status;
+            }));
+
+        var statuses = probeExecutor.getGatewayStatuses(List.of(ap), Duration.ofMillis(100));
+
+        assertThat(statuses.getFirst().getFailures()).extracting(CheckResultDTO::getName)
+                                                    .containsExactly(
+                                                        GatewayProbeExecutor.TIMEOUT_CHECK_NAME);
+        // joins the probe which is still running
+        var cached = cache.get(ap, Duration.ofMinutes(1), a -> {
+            throw new AssertionError("the probe has been aborted");
+        });
+        assertThat(cached.getFailures()).isEmpty();
+    }
+
+    @Test
+    void refresh_asyncClient_respectsMaxConcurrentProbes() throws Exception {
+        var asyncCheckerService = mock(AsyncGatewaysCheckerService.class);
+        probeExecutor.asyncGatewaysCheckerService = asyncCheckerService;
+        probeExecutor.gatewayMonitorConfig.getProbe().setAsyncClient(true);
+        probeExecutor.gatewayMonitorConfig.getProbe().setMaxConcurrentProbes(1);
+        probeExecutor.shutdown();
+        probeExecutor.init();
+        var first = accessPoint("first");
+        var second = accessPoint("second");
+        var firstProbe = new CompletableFuture<AccessPointStatusDTO>();
+        when(asyncCheckerService.refreshGatewayStatus(first)).thenReturn(firstProbe);
+        when(asyncCheckerService.refreshGatewayStatus(second))
+            .thenReturn(CompletableFuture.completedFuture(status(second)));
+
+        var firstResult = probeExecutor.refresh(first);
+        verify(asyncCheckerService, timeout(1000)).refreshGatewayStatus(first);
+        var secondResult = probeExecutor.refresh(second);
+        Thread.sleep(200);
+
+        verify(asyncCheckerService, never()).refreshGatewayStatus(second);
+        firstProbe.complete(status(first));
+        assertThat(firstResult.get(1, TimeUnit.SECONDS).getName()).isEqualTo("first");
+        assertThat(secondResult.get(1, TimeUnit.SECONDS).getName()).isEqualTo("second");
+    }
+
+    private AccessPointStatusDTO status(AccessPoint ap) {
+        var status = new AccessPointStatusDTO();
+        status.setName(ap.getName());
+        status.setCheckTime(ZonedDateTime.now());
+        return status;
+    }
+
+    private AccessPoint accessPoint(String name) {
+        var accessPoint = new AccessPoint();
+        accessPoint.setName(name);
+        accessPoint.setEndpoint("https://" + name + ".example.com/domibus/services/msh");
+        return accessPoint;
+    }
+}
@@ -0,0 +1,182 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.domain.AccessPointsConfiguration;
+import eu.ecodex.utils.monitor.gw.domain.AccessPointsDiff;
+import eu.ecodex.utils.monitor.gw.domain.AccessPointsSnapshot;
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GatewayStatusCacheTest {
+    GatewayStatusCache cache;
+    SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void beforeEach() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new GatewayStatusCache();
+        cache.gatewayMonitorConfig = new GatewayMonitorConfigurationProperties();
+        cache.meterRegistry = meterRegistry;
+        cache.init();
+    }
+
+    @Test
+    void get_concurrentMissesAreLoadedOnlyOnce() throws Exception {
+        var ap = accessPoint("ap1");
+        var loads = new AtomicInteger();
+        var start = new CountDownLatch(1);
+        List<Future<AccessPointStatusDTO>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return cache.get(ap, Duration.ofMinutes(1), a -> {
+                        loads.incrementAndGet();
+                        sleep(200);
+                        return status(a, ZonedDateTime.now());
+                    });
+                }));
+            }
+            start.countDown();
+            var first = results.getFirst().get();
+            for (var result : results) {
+                assertThat(result.get()).isSameAs(first);
+            }
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(7);
+        assertThat(meterRegistry.get(GatewayStatusCache.METRIC_PREFIX + ".requests")
+                                .tag("result", "hit").functionCounter().count())
+            .isEqualTo(7);
+        assertThat(meterRegistry.get(GatewayStatusCache.METRIC_PREFIX + ".load").timer().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void get_expiredEntryIsReloaded() {
+        var ap = accessPoint("ap1");
+        var old = cache.get(ap, Duration.ofMinutes(1),
+            a -> status(a, ZonedDateTime.now().minusMinutes(2)));
+
+        var fresh = cache.get(ap, Duration.ofMinutes(1), a -> status(a, ZonedDateTime.now()));
+
+        assertThat(fresh).isNotSameAs(old);
+        assertThat(cache.get(ap, Duration.ofMinutes(1), a -> status(a, ZonedDateTime.now())))
+            .isSameAs(fresh);
+    }
+
+    @Test
+    void get_oldestEntriesAreEvictedWhenFull() {
+        cache.gatewayMonitorConfig.setCheckCacheMaxSize(2);
+        var ap1 = accessPoint("ap1");
+        var ap2 = accessPoint("ap2");
+        var ap3 = accessPoint("ap3");
+        cache.get(ap1, Duration.ofMinutes(10), a -> status(a, ZonedDateTime.now().minusMinutes(3)));
+        cache.get(ap2, Duration.ofMinutes(10), a -> status(a, ZonedDateTime.now().minusMinutes(2)));
+        cache.get(ap3, Duration.ofMinutes(10), a -> status(a, ZonedDateTime.now()));
+
+        assertThat(cache.size()).isEqualTo(2);
+        var reloads = new AtomicInteger();
+        cache.get(ap1, Duration.ofMinutes(10), a -> {
+            reloads.incrementAndGet();
+            return status(a, ZonedDateTime.now());
+        });
+        assertThat(reloads).hasValue(1);
+    }
+
+    @Test
+    void getAsync_runningLoadIsSharedWithoutBlocking() {
+        var ap = accessPoint("ap1");
+        var probe = new CompletableFuture<AccessPointStatusDTO>();
+        var loads = new AtomicInteger();
+
+        var first = cache.getAsync(ap, Duration.ofMinutes(1), a -> {
+            loads.incrementAndGet();
+            return probe;
+        });
+        var second = cache.getAsync(ap, Duration.ofMinutes(1), a -> {
+            loads.incrementAndGet();
+            return probe;
+        });
+        assertThat(first).isNotDone();
+        assertThat(cache.isLoading(ap)).isTrue();
+
+        var status = status(ap, ZonedDateTime.now());
+        probe.complete(status);
+
+        assertThat(first.join()).isSameAs(status);
+        assertThat(second.join()).isSameAs(status);
+        assertThat(cache.getLatest(ap)).isSameAs(status);
+        assertThat(cache.get(ap, Duration.ofMinutes(1), a -> status(a, ZonedDateTime.now())))
+            .isSameAs(status);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void onAccessPointsChanged_onlyAffectedEntriesAreInvalidated() {
+        var kept = accessPoint("kept");
+        var removed = accessPoint("removed");
+        var changed = accessPoint("changed");
+        var moved = accessPoint("changed");
+        moved.setEndpoint("https://new.example.com/domibus/services/msh");
+        for (var ap : List.of(kept, removed, changed)) {
+            cache.get(ap, Duration.ofMinutes(1), a -> status(a, ZonedDateTime.now()));
+        }
+        var previous = snapshot(1, kept, removed, changed);
+        var current = snapshot(2, kept, moved);
+
+        cache.onAccessPointsChanged(new AccessPointsChangedEvent(
+            this, previous, current, AccessPointsDiff.between(previous, current)));
+
+        assertThat(cache.getLatest(kept)).isNotNull();
+        assertThat(cache.getLatest(removed)).isNull();
+        assertThat(cache.getLatest(changed)).isNull();
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    private static AccessPointsSnapshot snapshot(long version, AccessPoint self,
+                                                 AccessPoint... remotes) {
+        var config = new AccessPointsConfiguration();
+        config.setSelf(self);
+        config.setRemoteAccessPoints(List.of(remotes));
+        return new AccessPointsSnapshot(version, config);
+    }
+
+    private static AccessPointStatusDTO status(AccessPoint ap, ZonedDateTime checkTime) {
+        var status = new AccessPointStatusDTO();
+        status.setName(ap.getName());
+        status.setCheckTime(checkTime);
+        return status;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private AccessPoint accessPoint(String name) {
+        var accessPoint = new AccessPoint();
+        accessPoint.setName(name);
+        accessPoint.setEndpoint("https://" + name + ".example.com/domibus/services/msh");
+        return accessPoint;
+    }
+}
@@ -0,0 +1,198 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import eu.ecodex.utils.monitor.gw.dto.CheckResultDTO;
+import eu.ecodex.utils.monitor.gw.dto.HistoryEntryDTO;
+import eu.ecodex.utils.monitor.gw.dto.PhaseTimingsDTO;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import org.apache.hc.core5.http.ssl.TLS;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GatewayStatusHistoryTest {
+    private static final Instant START = Instant.parse("2024-06-01T00:00:00Z");
+
+    @TempDir
+    Path tempDir;
+    GatewayMonitorConfigurationProperties config;
+    GatewayStatusHistory history;
+    AccessPoint ap;
+
+    @BeforeEach
+    void beforeEach() {
+        config = new GatewayMonitorConfigurationProperties();
+        config.getHistory().setDirectory(tempDir);
+        config.getHistory().setRawRetention(Duration.ofHours(2));
+        config.getHistory().setRollupInterval(Duration.ofHours(1));
+        config.getHistory().setRollupRetention(Duration.ofDays(1));
+        ap = new AccessPoint();
+        ap.setName("gw/at");
+        history = createHistory();
+    }
+
+    @AfterEach
+    void afterEach() {
+        history.shutdown();
+    }
+
+    @Test
+    void getHistory_returnsProbesAndAvailability() {
+        history.record(ap, status(0, true, 120));
+        history.record(ap, status(60, false, -1));
+        history.record(ap, status(120, true, 80));
+        history.record(ap, status(180, true, 100));
+        setTime(START.plusSeconds(240));
+
+        var result = history.getHistory("gw/at", Duration.ofHours(1));
+
+        assertThat(result.getProbes()).isEqualTo(4);
+        assertThat(result.getFailures()).isEqualTo(1);
+        assertThat(result.getAvailabilityPercent()).isEqualTo(75.0);
+        assertThat(result.getEntries()).hasSize(4);
+        var first = result.getEntries().getFirst();
+        assertThat(first.getAverageLatencyMillis()).isEqualTo(120);
+        assertThat(first.getTls()).isEqualTo(TLS.V_1_3.getVersion().toString());
+        assertThat(result.getEntries().get(1).getAverageLatencyMillis()).isNull();
+    }
+
+    @Test
+    void getHistory_onlyReturnsProbesWithinPeriod() {
+        history.record(ap, status(0, false, 10));
+        history.record(ap, status(3000, true, 10));
+        setTime(START.plusSeconds(3600));
+
+        var result = history.getHistory("gw/at", Duration.ofMinutes(30));
+
+        assertThat(result.getProbes()).isEqualTo(1);
+        assertThat(result.getAvailabilityPercent()).isEqualTo(100.0);
+    }
+
+    @Test
+    void getHistory_unknownAccessPoint_hasNoAvailability() {
+        var result = history.getHistory("unknown", Duration.ofHours(1));
+
+        assertThat(result.getProbes()).isZero();
+        assertThat(result.getAvailabilityPercent()).isNull();
+        assertThat(result.getEntries()).isEmpty();
+        assertThat(history.getSeriesCount()).isZero();
+    }
+
+    @Test
+    void record_statusOfOpenCircuit_isNotRecorded() {
+        history.record(ap, status(0, false, 10));
+        var rejected = status(60, false, -1);
+        rejected.getFailures().getFirst().setName(GatewayCircuitBreaker.CIRCUIT_BREAKER_CHECK_NAME);
+        history.record(ap, rejected);
+        setTime(START.plusSeconds(120));
+
+        var result = history.getHistory("gw/at", Duration.ofHours(1));
+
+        assertThat(result.getProbes()).isEqualTo(1);
+        assertThat(result.getFailures()).isEqualTo(1);
+    }
+
+    @Test
+    void history_survivesRestart() {
+        history.record(ap, status(0, true, 10));
+        history.record(ap, status(60, false, 20));
+        history.shutdown();
+
+        history = createHistory();
+        setTime(START.plusSeconds(120));
+
+        var result = history.getHistory("gw/at", Duration.ofHours(1));
+        assertThat(result.getProbes()).isEqualTo(2);
+        assertThat(result.getFailures()).isEqualTo(1);
+    }
+
+    @Test
+    void history_incompleteRecordIsDropped() throws IOException {
+        history.record(ap, status(0, true, 10));
+        var probeFile = tempDir.resolve("gw%2Fat" + GatewayStatusHistory.PROBE_FILE_SUFFIX);
+        Files.write(probeFile, new byte[] {1, 2, 3}, StandardOpenOption.APPEND);
+        history.shutdown();
+
+        history = createHistory();
+        history.record(ap, status(60, true, 10));
+        setTime(START.plusSeconds(120));
+
+        assertThat(history.getHistory("gw/at", Duration.ofHours(1)).getProbes()).isEqualTo(2);
+    }
+
+    @Test
+    void compact_rollsUpOldProbesAndRemovesExpiredBuckets() {
+        history.record(ap, status(0, true, 100));
+        history.record(ap, status(600, false, 300));
+        history.record(ap, status(4000, true, 50));
+        setTime(START.plus(Duration.ofHours(3)));
+
+        history.compact();
+
+        var result = history.getHistory("gw/at", Duration.ofHours(4));
+        assertThat(result.getProbes()).isEqualTo(3);
+        assertThat(result.getFailures()).isEqualTo(1);
+        assertThat(result.getEntries()).extracting(HistoryEntryDTO::getProbes)
+                                       .containsExactly(2, 1);
+        var bucket = result.getEntries().getFirst();
+        assertThat(bucket.getTime().toInstant()).isEqualTo(START);
+        assertThat(bucket.getAverageLatencyMillis()).isEqualTo(200);
+        assertThat(bucket.getMaxLatencyMillis()).isEqualTo(300);
+        assertThat(bucket.getTls()).isNull();
+
+        history.shutdown();
+        history = createHistory();
+        setTime(START.plus(Duration.ofHours(3)));
+        assertThat(history.getHistory("gw/at", Duration.ofHours(4)).getEntries()).hasSize(2);
+
+        setTime(START.plus(Duration.ofDays(1)).plus(Duration.ofHours(1)));
+        history.compact();
+
+        var expired = history.getHistory("gw/at", Duration.ofDays(2));
+        assertThat(expired.getEntries()).extracting(HistoryEntryDTO::getProbes).containsExactly(1);
+    }
+
+    private GatewayStatusHistory createHistory() {
+        var statusHistory = new GatewayStatusHistory();
+        statusHistory.gatewayMonitorConfig = config;
+        statusHistory.clock = Clock.fixed(START, ZoneOffset.UTC);
+        statusHistory.init();
+        return statusHistory;
+    }
+
+    private void setTime(Instant time) {
+        history.clock = Clock.fixed(time, ZoneOffset.UTC);
+    }
+
+    private AccessPointStatusDTO status(long secondsAfterStart, boolean ok, long latencyMillis) {
+        var status = new AccessPointStatusDTO();
+        status.setName(ap.getName());
+        status.setCheckTime(ZonedDateTime.ofInstant(
+            START.plusSeconds(secondsAfterStart), ZoneOffset.UTC));
+        status.setUsedTls(TLS.V_1_3.getVersion());
+        if (!ok) {
+            var failure = new CheckResultDTO();
+            failure.setName("Connection Failure");
+            status.getFailures().add(failure);
+        }
+        if (latencyMillis >= 0) {
+            var timings = new PhaseTimingsDTO();
+            timings.setTotal(Duration.ofMillis(latencyMillis));
+            status.setTimings(timings);
+        }
+        return status;
+    }
+}
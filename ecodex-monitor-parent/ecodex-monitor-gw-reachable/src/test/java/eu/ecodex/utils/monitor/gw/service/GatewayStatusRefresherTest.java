@@ -0,0 +1,89 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GatewayStatusRefresherTest {
+    GatewayStatusRefresher refresher;
+    GatewayStatusCache cache;
+    GatewaysCheckerService checkerService;
+    ConfiguredGatewaysService configuredGatewaysService;
+    GatewayProbeExecutor probeExecutor;
+    AccessPoint ap = accessPoint("gw1");
+
+    @BeforeEach
+    public void beforeEach() {
+        var config = new GatewayMonitorConfigurationProperties();
+        config.getProbe().setRefreshJitter(Duration.ZERO);
+        config.getProbe().setRefreshCheckInterval(Duration.ofHours(1));
+
+        cache = new GatewayStatusCache();
+        cache.gatewayMonitorConfig = config;
+        cache.init();
+
+        checkerService = mock(GatewaysCheckerService.class);
+        when(checkerService.refreshGatewayStatus(any(AccessPoint.class))).thenAnswer(
+            invocation -> cache.get(invocation.getArgument(0), Duration.ZERO, a -> {
+                var status = new AccessPointStatusDTO();
+                status.setName(a.getName());
+                status.setCheckTime(ZonedDateTime.now());
+                return status;
+            }));
+
+        probeExecutor = new GatewayProbeExecutor();
+        probeExecutor.gatewayMonitorConfig = config;
+        probeExecutor.gatewaysCheckerService = checkerService;
+        probeExecutor.init();
+
+        configuredGatewaysService = mock(ConfiguredGatewaysService.class);
+        when(configuredGatewaysService.getConfiguredGatewaysWithSelf()).thenReturn(List.of(ap));
+
+        refresher = new GatewayStatusRefresher();
+        refresher.gatewayMonitorConfig = config;
+        refresher.configuredGatewaysService = configuredGatewaysService;
+        refresher.probeExecutor = probeExecutor;
+        refresher.gatewayStatusCache = cache;
+        refresher.init();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        refresher.shutdown();
+        probeExecutor.shutdown();
+    }
+
+    @Test
+    void getLatestStatus_answersFromBackgroundProbe() {
+        verify(checkerService, timeout(5000)).refreshGatewayStatus(ap);
+        var background = cache.getLatest(ap);
+        assertThat(background).isNotNull();
+
+        var status = refresher.getLatestStatus(ap);
+
+        assertThat(status).isSameAs(background);
+        assertThat(status.getAgeSeconds()).isNotNull();
+        verify(checkerService, never()).getGatewayStatus(any(AccessPoint.class));
+    }
+
+    private static AccessPoint accessPoint(String name) {
+        var accessPoint = new AccessPoint();
+        accessPoint.setName(name);
+        accessPoint.setEndpoint("https://" + name + ".example.com/domibus/services/msh");
+        return accessPoint;
+    }
+}
@@ -0,0 +1,96 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.domibus.connector.lib.spring.configuration.KeyConfigurationProperties;
+import eu.domibus.connector.lib.spring.configuration.StoreConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+class GatewayTlsClientProviderTest {
+    GatewayMonitorConfigurationProperties config;
+    GatewayTlsClientProvider provider;
+
+    @BeforeEach
+    void beforeEach() {
+        config = new GatewayMonitorConfigurationProperties();
+        var tls = config.getTls();
+        tls.setMinTls("TLSv1.2");
+        tls.setKeyStore(store("keystores/keystore.jks"));
+        tls.setTrustStore(store("keystores/truststore.jks"));
+        tls.setPrivateKey(new KeyConfigurationProperties("key", "12345"));
+
+        var trustStrategy = new TrustStoreCompleteChainTrustStrategy();
+        trustStrategy.gatewayMonitorConfigurationProperties = config;
+        provider = new GatewayTlsClientProvider();
+        provider.gatewayMonitorConfig = config;
+        provider.trustStoreCompleteChainTrustStrategy = trustStrategy;
+    }
+
+    @AfterEach
+    void afterEach() {
+        provider.shutdown();
+    }
+
+    @Test
+    void getTlsClient_unchangedConfig_reusesClient() {
+        var first = provider.getTlsClient();
+        first.release();
+
+        var second = provider.getTlsClient();
+        second.release();
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.isClosed()).isFalse();
+    }
+
+    @Test
+    void getTlsClient_trustStoreChanged_buildsNewClient() {
+        var first = provider.getTlsClient();
+        first.release();
+
+        config.getTls().setTrustStore(store("server3/truststore.jks"));
+        var second = provider.getTlsClient();
+        second.release();
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(first.isClosed()).isTrue();
+        assertThat(second.isClosed()).isFalse();
+    }
+
+    @Test
+    void getTlsClient_keyStoreChanged_buildsNewClient() {
+        var first = provider.getTlsClient();
+        first.release();
+
+        config.getTls().setKeyStore(store("server3/keystore.jks"));
+        config.getTls().setPrivateKey(new KeyConfigurationProperties("server3", "12345"));
+        var second = provider.getTlsClient();
+        second.release();
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(first.isClosed()).isTrue();
+    }
+
+    @Test
+    void getTlsClient_replacedClient_isClosedAfterRunningProbeReleasedIt() {
+        var running = provider.getTlsClient();
+
+        config.getTls().setTrustStore(store("server3/truststore.jks"));
+        var replacement = provider.getTlsClient();
+        replacement.release();
+
+        assertThat(replacement).isNotSameAs(running);
+        assertThat(running.isClosed()).isFalse();
+        running.release();
+        assertThat(running.isClosed()).isTrue();
+        assertThat(running.acquire()).isFalse();
+    }
+
+    private static StoreConfigurationProperties store(String path) {
+        return new StoreConfigurationProperties(new ClassPathResource(path), "12345");
+    }
+}
@@ -73,6 +73,12 @@ class GatewaysCheckerServiceITCase {
         LOGGER.info(GATEWAY_STATUS_IS, gatewayStatus);
 
         assertThat(gatewayStatus.getFailures()).isEmpty();
+        var timings = gatewayStatus.getTimings();
+        assertThat(timings.getDns()).isNotNull();
+        assertThat(timings.getConnect()).isNotNull();
+        assertThat(timings.getTlsHandshake()).isPositive();
+        assertThat(timings.getFirstByte()).isNotNull();
+        assertThat(timings.getTotal()).isGreaterThanOrEqualTo(timings.getTlsHandshake());
     }
 
     @Test
@@ -0,0 +1,85 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.ecodex.utils.monitor.gw.GatewayMonitorAutoConfiguration;
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.dto.TlsHandshake;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import test.server.ServerStarter;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.NONE,
+    classes = {GatewayMonitorAutoConfiguration.class}
+)
+@ActiveProfiles("test")
+class GatewaysCheckerServiceSessionITCase {
+    @Autowired
+    GatewaysCheckerService gatewaysCheckerService;
+    @Autowired
+    GatewayMonitorConfigurationProperties gatewayMonitorConfig;
+    ConfigurableApplicationContext server3;
+    AccessPoint accessPoint;
+
+    @BeforeEach
+    void beforeEach() {
+        server3 = ServerStarter.startServer3();
+        accessPoint = new AccessPoint();
+        accessPoint.setName("gw3");
+        accessPoint.setEndpoint("https://localhost:" + ServerStarter.getServerPort(server3) + "/");
+    }
+
+    @AfterEach
+    void afterEach() {
+        gatewayMonitorConfig.getProbe().setKeepAlive(false);
+        gatewayMonitorConfig.getProbe().setSessionResumption(true);
+        server3.close();
+    }
+
+    @Test
+    void refreshGatewayStatus_secondProbe_resumesSession() {
+        var first = gatewaysCheckerService.refreshGatewayStatus(accessPoint);
+        var second = gatewaysCheckerService.refreshGatewayStatus(accessPoint);
+
+        assertThat(first.getFailures()).isEmpty();
+        assertThat(first.getTlsHandshake()).isEqualTo(TlsHandshake.FULL);
+        assertThat(second.getFailures()).isEmpty();
+        assertThat(second.getTlsHandshake()).isEqualTo(TlsHandshake.RESUMED);
+        assertThat(second.getServerCertificates()).isNotEmpty();
+    }
+
+    @Test
+    void refreshGatewayStatus_sessionResumptionDisabled_alwaysFullHandshake() {
+        gatewayMonitorConfig.getProbe().setSessionResumption(false);
+
+        var first = gatewaysCheckerService.refreshGatewayStatus(accessPoint);
+        var second = gatewaysCheckerService.refreshGatewayStatus(accessPoint);
+
+        assertThat(first.getTlsHandshake()).isEqualTo(TlsHandshake.FULL);
+        assertThat(second.getFailures()).isEmpty();
+        assertThat(second.getTlsHandshake()).isEqualTo(TlsHandshake.FULL);
+    }
+
+    @Test
+    void refreshGatewayStatus_keepAlive_reusesConnection() {
+        gatewayMonitorConfig.getProbe().setKeepAlive(true);
+
+        gatewaysCheckerService.refreshGatewayStatus(accessPoint);
+        var second = gatewaysCheckerService.refreshGatewayStatus(accessPoint);
+
+        assertThat(second.getFailures()).isEmpty();
+        assertThat(second.getTlsHandshake()).isEqualTo(TlsHandshake.NONE);
+        assertThat(second.getTimings().getTlsHandshake()).isNull();
+        assertThat(second.getServerCertificates()).isNotEmpty();
+    }
+}
@@ -0,0 +1,52 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.config.ProbeProperties.ProbeMode;
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import eu.ecodex.utils.monitor.gw.dto.CheckResultDTO;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GatewaysCheckerServiceTest {
+    GatewaysCheckerService checkerService;
+
+    @BeforeEach
+    void beforeEach() {
+        checkerService = new GatewaysCheckerService();
+        checkerService.gatewayMonitorConfig = new GatewayMonitorConfigurationProperties();
+    }
+
+    @Test
+    void checkResponseCode_getWithRange_acceptsPartialContent() {
+        assertThat(failuresOf(206)).isEmpty();
+        assertThat(failuresOf(500)).extracting(CheckResultDTO::getMessage)
+                                   .containsExactly("HTTP Code 500 is not 200 or 206");
+    }
+
+    @Test
+    void checkResponseCode_getWithoutRange_onlyAccepts200() {
+        checkerService.gatewayMonitorConfig.getProbe().setMaxBodyBytes(0);
+
+        assertThat(failuresOf(200)).isEmpty();
+        assertThat(failuresOf(206)).extracting(CheckResultDTO::getMessage)
+                                   .containsExactly("HTTP Code 206 != 200");
+    }
+
+    @Test
+    void checkResponseCode_head_onlyAccepts200() {
+        checkerService.gatewayMonitorConfig.getProbe().setMode(ProbeMode.HEAD);
+
+        assertThat(failuresOf(200)).isEmpty();
+        assertThat(failuresOf(206)).extracting(CheckResultDTO::getMessage)
+                                   .containsExactly("HTTP Code 206 != 200");
+    }
+
+    private List<CheckResultDTO> failuresOf(int code) {
+        var status = new AccessPointStatusDTO();
+        checkerService.checkResponseCode(status, code);
+        return status.getFailures();
+    }
+}
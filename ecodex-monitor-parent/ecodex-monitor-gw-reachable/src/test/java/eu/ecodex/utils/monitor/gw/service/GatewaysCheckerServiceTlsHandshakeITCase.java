@@ -0,0 +1,83 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.ecodex.utils.monitor.gw.GatewayMonitorAutoConfiguration;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import test.server.ServerStarter;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.NONE,
+    classes = {GatewayMonitorAutoConfiguration.class},
+    properties = "monitor.gw.probe.mode=TLS_HANDSHAKE"
+)
+@ActiveProfiles("test")
+class GatewaysCheckerServiceTlsHandshakeITCase {
+    private static final Logger LOGGER =
+        LoggerFactory.getLogger(GatewaysCheckerServiceTlsHandshakeITCase.class);
+    public static final String GATEWAY_STATUS_IS = "Gateway status is: [{}]";
+    @Autowired
+    GatewaysCheckerService gatewaysCheckerService;
+    @Autowired
+    CertificatesEndpoint certificatesEndpoint;
+
+    @Test
+    void getGatewayStatus_serverCrtDoesNotMatchName() {
+        var server1 = ServerStarter.startServer1();
+
+        var accessPoint = new AccessPoint();
+        accessPoint.setName("gw1");
+        accessPoint.setEndpoint("https://localhost:" + ServerStarter.getServerPort(server1) + "/");
+
+        var gatewayStatus = gatewaysCheckerService.getGatewayStatus(accessPoint);
+
+        LOGGER.info(GATEWAY_STATUS_IS, gatewayStatus);
+
+        assertThat(gatewayStatus.getFailures()).hasSize(1);
+    }
+
+    @Test
+    void getGatewayStatus_illegalClientCrt() {
+        var server2 = ServerStarter.startServer2();
+
+        var accessPoint = new AccessPoint();
+        accessPoint.setName("gw2");
+        accessPoint.setEndpoint("https://localhost:" + ServerStarter.getServerPort(server2) + "/");
+
+        var gatewayStatus = gatewaysCheckerService.getGatewayStatus(accessPoint);
+
+        LOGGER.info(GATEWAY_STATUS_IS, gatewayStatus);
+
+        assertThat(gatewayStatus.getFailures()).hasSize(1);
+    }
+
+    @Test
+    void getGatewayStatus_handshakeOnly() {
+        var server3 = ServerStarter.startServer3();
+
+        var accessPoint = new AccessPoint();
+        accessPoint.setName("gw3");
+        accessPoint.setEndpoint("https://localhost:" + ServerStarter.getServerPort(server3) + "/");
+
+        var gatewayStatus = gatewaysCheckerService.getGatewayStatus(accessPoint);
+
+        LOGGER.info(GATEWAY_STATUS_IS, gatewayStatus);
+
+        assertThat(gatewayStatus.getFailures()).isEmpty();
+        assertThat(gatewayStatus.getUsedTls()).isNotNull();
+        assertThat(gatewayStatus.getServerCertificates()).isNotEmpty();
+        assertThat(gatewayStatus.getTimings().getTlsHandshake()).isPositive();
+        assertThat(certificatesEndpoint.getCertificate(gatewayStatus.getServerCertificates()[0]))
+            .satisfies(certificate -> assertThat(certificate.getEncoded()).isNotEmpty());
+        assertThat(gatewayStatus.getTimings().getFirstByte()).isNull();
+    }
+}
@@ -0,0 +1,87 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.ecodex.utils.monitor.gw.GatewayMonitorAutoConfiguration;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.domain.AccessPointsConfiguration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import test.server.ServerStarter;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.NONE,
+    classes = {GatewayMonitorAutoConfiguration.class},
+    properties = {
+        "monitor.gw.domains.second.access-points.self.name=second",
+        "monitor.gw.domains.second.access-points.self.endpoint=https://localhost:1/",
+        "monitor.gw.domains.second.max-concurrent-probes=2",
+        "monitor.gw.domains.second.tls.min-tls=TLSv1.2",
+        "monitor.gw.domains.second.tls.trust-store.path=classpath:/keystores/truststore.jks",
+        "monitor.gw.domains.second.tls.trust-store.password=12345",
+        "monitor.gw.domains.second.tls.trust-store.type=JKS",
+        "monitor.gw.domains.second.tls.key-store.path=classpath:/keystores/keystore.jks",
+        "monitor.gw.domains.second.tls.key-store.password=12345",
+        "monitor.gw.domains.second.tls.key-store.type=JKS",
+        "monitor.gw.domains.second.tls.private-key.alias=key",
+        "monitor.gw.domains.second.tls.private-key.password=12345"
+    }
+)
+@ActiveProfiles("test")
+class MonitoringDomainsITCase {
+    @Autowired
+    MonitoringDomains monitoringDomains;
+    @Autowired
+    GatewayTlsClientProvider defaultTlsClientProvider;
+    @Autowired
+    GatewayProbeExecutor defaultProbeExecutor;
+
+    @Test
+    void domain_hasOwnServices() {
+        assertThat(monitoringDomains.getNames()).containsExactly("second");
+        var domain = monitoringDomains.get("second");
+
+        var tlsClientProvider = domain.getBean(GatewayTlsClientProvider.class);
+        assertThat(tlsClientProvider).isNotSameAs(defaultTlsClientProvider);
+        assertThat(tlsClientProvider.gatewayMonitorConfig.getTls().getMinTls())
+            .isEqualTo("TLSv1.2");
+        var probeExecutor = domain.getBean(GatewayProbeExecutor.class);
+        assertThat(probeExecutor.gatewayMonitorConfig.getProbe().getMaxConcurrentProbes())
+            .isEqualTo(2);
+        assertThat(probeExecutor.probeCapacity.getDomain()).isEqualTo("second");
+        assertThat(defaultProbeExecutor.probeCapacity.getDomain())
+            .isEqualTo(MonitoringDomains.DEFAULT_DOMAIN);
+        assertThat(domain.getBean(GatewayStatusCache.class))
+            .isNotSameAs(defaultProbeExecutor.gatewaysCheckerService.gatewayStatusCache);
+    }
+
+    @Test
+    void domain_probesItsGateways() {
+        var server3 = ServerStarter.startServer3();
+        try {
+            var domain = monitoringDomains.get("second");
+            var self = new AccessPoint();
+            self.setName("second");
+            self.setEndpoint("https://localhost:" + ServerStarter.getServerPort(server3) + "/");
+            var config = new AccessPointsConfiguration();
+            config.setSelf(self);
+            config.setRemoteAccessPoints(List.of());
+            domain.getBean(ConfiguredGatewaysService.class).setAccessPointConfig(config);
+
+            var statuses = domain.getLatestStatuses();
+
+            assertThat(statuses).hasSize(1);
+            assertThat(statuses.getFirst().getFailures()).isEmpty();
+            assertThat(domain.getLatestStatus("second").getFailures()).isEmpty();
+            assertThat(domain.getLatestStatus("unknown")).isNull();
+        } finally {
+            server3.close();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayRestInterfaceConfiguration;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+
+class PModeDownloaderPollingTest {
+    private static final String BASE_URL = "http://localhost/domibus";
+    GatewayRestInterfaceConfiguration gwConfig;
+    MockRestServiceServer server;
+    PModeDownloader pModeDownloader;
+
+    @BeforeEach
+    public void beforeEach() {
+        gwConfig = new GatewayRestInterfaceConfiguration();
+        gwConfig.setUrl(BASE_URL);
+        var restTemplate = new RestTemplate();
+        restTemplate.setUriTemplateHandler(new DefaultUriBuilderFactory(BASE_URL));
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        pModeDownloader = new PModeDownloader(gwConfig, restTemplate);
+    }
+
+    @Test
+    void getAccessPointsConfig_withinCheckInterval_doesNotAskGateway() throws IOException {
+        gwConfig.setPmodeCheckInterval(Duration.ofHours(1));
+        expectCurrent(3);
+        expectPMode(3);
+
+        var first = pModeDownloader.getAccessPointsConfig();
+        var second = pModeDownloader.getAccessPointsConfig();
+
+        server.verify();
+        assertThat(second).isSameAs(first);
+        assertThat(first.getId()).isEqualTo(3);
+        assertThat(first.getSelf().getName()).isEqualTo("at");
+        assertThat(first.getRemoteAccessPoints()).extracting(AccessPoint::getName)
+                                                 .containsExactlyInAnyOrder("de", "fr");
+    }
+
+    @Test
+    void getAccessPointsConfig_unchangedId_doesNotDownloadAgain() throws IOException {
+        gwConfig.setPmodeCheckInterval(Duration.ZERO);
+        expectCurrent(3);
+        expectPMode(3);
+        expectCurrent(3);
+
+        var first = pModeDownloader.getAccessPointsConfig();
+        var second = pModeDownloader.getAccessPointsConfig();
+
+        server.verify();
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    void getAccessPointsConfig_notModified_keepsSnapshot() throws IOException {
+        gwConfig.setPmodeCheckInterval(Duration.ZERO);
+        server.expect(once(), requestTo(BASE_URL + "/ext/pmode/current"))
+              .andRespond(withSuccess("{\"id\":3}", MediaType.APPLICATION_JSON)
+                              .header(HttpHeaders.ETAG, "\"3\""));
+        expectPMode(3);
+        server.expect(once(), requestTo(BASE_URL + "/ext/pmode/current"))
+              .andExpect(header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+              .andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+        var first = pModeDownloader.getAccessPointsConfig();
+        var second = pModeDownloader.getAccessPointsConfig();
+
+        server.verify();
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    void downloadPModes_notModifiedAfterAccessPointsLoaded_downloadsPModeSet() throws IOException {
+        gwConfig.setPmodeCheckInterval(Duration.ZERO);
+        server.expect(once(), requestTo(BASE_URL + "/ext/pmode/current"))
+              .andRespond(withSuccess("{\"id\":3}", MediaType.APPLICATION_JSON)
+                              .header(HttpHeaders.ETAG, "\"3\""));
+        expectPMode(3);
+        server.expect(once(), requestTo(BASE_URL + "/ext/pmode/current"))
+              .andExpect(header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+              .andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+        expectPMode(3);
+
+        pModeDownloader.getAccessPointsConfig();
+        var configuration = pModeDownloader.downloadPModes();
+
+        server.verify();
+        assertThat(configuration).isNotNull();
+        assertThat(configuration.getParty()).isEqualTo("at");
+    }
+
+    private void expectCurrent(int id) {
+        server.expect(once(), requestTo(BASE_URL + "/ext/pmode/current"))
+              .andRespond(withSuccess("{\"id\":" + id + "}", MediaType.APPLICATION_JSON));
+    }
+
+    private void expectPMode(int id) throws IOException {
+        var pmode = new ClassPathResource("pmode/pmode.xml")
+            .getContentAsString(StandardCharsets.UTF_8);
+        server.expect(once(), requestTo(BASE_URL + "/ext/pmode/" + id))
+              .andRespond(withSuccess(pmode, MediaType.APPLICATION_XML));
+    }
+}
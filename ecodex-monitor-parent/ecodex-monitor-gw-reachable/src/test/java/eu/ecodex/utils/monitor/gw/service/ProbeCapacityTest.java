@@ -0,0 +1,72 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class ProbeCapacityTest {
+
+    @Test
+    void acquire_belowCapacity_doesNotWait() throws InterruptedException {
+        var capacity = new ProbeCapacity(2);
+        var share = capacity.share("a");
+
+        share.acquire();
+        share.acquire();
+
+        assertThat(capacity.getRunning()).isEqualTo(2);
+        share.release();
+        assertThat(share.getRunning()).isEqualTo(1);
+    }
+
+    @Test
+    void release_freeSlot_isHandedToDomainWithFewestRunningProbes() throws Exception {
+        var capacity = new ProbeCapacity(2);
+        var large = capacity.share("large");
+        var small = capacity.share("small");
+        large.acquire();
+        large.acquire();
+
+        List<String> order = new CopyOnWriteArrayList<>();
+        var largeWaiting = startProbe(large, order);
+        awaitWaiting(capacity, 1);
+        var smallWaiting = startProbe(small, order);
+        awaitWaiting(capacity, 2);
+
+        large.release();
+
+        assertThat(smallWaiting.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(order).containsExactly("small");
+        large.release();
+        assertThat(largeWaiting.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(order).containsExactly("small", "large");
+        assertThat(capacity.getRunning()).isEqualTo(2);
+    }
+
+    private static CountDownLatch startProbe(ProbeCapacity.Share share, List<String> order) {
+        var acquired = new CountDownLatch(1);
+        Thread.ofVirtual().start(() -> {
+            try {
+                share.acquire();
+                order.add(share.getDomain());
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        return acquired;
+    }
+
+    private static void awaitWaiting(ProbeCapacity capacity, int waiting)
+        throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (capacity.getWaiting() < waiting && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(capacity.getWaiting()).isEqualTo(waiting);
+    }
+}
@@ -0,0 +1,39 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class ProbeTimingsTest {
+
+    @Test
+    void phasesAreRecordedIntoTheProbeOfTheCurrentThread() {
+        var timings = ProbeTimings.start();
+        ProbeTimings.current().recordDns(Duration.ofMillis(1).toNanos());
+        ProbeTimings.current().recordConnect(Duration.ofMillis(2).toNanos());
+        ProbeTimings.current().recordTlsHandshake(Duration.ofMillis(3).toNanos());
+        timings.responseReceived();
+        timings.finish();
+
+        var dto = timings.toDto();
+        assertThat(dto.getDns()).isEqualTo(Duration.ofMillis(1));
+        assertThat(dto.getConnect()).isEqualTo(Duration.ofMillis(2));
+        assertThat(dto.getTlsHandshake()).isEqualTo(Duration.ofMillis(3));
+        assertThat(dto.getFirstByte()).isNotNull();
+        assertThat(dto.getTotal()).isGreaterThanOrEqualTo(dto.getFirstByte());
+        assertThat(ProbeTimings.current()).isNull();
+    }
+
+    @Test
+    void phasesNotReached_areNull() {
+        var timings = ProbeTimings.start();
+        timings.finish();
+
+        var dto = timings.toDto();
+        assertThat(dto.getDns()).isNull();
+        assertThat(dto.getTlsHandshake()).isNull();
+        assertThat(dto.getFirstByte()).isNull();
+        assertThat(dto.getTotal()).isNotNull();
+    }
+}
@@ -0,0 +1,237 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sun.net.httpserver.HttpServer;
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.dto.RevocationStatus;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509v2CRLBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.Req;
+import org.bouncycastle.cert.ocsp.RevokedStatus;
+import org.bouncycastle.cert.ocsp.jcajce.JcaBasicOCSPRespBuilder;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+
+class RevocationCheckerTest {
+    static KeyPair caKeys;
+    static X509Certificate ca;
+    static X509Certificate goodCert;
+    static X509Certificate revokedCert;
+
+    @TempDir
+    Path tempDir;
+    HttpServer ocspResponder;
+    AtomicInteger ocspRequests = new AtomicInteger();
+    GatewayMonitorConfigurationProperties config;
+    RevocationChecker checker;
+
+    @BeforeAll
+    static void createPki() throws Exception {
+        caKeys = generateKeyPair();
+        ca = createCertificate("CN=Test CA", caKeys, "CN=Test CA", caKeys.getPublic(), 1, true);
+        goodCert = createCertificate(
+            "CN=Test CA", caKeys, "CN=good", generateKeyPair().getPublic(), 2, false);
+        revokedCert = createCertificate(
+            "CN=Test CA", caKeys, "CN=revoked", generateKeyPair().getPublic(), 3, false);
+    }
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        ocspResponder = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        ocspResponder.createContext("/ocsp", exchange -> {
+            ocspRequests.incrementAndGet();
+            try {
+                var response = ocspResponse(new OCSPReq(exchange.getRequestBody().readAllBytes()));
+                exchange.getResponseHeaders().add("Content-Type", "application/ocsp-response");
+                exchange.sendResponseHeaders(200, response.length);
+                exchange.getResponseBody().write(response);
+            } catch (Exception e) {
+                exchange.sendResponseHeaders(500, -1);
+            }
+            exchange.close();
+        });
+        ocspResponder.start();
+
+        config = new GatewayMonitorConfigurationProperties();
+        config.getRevocation().setEnabled(true);
+        config.getRevocation().setOcspResponderUrl(
+            "http://localhost:" + ocspResponder.getAddress().getPort() + "/ocsp");
+    }
+
+    @AfterEach
+    void afterEach() {
+        if (checker != null) {
+            checker.shutdown();
+        }
+        ocspResponder.stop(0);
+    }
+
+    @Test
+    void check_disabled_isNotChecked() {
+        config.getRevocation().setEnabled(false);
+        checker = createChecker();
+
+        assertThat(checker.check(new Certificate[] {goodCert, ca}).status())
+            .isEqualTo(RevocationStatus.NOT_CHECKED);
+        assertThat(ocspRequests).hasValue(0);
+    }
+
+    @Test
+    void check_withoutIssuer_isUnknown() {
+        checker = createChecker();
+
+        assertThat(checker.check(new Certificate[] {goodCert}).status())
+            .isEqualTo(RevocationStatus.UNKNOWN);
+    }
+
+    @Test
+    void check_ocsp_resultIsCachedUntilNextUpdate() {
+        checker = createChecker();
+
+        assertThat(checker.check(new Certificate[] {goodCert, ca}).status())
+            .isEqualTo(RevocationStatus.GOOD);
+        assertThat(checker.check(new Certificate[] {revokedCert, ca}).status())
+            .isEqualTo(RevocationStatus.REVOKED);
+        assertThat(checker.check(new Certificate[] {goodCert, ca}).status())
+            .isEqualTo(RevocationStatus.GOOD);
+        assertThat(ocspRequests).hasValue(2);
+    }
+
+    @Test
+    void check_ocspResponsesOnDisk_areReusedAfterRestart() {
+        config.getRevocation().setCacheDirectory(tempDir.resolve("revocation"));
+        checker = createChecker();
+        checker.check(new Certificate[] {goodCert, ca});
+        checker.shutdown();
+
+        checker = createChecker();
+
+        assertThat(checker.check(new Certificate[] {goodCert, ca}).status())
+            .isEqualTo(RevocationStatus.GOOD);
+        assertThat(ocspRequests).hasValue(1);
+    }
+
+    @Test
+    void check_localCrl() throws Exception {
+        var crlFile = tempDir.resolve("ca.crl");
+        Files.write(crlFile, createCrl());
+        config.getRevocation().setOcspEnabled(false);
+        config.getRevocation().setCrls(List.of(new FileSystemResource(crlFile)));
+        checker = createChecker();
+
+        assertThat(checker.check(new Certificate[] {goodCert, ca}).status())
+            .isEqualTo(RevocationStatus.GOOD);
+        assertThat(checker.check(new Certificate[] {revokedCert, ca}).status())
+            .isEqualTo(RevocationStatus.REVOKED);
+        assertThat(ocspRequests).hasValue(0);
+    }
+
+    @Test
+    void check_ocspResponderNotReachable_isUnknown() {
+        config.getRevocation().setOcspResponderUrl("http://localhost:1/ocsp");
+        config.getRevocation().setFetchTimeout(Duration.ofSeconds(1));
+        checker = createChecker();
+
+        var result = checker.check(new Certificate[] {goodCert, ca});
+
+        assertThat(result.status()).isEqualTo(RevocationStatus.UNKNOWN);
+        assertThat(result.details()).contains("localhost:1");
+    }
+
+    private RevocationChecker createChecker() {
+        var revocationChecker = new RevocationChecker();
+        revocationChecker.gatewayMonitorConfig = config;
+        revocationChecker.init();
+        return revocationChecker;
+    }
+
+    private static byte[] ocspResponse(OCSPReq request) throws Exception {
+        var digestCalculator =
+            new JcaDigestCalculatorProviderBuilder().build().get(CertificateID.HASH_SHA1);
+        var builder = new JcaBasicOCSPRespBuilder(caKeys.getPublic(), digestCalculator);
+        var now = Instant.now();
+        for (Req req : request.getRequestList()) {
+            CertificateStatus status = req.getCertID().getSerialNumber()
+                                          .equals(revokedCert.getSerialNumber())
+                ? new RevokedStatus(Date.from(now.minusSeconds(3600)), CRLReason.keyCompromise)
+                : CertificateStatus.GOOD;
+            builder.addResponse(req.getCertID(), status, Date.from(now),
+                                Date.from(now.plus(Duration.ofHours(1)))
+            );
+        }
+        BasicOCSPResp basicResponse = builder.build(
+            signer(), new X509CertificateHolder[] {new JcaX509CertificateHolder(ca)},
+            Date.from(now)
+        );
+        return new OCSPRespBuilder().build(OCSPRespBuilder.SUCCESSFUL, basicResponse).getEncoded();
+    }
+
+    private static byte[] createCrl() throws Exception {
+        var now = Instant.now();
+        var builder = new JcaX509v2CRLBuilder(ca.getSubjectX500Principal(), Date.from(now));
+        builder.setNextUpdate(Date.from(now.plus(Duration.ofDays(1))));
+        builder.addCRLEntry(
+            revokedCert.getSerialNumber(), Date.from(now.minusSeconds(3600)),
+            CRLReason.keyCompromise
+        );
+        return builder.build(signer()).getEncoded();
+    }
+
+    private static X509Certificate createCertificate(
+        String issuer, KeyPair issuerKeys, String subject, PublicKey publicKey,
+        long serial, boolean ca) throws Exception {
+        var now = Instant.now();
+        var builder = new JcaX509v3CertificateBuilder(
+            new X500Name(issuer), BigInteger.valueOf(serial), Date.from(now.minusSeconds(3600)),
+            Date.from(now.plus(Duration.ofDays(1))), new X500Name(subject), publicKey
+        );
+        builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(ca));
+        var signer = new JcaContentSignerBuilder("SHA256withRSA").build(issuerKeys.getPrivate());
+        return new JcaX509CertificateConverter().getCertificate(builder.build(signer));
+    }
+
+    private static ContentSigner signer() throws Exception {
+        return new JcaContentSignerBuilder("SHA256withRSA").build(caKeys.getPrivate());
+    }
+
+    private static KeyPair generateKeyPair() throws Exception {
+        var generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+}
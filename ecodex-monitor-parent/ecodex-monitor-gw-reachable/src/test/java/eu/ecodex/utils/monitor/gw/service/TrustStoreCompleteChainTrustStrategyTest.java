@@ -0,0 +1,112 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import java.io.InputStream;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import org.apache.hc.core5.ssl.SSLContexts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TrustStoreCompleteChainTrustStrategyTest {
+    TrustStoreCompleteChainTrustStrategy trustStrategy;
+    KeyStore trustStore;
+
+    @BeforeEach
+    public void beforeEach() throws Exception {
+        trustStore = KeyStore.getInstance("JKS");
+        try (InputStream is = getClass().getResourceAsStream("/keystores/truststore.jks")) {
+            trustStore.load(is, "12345".toCharArray());
+        }
+        trustStrategy = new TrustStoreCompleteChainTrustStrategy();
+        trustStrategy.gatewayMonitorConfigurationProperties =
+            new GatewayMonitorConfigurationProperties();
+        trustStrategy.setTrustStore(trustStore);
+    }
+
+    @Test
+    void validateCertificate_chainUpToTrustedRoot_isValidAndCached() throws Exception {
+        var server1 = (X509Certificate) trustStore.getCertificate("server1 (subca1)");
+
+        assertThat(trustStrategy.validateCertificate(server1)).isTrue();
+        assertThat(trustStrategy.getCachedValidationCount()).isEqualTo(1);
+        assertThat(trustStrategy.validateCertificate(server1)).isTrue();
+        assertThat(trustStrategy.getCachedValidationCount()).isEqualTo(1);
+    }
+
+    @Test
+    void validateCertificate_expiredCertificate_isNotValid() throws Exception {
+        var expired = (X509Certificate) trustStore.getCertificate("ssl_at");
+
+        assertThat(trustStrategy.validateCertificate(expired)).isFalse();
+    }
+
+    @Test
+    void setTrustStore_discardsCachedValidations() throws Exception {
+        var server1 = (X509Certificate) trustStore.getCertificate("server1 (subca1)");
+        trustStrategy.validateCertificate(server1);
+
+        var emptyTrustStore = KeyStore.getInstance("JKS");
+        emptyTrustStore.load(null, null);
+        trustStrategy.setTrustStore(emptyTrustStore);
+
+        assertThat(trustStrategy.getCachedValidationCount()).isZero();
+        assertThat(trustStrategy.validateCertificate(server1)).isFalse();
+    }
+
+    @Test
+    void isTrusted_repeatedHandshakes_validateChainOnceAndLetDefaultTrustManagerDecide()
+        throws Exception {
+        var serverKeyStore = KeyStore.getInstance("JKS");
+        try (InputStream is = getClass().getResourceAsStream("/server3/keystore.jks")) {
+            serverKeyStore.load(is, "12345".toCharArray());
+        }
+        var serverContext = SSLContexts.custom()
+                                       .loadKeyMaterial(serverKeyStore, "12345".toCharArray())
+                                       .build();
+        var emptyTrustStore = KeyStore.getInstance("JKS");
+        emptyTrustStore.load(null, null);
+        int rejectedHandshakes = 3;
+
+        try (var serverSocket = (SSLServerSocket) serverContext.getServerSocketFactory()
+                                                               .createServerSocket(0)) {
+            var server = Thread.ofVirtual().start(() -> {
+                for (int i = 0; i <= rejectedHandshakes; i++) {
+                    try (var socket = (SSLSocket) serverSocket.accept()) {
+                        socket.startHandshake();
+                    } catch (Exception e) {
+                        // the client rejected the handshake
+                    }
+                }
+            });
+            // the strategy validates the chain, but the default trust manager, which trusts
+            // nothing, still decides
+            for (int i = 0; i < rejectedHandshakes; i++) {
+                assertThatThrownBy(() -> handshake(emptyTrustStore, serverSocket.getLocalPort()))
+                    .isInstanceOf(SSLException.class);
+            }
+            handshake(trustStore, serverSocket.getLocalPort());
+            server.join();
+        }
+
+        assertThat(trustStrategy.getValidationCount()).isEqualTo(1);
+        assertThat(trustStrategy.getCachedValidationCount()).isEqualTo(1);
+    }
+
+    private void handshake(KeyStore clientTrustStore, int port) throws Exception {
+        // a new context per handshake, so no session is resumed
+        var clientContext = SSLContexts.custom()
+                                       .loadTrustMaterial(clientTrustStore, trustStrategy)
+                                       .build();
+        try (var socket = (SSLSocket) clientContext.getSocketFactory()
+                                                   .createSocket("localhost", port)) {
+            socket.startHandshake();
+        }
+    }
+}